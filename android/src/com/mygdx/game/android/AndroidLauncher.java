@@ -11,6 +11,9 @@ public class AndroidLauncher extends AndroidApplication {
 	protected void onCreate (Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		AndroidApplicationConfiguration config = new AndroidApplicationConfiguration();
+		// Nothing reads the sensors, and they drain the battery for as long as they are listened to
+		config.useAccelerometer = false;
+		config.useCompass = false;
 		initialize(new VolleyBall(), config);
 	}
 }
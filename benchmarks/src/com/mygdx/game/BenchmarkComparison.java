@@ -0,0 +1,82 @@
+package com.mygdx.game;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+/**
+ * Compares two JMH result files written by the jmh task and prints, per benchmark, the time per operation
+ * and the bytes allocated per operation before and after.
+ *
+ * Usage: BenchmarkComparison base.json head.json
+ */
+public class BenchmarkComparison {
+    static class Result {
+        double score, error, allocatedBytes = Double.NaN;
+        String unit;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison base.json head.json");
+            System.exit(1);
+        }
+        Map<String, Result> base = read(new File(args[0]));
+        Map<String, Result> head = read(new File(args[1]));
+
+        System.out.println(String.format("%-50s %14s %14s %8s %12s %12s", "benchmark", "base", "head", "change",
+                "base B/op", "head B/op"));
+        for (Map.Entry<String, Result> entry : head.entrySet()) {
+            Result after = entry.getValue();
+            Result before = base.get(entry.getKey());
+            String change = before == null ? "new" : String.format("%+.1f%%", (after.score / before.score - 1) * 100);
+            System.out.println(String.format("%-50s %14s %14s %8s %12s %12s", entry.getKey(),
+                    before == null ? "-" : format(before), format(after), change,
+                    before == null ? "-" : formatBytes(before), formatBytes(after)));
+        }
+    }
+
+    static String format(Result result) {
+        return String.format("%.1f %s", result.score, result.unit);
+    }
+
+    // The allocation figure is missing when the gc profiler couldn't read the JVM's allocation counters
+    static String formatBytes(Result result) {
+        return Double.isNaN(result.allocatedBytes) ? "-" : String.format("%.1f", result.allocatedBytes);
+    }
+
+    static Map<String, Result> read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        JsonValue root;
+        try {
+            root = new JsonReader().parse(in);
+        } finally {
+            in.close();
+        }
+
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+        for (JsonValue run = root.child; run != null; run = run.next) {
+            Result result = new Result();
+            JsonValue primary = run.get("primaryMetric");
+            result.score = primary.getDouble("score");
+            result.error = primary.getDouble("scoreError", 0);
+            result.unit = primary.getString("scoreUnit");
+
+            // The gc profiler reports normalized allocation under a key ending in "gc.alloc.rate.norm"
+            JsonValue secondary = run.get("secondaryMetrics");
+            if (secondary != null)
+                for (JsonValue metric = secondary.child; metric != null; metric = metric.next)
+                    if (metric.name.endsWith("gc.alloc.rate.norm"))
+                        result.allocatedBytes = metric.getDouble("score");
+
+            String name = run.getString("benchmark");
+            results.put(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1), result);
+        }
+        return results;
+    }
+}
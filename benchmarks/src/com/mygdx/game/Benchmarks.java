@@ -0,0 +1,18 @@
+package com.mygdx.game;
+
+/**
+ * Shared fixtures for the benchmarks.
+ */
+class Benchmarks {
+    // Match events are not part of what is measured
+    static final MatchListener NO_EVENTS = new MatchListener() {
+        @Override
+        public void ballHitHippo(boolean rightHippo) {}
+        @Override
+        public void pointScored(boolean rightHippo) {}
+        @Override
+        public void gameWon(boolean rightHippo) {}
+        @Override
+        public void roundStarted(int roundCount) {}
+    };
+}
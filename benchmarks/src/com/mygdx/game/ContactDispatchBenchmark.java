@@ -0,0 +1,65 @@
+package com.mygdx.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Cost of the match's ContactListener deciding what a contact means (landing, hippo touch, airborne state).
+ * The contacts are real Box2D contacts from a world with both hippos standing on the ground and the ball
+ * resting on the left hippo; results are per dispatched contact.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContactDispatchBenchmark {
+    MatchSimulation match;
+    Contact[] contacts;
+
+    @Setup
+    public void setUp() {
+        match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, Benchmarks.NO_EVENTS);
+        match.startNewGame(false);
+        match.resume();
+
+        // Let the ball fall onto the left hippo and settle
+        match.getBall().setTransform(match.getHippo(MatchInput.LEFT_HIPPO).getPosition().x, match.getHippo(MatchInput.LEFT_HIPPO).getPosition().y + 1f, 0f);
+        for (int i = 0; i < 60; i++)
+            match.world.step(MatchSimulation.TIME_STEP, match.VELOCITY_ITERATIONS, match.POSITION_ITERATIONS);
+
+        // The contact objects stay valid as long as the world isn't stepped again
+        Array<Contact> touching = new Array<Contact>();
+        for (Contact contact : match.world.getContactList())
+            if (contact.isTouching())
+                touching.add(contact);
+        if (touching.size == 0)
+            throw new IllegalStateException("No touching contacts to dispatch");
+        contacts = touching.toArray(Contact.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        match.dispose();
+    }
+
+    @Benchmark
+    public int beginContact() {
+        for (Contact contact : contacts)
+            match.contactListener.beginContact(contact);
+        return contacts.length;
+    }
+
+    @Benchmark
+    public int endContact() {
+        for (Contact contact : contacts)
+            match.contactListener.endContact(contact);
+        return contacts.length;
+    }
+}
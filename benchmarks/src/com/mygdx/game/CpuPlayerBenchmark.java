@@ -0,0 +1,66 @@
+package com.mygdx.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import com.mygdx.game.headless.ChaseBot;
+
+/**
+ * Cost of the computer opponent per tick, which has to stay far below the 50 us it is allowed so it can
+ * run in batch matches too. The ball is taken from the middle of a rally, in flight towards the net.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CpuPlayerBenchmark {
+    static final int RALLY_TICKS = 90;
+
+    MatchSimulation match;
+    MatchInput input;
+    CpuPlayer cpu;
+    float x, y, vx, vy, restitution;
+
+    @Setup
+    public void setUp() {
+        match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, Benchmarks.NO_EVENTS);
+        match.setSeed(1);
+        match.startNewGame(false);
+        match.isNextRoundStarting = false;
+        match.resume();
+        input = new MatchInput();
+        ChaseBot leftBot = new ChaseBot(MatchInput.LEFT_HIPPO, 1);
+        cpu = new CpuPlayer(MatchInput.RIGHT_HIPPO, CpuPlayer.Level.HARD, match, 2);
+        for (int i = 0; i < RALLY_TICKS; i++) {
+            leftBot.update(match, input);
+            cpu.update(match, input);
+            match.tick(input);
+        }
+        x = match.getBall().getPosition().x;
+        y = match.getBall().getPosition().y;
+        vx = match.getBall().getLinearVelocity().x;
+        vy = match.getBall().getLinearVelocity().y;
+        restitution = match.getBall().getFixtureList().first().getRestitution();
+    }
+
+    @TearDown
+    public void tearDown() {
+        match.dispose();
+    }
+
+    @Benchmark
+    public boolean predict() {
+        return cpu.predictor.predict(x, y, vx, vy, restitution, cpu.interceptY);
+    }
+
+    // A whole decision: reading the bodies, the prediction and the key presses
+    @Benchmark
+    public int update() {
+        cpu.update(match, input);
+        return input.bits;
+    }
+}
@@ -0,0 +1,52 @@
+package com.mygdx.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.mygdx.game.headless.HeadlessGdx;
+
+/**
+ * Cost of a whole GameScreen frame (physics, sprite sync, batching, upscaling, HUD text) with the GL calls stubbed
+ * out, and of the sprite sync on its own. Runs with the working directory set to android/assets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameBenchmark {
+    VolleyBall game;
+    GameScreen screen;
+
+    @Setup
+    public void setUp() {
+        HeadlessGdx.init(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, MatchSimulation.TIME_STEP);
+        game = new VolleyBall();
+        game.assets = new AssetManager();
+        Assets.queueGameAssets(game.assets);
+        game.assets.finishLoading();
+        screen = new GameScreen(game);
+    }
+
+    @TearDown
+    public void tearDown() {
+        screen.dispose();
+        game.assets.dispose();
+    }
+
+    @Benchmark
+    public void fullFrame() {
+        screen.render(MatchSimulation.TIME_STEP);
+    }
+
+    @Benchmark
+    public void spriteSync() {
+        for (int entity = 0; entity < screen.match.entities.count; entity++)
+            if (screen.sprites[entity] != null)
+                screen.syncSprite(entity);
+    }
+}
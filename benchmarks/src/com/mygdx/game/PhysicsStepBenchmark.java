@@ -0,0 +1,90 @@
+package com.mygdx.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import com.mygdx.game.headless.ChaseBot;
+
+/**
+ * Cost of advancing the match by one physics tick, with the real hippo, ball, net and edge fixtures.
+ * Each invocation replays a short rally from the same serve, so every run measures the same mix of
+ * flight, contacts and resting bodies; results are reported per tick.
+ *
+ * Runs with every party mode layout, to check that a tick costs about the same per hippo and ball
+ * whatever their number. The bots only play the first hippo of each side; the others stand and get hit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PhysicsStepBenchmark {
+    static final int RALLY_TICKS = 120;
+
+    @Param({ "1", "2" })
+    int hipposPerSide;
+    @Param({ "1", "3" })
+    int ballCount;
+
+    MatchSimulation match;
+    MatchInput input;
+    ChaseBot leftBot, rightBot;
+    MatchChecksums checksums;
+
+    @Setup
+    public void setUp() {
+        MatchCalibration calibration = new MatchCalibration();
+        calibration.hipposPerSide = hipposPerSide;
+        calibration.ballCount = ballCount;
+        match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, calibration, Benchmarks.NO_EVENTS);
+        match.setSeed(1);
+        match.startNewGame(false);
+        input = new MatchInput();
+        leftBot = new ChaseBot(MatchInput.LEFT_HIPPO, 1);
+        rightBot = new ChaseBot(MatchInput.RIGHT_HIPPO, 2);
+        checksums = new MatchChecksums(1 << 10);
+        checksums.reset(match);
+    }
+
+    @TearDown
+    public void tearDown() {
+        match.dispose();
+    }
+
+    // Put the hippos back on their marks and drop the ball onto the left hippo, skipping the round countdown
+    void serve() {
+        match.startNewRound(false);
+        match.isNextRoundStarting = false;
+        match.resume();
+        input.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RALLY_TICKS)
+    public void worldStep() {
+        serve();
+        for (int i = 0; i < RALLY_TICKS; i++)
+            match.world.step(MatchSimulation.TIME_STEP, match.VELOCITY_ITERATIONS, match.POSITION_ITERATIONS);
+    }
+
+    // A full match tick: bot input, held-key forces, world step and the rule checks
+    @Benchmark
+    @OperationsPerInvocation(RALLY_TICKS)
+    public void matchTick() {
+        serve();
+        for (int i = 0; i < RALLY_TICKS; i++) {
+            leftBot.update(match, input);
+            rightBot.update(match, input);
+            match.tick(input);
+        }
+    }
+
+    // What a match recording its checksums adds to each tick, hashing wherever the last rally left the bodies
+    @Benchmark
+    public int checksum() {
+        return checksums.record(match);
+    }
+}
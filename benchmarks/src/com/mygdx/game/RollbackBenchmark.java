@@ -0,0 +1,93 @@
+package com.mygdx.game;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import com.mygdx.game.headless.ChaseBot;
+
+/**
+ * What an online match pays for rollback: saving the match state every tick, restoring it, and the worst
+ * case of restoring and re-simulating the whole prediction window, which has to stay well inside
+ * RollbackSession.ROLLBACK_BUDGET_NANOS. The match rebuilds its world every tick like an online one does,
+ * and the state is taken from the middle of a rally so the ball is in flight.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RollbackBenchmark {
+    static final int RALLY_TICKS = 90;
+
+    MatchSimulation match;
+    MatchInput input;
+    ChaseBot leftBot, rightBot;
+    final ByteBuffer state = ByteBuffer.allocate(MatchSimulation.getStateSize(1, 1));
+    final ByteBuffer scratch = ByteBuffer.allocate(MatchSimulation.getStateSize(1, 1));
+    final int[] inputs = new int[RollbackSession.MAX_PREDICTION_TICKS];
+
+    @Setup
+    public void setUp() {
+        match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, Benchmarks.NO_EVENTS);
+        match.setRebuildingWorld(true);
+        match.setSeed(1);
+        match.startNewGame(false);
+        match.isNextRoundStarting = false;
+        match.resume();
+        input = new MatchInput();
+        leftBot = new ChaseBot(MatchInput.LEFT_HIPPO, 1);
+        rightBot = new ChaseBot(MatchInput.RIGHT_HIPPO, 2);
+        for (int i = 0; i < RALLY_TICKS; i++)
+            tickWithBots();
+        state.clear();
+        match.saveState(state);
+        // The inputs the window is re-simulated with
+        for (int i = 0; i < inputs.length; i++) {
+            tickWithBots();
+            inputs[i] = input.bits;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        match.dispose();
+    }
+
+    void tickWithBots() {
+        leftBot.update(match, input);
+        rightBot.update(match, input);
+        match.tick(input);
+    }
+
+    @Benchmark
+    public ByteBuffer saveState() {
+        scratch.clear();
+        match.saveState(scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public MatchSimulation restoreState() {
+        state.rewind();
+        match.restoreState(state);
+        return match;
+    }
+
+    // Restore and re-simulate MAX_PREDICTION_TICKS ticks, saving the state before each like the session does
+    @Benchmark
+    public MatchSimulation rollbackWindow() {
+        state.rewind();
+        match.restoreState(state);
+        for (int i = 0; i < inputs.length; i++) {
+            scratch.clear();
+            match.saveState(scratch);
+            input.bits = inputs[i];
+            match.tick(input);
+        }
+        return match;
+    }
+}
@@ -0,0 +1,100 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+/**
+ * Names of the game's assets (the sprites and backgrounds are generated by the packAssets task in
+ * core/build.gradle) and the order they are queued on the shared AssetManager.
+ */
+public class Assets {
+    // All sprites are packed into one atlas; regions are named after their source images
+    public static final String SPRITES = "sprites.atlas";
+    public static final String HIPPO_RED = "Hippored";
+    public static final String HIPPO_BLUE = "Hippoblue";
+    public static final String BALL = "volleyball";
+    public static final String NET = "Net";
+
+    // Backgrounds
+    public static final String BEACH_BACKGROUND = "beach";
+    public static final String MENU_BACKGROUND = "mainscreen";
+
+    // Sounds and music. The WAV effects are shrunk to mono 22 kHz by packAssets.
+    public static final String GRUNT_SOUND = "sounds/bgrunt.wav";
+    public static final String WHOOSH_SOUND_1 = "sounds/w1.wav";
+    public static final String WHOOSH_SOUND_2 = "sounds/w2.wav";
+    public static final String SERVE_SOUND = "sounds/serve.wav";
+    public static final String ROAR_SOUND = "chew_roar.mp3";
+    public static final String MUSIC = "Sumo_music.mp3";
+
+    // Everything a menu screen needs before it can be shown
+    public static String[] menuAssets() {
+        return new String[] { backgroundPath(MENU_BACKGROUND) };
+    }
+
+    // Everything the game screen needs; loaded in the background while the menus are up
+    public static String[] gameAssets() {
+        return new String[] { SPRITES, backgroundPath(BEACH_BACKGROUND),
+                GRUNT_SOUND, WHOOSH_SOUND_1, WHOOSH_SOUND_2, SERVE_SOUND, ROAR_SOUND, MUSIC };
+    }
+
+    // Android gets the ETC1 compressed variant of a background; everything else gets the mipmapped JPEG
+    static boolean useCompressedBackgrounds() {
+        return Gdx.app.getType() == Application.ApplicationType.Android;
+    }
+
+    public static String backgroundPath(String name) {
+        return "backgrounds/" + name + (useCompressedBackgrounds() ? ".etc1" : ".jpg");
+    }
+
+    // The asset manager works through its queue in order, so the menu assets are queued first
+    public static void queueMenuAssets(AssetManager manager) {
+        queueBackground(manager, MENU_BACKGROUND);
+    }
+
+    public static void queueGameAssets(AssetManager manager) {
+        manager.load(SPRITES, TextureAtlas.class);
+        queueBackground(manager, BEACH_BACKGROUND);
+        manager.load(GRUNT_SOUND, Sound.class);
+        manager.load(WHOOSH_SOUND_1, Sound.class);
+        manager.load(WHOOSH_SOUND_2, Sound.class);
+        manager.load(SERVE_SOUND, Sound.class);
+        manager.load(ROAR_SOUND, Sound.class);
+        manager.load(MUSIC, Music.class);
+    }
+
+    static void queueBackground(AssetManager manager, String name) {
+        TextureLoader.TextureParameter parameter = new TextureLoader.TextureParameter();
+        if (useCompressedBackgrounds()) {
+            parameter.minFilter = Texture.TextureFilter.Linear;
+        } else {
+            parameter.genMipMaps = true;
+            parameter.minFilter = Texture.TextureFilter.MipMapLinearLinear;
+        }
+        parameter.magFilter = Texture.TextureFilter.Linear;
+        manager.load(backgroundPath(name), Texture.class, parameter);
+    }
+
+    public static Texture getBackground(AssetManager manager, String name) {
+        return manager.get(backgroundPath(name), Texture.class);
+    }
+
+    // Fraction of the given assets that are ready to use, 0 to 1
+    public static float progress(AssetManager manager, String[] names) {
+        int loaded = 0;
+        for (String name : names)
+            if (manager.isLoaded(name))
+                loaded++;
+        return (float)loaded / names.length;
+    }
+
+    public static boolean isLoaded(AssetManager manager, String[] names) {
+        return progress(manager, names) == 1f;
+    }
+}
@@ -0,0 +1,199 @@
+package com.mygdx.game;
+
+/**
+ * Works out where the ball will be when it next comes down through a given height, without stepping the
+ * physics. Between contacts the ball flies on a parabola under the world's gravity, so each leg of the
+ * flight is solved in closed form; bounces off the walls, the ceiling and the net box are reflected with
+ * Box2D's restitution (the larger of the two fixtures') and the next leg is solved from there.
+ *
+ * Spin, friction and the hippos are ignored, so a prediction is only good until the next hippo touch.
+ * A prediction costs well under a microsecond and allocates nothing.
+ */
+public class BallPredictor {
+    static final int MAX_BOUNCES = 8;
+    static final float MAX_TIME = 6f; // Seconds of flight to look ahead before giving up
+    static final float EPSILON = 1e-5f; // Ignore the boundary the ball is bouncing off at the start of a leg
+
+    // What ends a leg of the flight
+    static final int TARGET = 0, WALL = 1, CEILING = 2, NET = 3;
+
+    final float gravity; // Vertical, in m/s^2
+    final float halfStep; // Box2D moves by the velocity after gravity is applied; see predict()
+    // Limits for the ball's center, i.e. the boundaries moved in (or the net grown) by the ball's radius
+    final float wallX, ceilingY, groundY;
+    final float netHalfWidth, netTopY;
+    final float netCornerX, netCornerY; // The net's real top corners, which the ball rolls around
+    final float radius;
+    final float netRestitution;
+
+    // Where and when the ball came down through the height given to the last predict() call
+    public float x, y, time;
+    public int bounces;
+
+    // Where bounceOffNet() leaves the ball
+    float bounceX, bounceY, bounceVx, bounceVy, bounceTime;
+
+    public BallPredictor(MatchSimulation match) {
+        float ppm = MatchSimulation.PIXELS_TO_METERS;
+        radius = MatchSimulation.BALL_DIAMETER / 2 / ppm;
+        gravity = match.world.getGravity().y;
+        halfStep = gravity * MatchSimulation.TIME_STEP / 2;
+        // The same edges MatchSimulation builds: the ground is raised 50 pixels for the score counters
+        wallX = match.fieldWidth / ppm / 2 - radius;
+        ceilingY = match.fieldHeight / ppm / 2 - radius;
+        groundY = -(match.fieldHeight - 50f) / ppm / 2 + radius;
+        netHalfWidth = MatchSimulation.NET_WIDTH * MatchSimulation.NET_SCALE / ppm / 2 + radius;
+        netCornerX = MatchSimulation.NET_WIDTH * MatchSimulation.NET_SCALE / ppm / 2;
+        netCornerY = (MatchSimulation.NET_Y + MatchSimulation.NET_HEIGHT * MatchSimulation.NET_SCALE) / ppm;
+        netTopY = netCornerY + radius;
+        netRestitution = match.NET_RESTITUTION;
+    }
+
+    /**
+     * Follows the ball from the given position and velocity (meters, m/s) until its center comes down
+     * through targetY. Returns false if it doesn't within MAX_TIME or MAX_BOUNCES; otherwise the result
+     * is in x, y and time. The ground is never crossed, so a targetY below it is raised to it.
+     */
+    public boolean predict(float px, float py, float vx, float vy, float restitution, float targetY) {
+        targetY = Math.max(targetY, groundY);
+        // Box2D applies gravity to the velocity before moving the ball, so after n steps the ball is where
+        // a continuous parabola starting with half a step's worth of extra gravity would put it
+        vy += halfStep;
+        float wallBounce = restitution;
+        float netBounce = Math.max(restitution, netRestitution);
+        float elapsed = 0f;
+
+        for (bounces = 0; bounces <= MAX_BOUNCES; bounces++) {
+            // Earliest of everything the ball can run into on this leg
+            float s = descendTime(py, vy, targetY);
+            int event = TARGET;
+
+            float wall = vx > 0 ? (wallX - px) / vx : vx < 0 ? (-wallX - px) / vx : Float.MAX_VALUE;
+            if (wall > EPSILON && wall < s) {
+                s = wall;
+                event = WALL;
+            }
+
+            float ceiling = riseTime(py, vy, ceilingY);
+            if (ceiling > EPSILON && ceiling < s) {
+                s = ceiling;
+                event = CEILING;
+            }
+
+            // The net, grown by the ball's radius: its sides if the ball is still below the top when it gets
+            // there, or its top if the ball comes down onto it
+            float side = Float.MAX_VALUE;
+            if (px <= -netHalfWidth && vx > 0)
+                side = (-netHalfWidth - px) / vx;
+            else if (px >= netHalfWidth && vx < 0)
+                side = (netHalfWidth - px) / vx;
+            if (side > EPSILON && side < s && heightAt(py, vy, side) < netTopY) {
+                s = side;
+                event = NET;
+            }
+            if (py >= netTopY) {
+                float top = descendTime(py, vy, netTopY);
+                if (top > EPSILON && top < s && Math.abs(px + vx * top) < netHalfWidth) {
+                    s = top;
+                    event = NET;
+                }
+            }
+
+            if (s == Float.MAX_VALUE || elapsed + s > MAX_TIME)
+                return false;
+
+            // Move along the leg to the event
+            elapsed += s;
+            px += vx * s;
+            py = heightAt(py, vy, s);
+            vy += gravity * s;
+
+            switch (event) {
+                case TARGET:
+                    x = px;
+                    y = py;
+                    time = elapsed;
+                    return true;
+                case WALL:
+                    vx = -vx * wallBounce;
+                    break;
+                case CEILING:
+                    vy = -vy * wallBounce;
+                    break;
+                case NET:
+                    bounceOffNet(px, py, vx, vy, netBounce);
+                    px = bounceX;
+                    py = bounceY;
+                    vx = bounceVx;
+                    vy = bounceVy;
+                    elapsed += bounceTime;
+                    break;
+            }
+        }
+        return false;
+    }
+
+    // The ball has just reached the grown net box. Off its flat side or top it bounces straight back, but
+    // near a corner the real net is rounded by the ball's radius: the ball may slip past the corner, or
+    // glance off it at an angle. Over that short distance the flight is close enough to a straight line
+    // to solve the hit against the corner circle directly.
+    void bounceOffNet(float px, float py, float vx, float vy, float restitution) {
+        bounceX = px;
+        bounceY = py;
+        bounceVx = vx;
+        bounceVy = vy;
+        bounceTime = 0f;
+        float cx = px < 0 ? -netCornerX : netCornerX;
+        float dx = px - cx, dy = py - netCornerY;
+        if (dy < 0) {
+            bounceVx = -vx * restitution; // Flat side
+            return;
+        }
+        if (Math.abs(px) <= netCornerX) {
+            bounceVy = -vy * restitution; // Flat top
+            return;
+        }
+        // Earliest t with |d + v t| = radius
+        float a = vx * vx + vy * vy, b = 2 * (dx * vx + dy * vy), c = dx * dx + dy * dy - radius * radius;
+        float d = b * b - 4 * a * c;
+        if (a == 0 || d < 0)
+            return; // Slips past the corner
+        float t = Math.max(0f, (-b - (float)Math.sqrt(d)) / (2 * a));
+        if (-b + (float)Math.sqrt(d) < 0)
+            return; // The corner is behind it
+        bounceX = px + vx * t;
+        bounceY = py + vy * t;
+        bounceTime = t;
+        float nx = (bounceX - cx) / radius, ny = (bounceY - netCornerY) / radius;
+        float normalSpeed = vx * nx + vy * ny;
+        if (normalSpeed >= 0)
+            return;
+        bounceVx = vx - (1 + restitution) * normalSpeed * nx;
+        bounceVy = vy - (1 + restitution) * normalSpeed * ny;
+    }
+
+    float heightAt(float py, float vy, float s) {
+        return py + vy * s + gravity * s * s / 2;
+    }
+
+    // Time until the ball comes down through the given height: the later root of the parabola
+    float descendTime(float py, float vy, float height) {
+        float a = gravity / 2, b = vy, c = py - height;
+        float d = b * b - 4 * a * c;
+        if (d < 0)
+            return Float.MAX_VALUE;
+        float s = (-b - (float)Math.sqrt(d)) / (2 * a); // gravity < 0, so this is the later root
+        return s > 0 ? s : Float.MAX_VALUE;
+    }
+
+    // Time until the ball goes up through the given height, if it is below it and rising high enough
+    float riseTime(float py, float vy, float height) {
+        if (py >= height || vy <= 0)
+            return Float.MAX_VALUE;
+        float a = gravity / 2, b = vy, c = py - height;
+        float d = b * b - 4 * a * c;
+        if (d < 0)
+            return Float.MAX_VALUE;
+        return (-b + (float)Math.sqrt(d)) / (2 * a);
+    }
+}
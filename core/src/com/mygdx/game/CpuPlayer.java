@@ -0,0 +1,156 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * A computer opponent. It plays through MatchInput like a player on the keyboard would, so its matches
+ * record and replay like any other. Every tick it predicts where the ball will come down to head height
+ * on its side (see BallPredictor), walks to just behind that spot so the ball gets knocked towards the
+ * net, and jumps into the ball as it arrives.
+ *
+ * The levels differ only in how late the player sees the ball and how far off its guess of the landing
+ * spot is; the work per tick is the same for all of them.
+ */
+public class CpuPlayer {
+    public enum Level {
+        EASY(40, 1.0f),
+        NORMAL(16, 0.45f),
+        HARD(3, 0.05f);
+
+        final int reactionTicks; // The player acts on the ball as it was this many ticks ago
+        final float aimNoise; // Standard deviation of the error in its guess of the landing spot, in meters
+
+        Level(int reactionTicks, float aimNoise) {
+            this.reactionTicks = reactionTicks;
+            this.aimNoise = aimNoise;
+        }
+    }
+
+    static final int HISTORY = 64; // Power of two, more than the slowest reaction
+    static final float HOME_X = 2.5f; // Distance from the net the hippo waits at, in meters
+    static final float HIT_OFFSET = 0.45f; // Stand this far behind the ball so it gets knocked towards the net
+    static final float WALL_HIT_FRACTION = 1.1f; // Ball distance from the hippo's center, in half widths, at the wall
+    static final float DEAD_ZONE = 0.08f; // Don't move if the hippo is this close to where it wants to be
+    static final float JUMP_LEAD_TIME = 0.3f; // Jump when the ball is this many seconds from head height
+    static final float JUMP_REACH = 0.6f; // and the hippo is at most this far from where it wants to be
+    static final int JUMP_HOLD_TICKS = 20; // Hold the jump key this long before letting go
+    static final float SETTLED_VELOCITY = 1f; // Ball vertical speed below which it counts as resting on the hippo
+    static final float TRAJECTORY_CHANGE = 0.01f; // Velocity change (m/s) beyond gravity that means the ball was hit
+
+    final int hippo;
+    final float side; // -1 for the left hippo, 1 for the right hippo
+    final Level level;
+    final RandomXS128 random;
+    final BallPredictor predictor;
+    final float interceptY; // Ball center height when it touches the head of a hippo standing on the ground
+    final float wallX; // Furthest from the net the hippo's center can get
+    final float hippoHalfWidth;
+
+    // What the ball did over the last HISTORY ticks, to act on it with a delay
+    final float[] ballX = new float[HISTORY], ballY = new float[HISTORY];
+    final float[] ballVx = new float[HISTORY], ballVy = new float[HISTORY];
+    int observed = 0; // Ticks recorded since the ball was last put in play
+
+    float aimError;
+    float seenVx, seenVy; // Velocity of the ball as last acted on, to notice when it changes course
+    int jumpTicks = 0;
+
+    public CpuPlayer(int hippo, Level level, MatchSimulation match, long seed) {
+        this.hippo = hippo;
+        this.side = hippo == MatchInput.RIGHT_HIPPO ? 1f : -1f;
+        this.level = level;
+        this.random = new RandomXS128(seed);
+        predictor = new BallPredictor(match);
+        float ppm = MatchSimulation.PIXELS_TO_METERS;
+        float hippoHeight = MatchSimulation.HIPPO_HEIGHT * MatchSimulation.HIPPO_SCALE / ppm;
+        hippoHalfWidth = MatchSimulation.HIPPO_WIDTH * MatchSimulation.HIPPO_SCALE / ppm / 2;
+        interceptY = predictor.groundY + hippoHeight;
+        wallX = match.fieldWidth / ppm / 2 - hippoHalfWidth - DEAD_ZONE;
+    }
+
+    // Decide this tick's buttons for the hippo and write them into the shared input
+    public void update(MatchSimulation match, MatchInput input) {
+        Body body = match.getHippo(hippo);
+        Vector2 hippoPos = body.getPosition();
+        Body ball = match.getBall();
+
+        if (!match.isBallInPlay()) {
+            // Between points: forget the last rally and let go of everything. The hippos can't move until the
+            // next serve, and a key already held then would need to be pressed again to do anything.
+            observed = 0;
+            jumpTicks = 0;
+            input.set(hippo, MatchInput.LEFT, false);
+            input.set(hippo, MatchInput.RIGHT, false);
+            input.set(hippo, MatchInput.UP, false);
+            return;
+        }
+
+        // Remember the ball as it is now; act on it as it was reactionTicks ago
+        if (observed == 0) {
+            seenVx = ball.getLinearVelocity().x;
+            seenVy = ball.getLinearVelocity().y;
+            aimError = nextAimError();
+        }
+        int now = observed & (HISTORY - 1);
+        ballX[now] = ball.getPosition().x;
+        ballY[now] = ball.getPosition().y;
+        ballVx[now] = ball.getLinearVelocity().x;
+        ballVy[now] = ball.getLinearVelocity().y;
+        observed++;
+        int delay = Math.min(level.reactionTicks, observed - 1);
+        int seen = (observed - 1 - delay) & (HISTORY - 1);
+        float x = ballX[seen], y = ballY[seen], vx = ballVx[seen], vy = ballVy[seen];
+
+        // A new guess of the landing spot whenever the ball changes course
+        float expectedVy = seenVy + predictor.gravity * MatchSimulation.TIME_STEP;
+        if (Math.abs(vx - seenVx) > TRAJECTORY_CHANGE || Math.abs(vy - expectedVy) > TRAJECTORY_CHANGE)
+            aimError = nextAimError();
+        seenVx = vx;
+        seenVy = vy;
+
+        float targetX = side * HOME_X;
+        boolean isComing = false;
+        float timeToHit = 0f;
+        float restitution = ball.getFixtureList().first().getRestitution();
+        if (predictor.predict(x, y, vx, vy, restitution, interceptY) && predictor.x * side > 0) {
+            targetX = predictor.x + side * HIT_OFFSET + aimError;
+            timeToHit = predictor.time - delay * MatchSimulation.TIME_STEP;
+            isComing = true;
+        }
+
+        // Near the wall the hippo can't get behind the ball. Stand on the net side and catch it on the corner of
+        // the head, which knocks it into the wall and from there back out; a flat hit just bounces it straight
+        // up along the wall for ever.
+        if (Math.abs(targetX) > wallX)
+            targetX = predictor.x - side * hippoHalfWidth * WALL_HIT_FRACTION + aimError;
+
+        // If the ball is sitting on the hippo's head, walk out from under it towards the net
+        Vector2 ballPos = ball.getPosition();
+        if (ballPos.x * side > 0 && Math.abs(ballPos.x - hippoPos.x) < hippoHalfWidth && ballPos.y > hippoPos.y
+                && Math.abs(ball.getLinearVelocity().y) < SETTLED_VELOCITY)
+            targetX = 0f;
+
+        moveTowards(input, hippoPos.x, targetX);
+
+        // Jumps need a fresh press, so hold the key for a while and then release it for at least one tick
+        if (jumpTicks > 0) {
+            jumpTicks--;
+            input.set(hippo, MatchInput.UP, jumpTicks > 0);
+        }
+        else if (isComing && timeToHit < JUMP_LEAD_TIME && Math.abs(hippoPos.x - targetX) < JUMP_REACH) {
+            jumpTicks = JUMP_HOLD_TICKS;
+            input.set(hippo, MatchInput.UP, true);
+        }
+    }
+
+    void moveTowards(MatchInput input, float hippoX, float targetX) {
+        input.set(hippo, MatchInput.RIGHT, hippoX < targetX - DEAD_ZONE);
+        input.set(hippo, MatchInput.LEFT, hippoX > targetX + DEAD_ZONE);
+    }
+
+    float nextAimError() {
+        return (float)random.nextGaussian() * level.aimNoise;
+    }
+}
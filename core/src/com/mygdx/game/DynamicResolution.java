@@ -0,0 +1,134 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+
+/**
+ * An offscreen buffer the match is drawn into at a fraction of the screen's resolution, then scaled up to
+ * the screen. The fraction follows the frame times: whenever a window of frames misses the rate the frames
+ * are paced to on average, the match is drawn with one step fewer pixels, and once the frames have kept up
+ * for a while it tries one step more. A strong device stays at the screen's own resolution; a weak one
+ * gives up sharpness instead of frames.
+ *
+ * Each frame is measured by the time it worked, without any sleep that slowed it down on purpose, as a
+ * share of its period: 1 is a frame that took all the time it had, at 60 or at 30 fps.
+ *
+ * The buffer is created at full resolution whenever the screen changes size, and a lower resolution only
+ * uses its lower left corner, so changing the scale is free: nothing is created or thrown away mid-match.
+ *
+ * A step up that makes the frames miss again doubles the wait before the next try, so a device that sits
+ * right at the edge doesn't flicker between two resolutions.
+ */
+public class DynamicResolution {
+    static final float SLOW_FRAME_LOAD = 1.15f; // Mean share of the period that costs a step
+    static final float FAST_FRAME_LOAD = 1.05f; // Mean share that keeps up; vsync holds a frame that does at 1
+    static final float STALL_FRAME_LOAD = 4f; // Longer frames are loading or GC, not drawing; left out
+    static final int WINDOW_FRAMES = 30; // Frames averaged for each decision
+    static final float MIN_SCALE = 0.5f; // Of the screen's width and height, so a quarter of the pixels
+    static final float SCALE_STEP = 0.125f;
+    static final int MIN_RAISE_WINDOWS = 4; // Windows that have to keep up before a step up
+    static final int MAX_RAISE_WINDOWS = 64;
+
+    FrameBuffer buffer;
+    final TextureRegion region = new TextureRegion(); // The part of the buffer drawn into at the current scale
+    int screenX, screenY, screenWidth, screenHeight; // Where on the screen the buffer is drawn, in pixels
+
+    float scale = 1f;
+    int width, height; // Pixels drawn at the current scale
+
+    // The window of frames being averaged
+    float windowLoad = 0f;
+    int windowFrames = 0;
+    int fastWindows = 0; // Windows in a row that kept up
+    int raiseWindows = MIN_RAISE_WINDOWS; // How many of those it takes to step up
+    boolean wasRaised = false; // The last window was the first at a higher scale
+
+    // Place the buffer on the screen; it is only created again if its size changed
+    public void resize(int x, int y, int width, int height) {
+        screenX = x;
+        screenY = y;
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+            if (buffer != null)
+                buffer.dispose();
+            buffer = new FrameBuffer(Pixmap.Format.RGB888, width, height, false); // No alpha, no depth: it is one opaque layer
+            buffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        }
+        screenWidth = width;
+        screenHeight = height;
+        setScale(scale);
+    }
+
+    // Count the time the frame worked out of the period it had, and change the scale once a window is complete
+    public void update(float workSeconds, float periodSeconds) {
+        if (periodSeconds <= 0f)
+            return; // Drawn on demand, so there was no rate to keep
+        float load = workSeconds / periodSeconds;
+        if (load > STALL_FRAME_LOAD)
+            return;
+        windowLoad += load;
+        if (++windowFrames < WINDOW_FRAMES)
+            return;
+        float mean = windowLoad / windowFrames;
+        windowLoad = 0f;
+        windowFrames = 0;
+        boolean justRaised = wasRaised;
+        wasRaised = false;
+
+        if (mean > SLOW_FRAME_LOAD) {
+            // The step up is what made the frames miss, so wait longer before trying it again
+            if (justRaised)
+                raiseWindows = Math.min(raiseWindows * 2, MAX_RAISE_WINDOWS);
+            fastWindows = 0;
+            setScale(scale - SCALE_STEP);
+        } else if (mean < FAST_FRAME_LOAD) {
+            if (++fastWindows >= raiseWindows && scale < 1f) {
+                fastWindows = 0;
+                wasRaised = true;
+                setScale(scale + SCALE_STEP);
+            }
+        } else {
+            fastWindows = 0;
+        }
+    }
+
+    void setScale(float scale) {
+        this.scale = Math.max(MIN_SCALE, Math.min(1f, scale));
+        width = Math.max(1, Math.round(screenWidth * this.scale));
+        height = Math.max(1, Math.round(screenHeight * this.scale));
+        region.setTexture(buffer.getColorBufferTexture());
+        region.setRegion(0, 0, width, height);
+        region.flip(false, true); // The buffer's rows run bottom up
+    }
+
+    // Draw into the buffer at the current scale until end()
+    public void begin() {
+        buffer.begin();
+        Gdx.gl.glViewport(0, 0, width, height);
+    }
+
+    // Back to the screen, with the viewport over the whole window
+    public void end() {
+        buffer.end();
+    }
+
+    // Stretch what was drawn over the buffer's place on the screen; the batch projects screen pixels
+    public void draw(Batch batch) {
+        batch.draw(region, screenX, screenY, screenWidth, screenHeight);
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public void dispose() {
+        if (buffer != null)
+            buffer.dispose();
+        buffer = null;
+    }
+}
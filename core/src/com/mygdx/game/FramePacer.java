@@ -0,0 +1,132 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Decides how often the next frames are drawn, so the game only spends battery on frames that show
+ * something new. Each frame, whatever is moving says so (animate() for full speed, animateSlowly() for a
+ * screen that only waits on the player) and endFrame() picks the fastest rate anyone asked for:
+ *
+ * - Nobody asked: rendering stops being continuous, and the backend only draws when input comes in or
+ *   invalidate() is called. The menus are static, so they cost nothing while they are up.
+ * - Only slow requests: PAUSED_FPS, e.g. for a paused or finished match, whose timers and sounds still run.
+ * - Otherwise targetFps, which can be lowered to save battery.
+ *
+ * A rate below the display's is kept by sleeping at the end of the frame. At 60 or more there is no sleep:
+ * vsync already holds the frames there, and sleeping as well could miss a vsync and halve the rate.
+ *
+ * The sleep lands in the next frame's delta, so getWorkSeconds() takes it back out: what is left is how
+ * long the device needed for the frame, to hold against getPeriodSeconds().
+ */
+public class FramePacer {
+    public static final int VSYNC_FPS = 60; // What vsync holds the frames to on the devices we target
+    public static final int PAUSED_FPS = 20; // Fast enough that the pause message answers a key at once
+    public static final int BACKGROUND_FPS = 10; // For a desktop window that lost the focus
+    static final int[] TARGET_FPS_CHOICES = { 60, 30 }; // Cycled through by the settings screen
+    static final int REDRAW_FRAMES = 2; // Frames drawn after a change, so both buffers of the swap chain show it
+
+    public int targetFps = VSYNC_FPS;
+
+    // Requests for the next frame, collected during this one
+    boolean isAnimating = false, isAnimatingSlowly = false;
+    int redrawFrames = REDRAW_FRAMES;
+
+    boolean isContinuous = true;
+    long nextFrameNanos = 0; // When the next frame may start, while the rate is below VSYNC_FPS
+    int frameFps = VSYNC_FPS; // The rate the frame now being drawn was paced to; 0 if it was drawn on demand
+    long sleptNanos = 0; // How long the last frame slept at its end, which is part of this frame's delta
+    boolean isInBackground = false; // Between the application's pause() and resume()
+
+    // The next frame should come at full speed
+    public void animate() {
+        isAnimating = true;
+    }
+
+    // The next frame is needed, but PAUSED_FPS is soon enough
+    public void animateSlowly() {
+        isAnimatingSlowly = true;
+    }
+
+    // Something on a static screen changed; draw it a couple of times even though nothing is animating
+    public void invalidate() {
+        redrawFrames = REDRAW_FRAMES;
+        if (!isContinuous)
+            Gdx.graphics.requestRendering();
+    }
+
+    // Called once the frame is drawn: switch continuous rendering on or off, and sleep off the rest of the frame
+    public void endFrame() {
+        int fps = 0;
+        if (isAnimating || redrawFrames > 0)
+            fps = targetFps;
+        else if (isAnimatingSlowly)
+            fps = Math.min(PAUSED_FPS, targetFps);
+        if (redrawFrames > 0)
+            redrawFrames--;
+        isAnimating = false;
+        isAnimatingSlowly = false;
+
+        boolean continuous = fps > 0;
+        if (continuous != isContinuous) {
+            Gdx.graphics.setContinuousRendering(continuous);
+            isContinuous = continuous;
+        }
+        frameFps = fps;
+        sleptNanos = 0;
+        if (fps > 0 && fps < VSYNC_FPS)
+            sleepUntilNextFrame(fps);
+        else
+            nextFrameNanos = 0;
+    }
+
+    // Sleep towards a deadline one period after the last one, so oversleeping on one frame is made up on the next
+    void sleepUntilNextFrame(int fps) {
+        long period = 1000000000L / fps;
+        long now = TimeUtils.nanoTime();
+        long wait = nextFrameNanos - now;
+        if (wait > 0 && wait <= period) {
+            try {
+                Thread.sleep(wait / 1000000L, (int)(wait % 1000000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sleptNanos = TimeUtils.nanoTime() - now; // Oversleeping included
+            nextFrameNanos += period;
+        } else {
+            // Late, or just slowed down: start counting from now instead of catching up
+            nextFrameNanos = now + period;
+        }
+    }
+
+    // The part of the frame's delta the device spent on frames rather than sleeping them off
+    public float getWorkSeconds(float delta) {
+        return Math.max(0f, delta - sleptNanos / 1e9f);
+    }
+
+    // The time the frame now being drawn had; rates above vsync's are held to it anyway. 0 for a frame drawn on demand.
+    public float getPeriodSeconds() {
+        return frameFps == 0 ? 0f : 1f / Math.min(frameFps, VSYNC_FPS);
+    }
+
+    // The backend slows down or stops the frames of an application in the background, so they say nothing either
+    public void pause() {
+        isInBackground = true;
+    }
+
+    public void resume() {
+        isInBackground = false;
+        invalidate();
+    }
+
+    public boolean isInBackground() {
+        return isInBackground;
+    }
+
+    public void nextTargetFps() {
+        int choice = 0;
+        while (choice < TARGET_FPS_CHOICES.length && TARGET_FPS_CHOICES[choice] != targetFps)
+            choice++;
+        targetFps = TARGET_FPS_CHOICES[(choice + 1) % TARGET_FPS_CHOICES.length]; // An unknown rate goes back to the first
+    }
+}
@@ -0,0 +1,188 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Times the phases of each frame: physics, sprite sync, drawing, text and so on. The application starts a
+ * frame, each screen calls lap() as it finishes a phase of its render(), and the time since the previous lap
+ * goes into that phase's histogram. Each lap is one TimeUtils.nanoTime() call and an array increment, so the
+ * timers stay on all the time; only the overlay that shows them costs anything, and only when it is shown.
+ *
+ * Every phase keeps a histogram for the whole session, written out with writeCsv(), and a rolling one over
+ * the last (WINDOW_SLICES - 1) * SLICE_FRAMES frames for the overlay. Times are CPU time on the render thread;
+ * the GPU works behind it, so a slow draw call shows up in whichever phase next waits on the driver.
+ */
+public class FrameProfiler {
+    static final int MAX_PHASES = 16;
+    static final int SLICE_FRAMES = 60; // The overlay is brought up to date once per slice
+    static final int WINDOW_SLICES = 11; // and covers all of these but the one being filled, about ten seconds
+
+    // The time of the whole frame is kept as a phase of its own, always the first
+    public static final int FRAME = 0;
+
+    final String[] names = new String[MAX_PHASES];
+    int phaseCount = 0;
+    final LatencyHistogram[] session = new LatencyHistogram[MAX_PHASES];
+    final LatencyHistogram[][] slices = new LatencyHistogram[MAX_PHASES][WINDOW_SLICES];
+    final LatencyHistogram[] window = new LatencyHistogram[MAX_PHASES]; // Sum of the complete slices, for the overlay
+    int slice = 0; // Slice being filled
+    int sliceFrames = 0;
+    boolean isWindowReady = false; // Set when a slice is complete, until the overlay has picked it up
+
+    long frameStart, lapStart;
+    boolean isFrameStarted = false;
+
+    public boolean isOverlayVisible = false;
+
+    public FrameProfiler() {
+        phase("frame");
+    }
+
+    // The index of the named phase, registered the first time it is asked for. Screens look their phases up
+    // once, when they are created.
+    public int phase(String name) {
+        for (int i = 0; i < phaseCount; i++)
+            if (names[i].equals(name))
+                return i;
+        if (phaseCount == MAX_PHASES)
+            throw new IllegalStateException("Too many frame phases: " + name);
+        int phase = phaseCount++;
+        names[phase] = name;
+        session[phase] = new LatencyHistogram();
+        window[phase] = new LatencyHistogram();
+        for (int i = 0; i < WINDOW_SLICES; i++)
+            slices[phase][i] = new LatencyHistogram();
+        return phase;
+    }
+
+    public void startFrame() {
+        frameStart = lapStart = TimeUtils.nanoTime();
+        isFrameStarted = true;
+    }
+
+    // The given phase took from the previous lap (or the start of the frame) until now
+    public void lap(int phase) {
+        if (!isFrameStarted)
+            return;
+        long now = TimeUtils.nanoTime();
+        record(phase, now - lapStart);
+        lapStart = now;
+    }
+
+    public void endFrame() {
+        if (!isFrameStarted)
+            return;
+        record(FRAME, TimeUtils.nanoTime() - frameStart);
+        isFrameStarted = false;
+        if (++sliceFrames == SLICE_FRAMES)
+            nextSlice();
+    }
+
+    void record(int phase, long nanos) {
+        session[phase].record(nanos);
+        slices[phase][slice].record(nanos);
+    }
+
+    // Start overwriting the oldest slice. The slices are only summed up when the overlay asks for them.
+    void nextSlice() {
+        slice = (slice + 1) % WINDOW_SLICES;
+        for (int phase = 0; phase < phaseCount; phase++)
+            slices[phase][slice].clear();
+        sliceFrames = 0;
+        isWindowReady = true;
+    }
+
+    /**
+     * Writes the recent p50/p99/max of every phase that ran in the last window into out, one line each, in
+     * microseconds. Returns false, and leaves out alone, if nothing has changed since the last call.
+     */
+    public boolean describeWindow(StringBuilder out) {
+        if (!isWindowReady)
+            return false;
+        isWindowReady = false;
+        for (int phase = 0; phase < phaseCount; phase++) {
+            window[phase].clear();
+            for (int i = 0; i < WINDOW_SLICES; i++)
+                if (i != slice)
+                    window[phase].add(slices[phase][i]);
+        }
+        out.setLength(0);
+        out.append("Frame phases, last ").append((WINDOW_SLICES - 1) * SLICE_FRAMES).append(" frames (us)\n");
+        out.append("p50 / p99 / max\n");
+        for (int phase = 0; phase < phaseCount; phase++) {
+            LatencyHistogram histogram = window[phase];
+            if (histogram.getCount() == 0)
+                continue;
+            out.append(names[phase]).append(": ");
+            appendMicros(out, histogram.getPercentile(0.5));
+            out.append(" / ");
+            appendMicros(out, histogram.getPercentile(0.99));
+            out.append(" / ");
+            appendMicros(out, histogram.getMax());
+            out.append('\n');
+        }
+        return true;
+    }
+
+    // Microseconds with one decimal, without going through a float
+    static void appendMicros(StringBuilder out, long nanos) {
+        long tenths = (nanos + 50) / 100;
+        out.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    /**
+     * Writes the session's histograms for offline analysis: a line per phase and non-empty bucket, with the
+     * bucket's range in nanoseconds, its count and the fraction of the phase's samples at or below it. The summary
+     * columns repeat the phase's totals on each of its lines so the file can be filtered without joins.
+     */
+    public void writeCsv(FileHandle file) {
+        Writer writer = file.writer(false, "UTF-8");
+        try {
+            writer.write("phase,samples,mean_us,p50_us,p90_us,p99_us,p999_us,max_us,"
+                    + "bucket_low_ns,bucket_high_ns,bucket_count,cumulative_fraction\n");
+            StringBuilder line = new StringBuilder();
+            for (int phase = 0; phase < phaseCount; phase++) {
+                LatencyHistogram histogram = session[phase];
+                if (histogram.getCount() == 0)
+                    continue;
+                line.setLength(0);
+                line.append(names[phase]).append(',').append(histogram.getCount()).append(',');
+                appendMicros(line, histogram.getMean());
+                line.append(',');
+                appendMicros(line, histogram.getPercentile(0.5));
+                line.append(',');
+                appendMicros(line, histogram.getPercentile(0.9));
+                line.append(',');
+                appendMicros(line, histogram.getPercentile(0.99));
+                line.append(',');
+                appendMicros(line, histogram.getPercentile(0.999));
+                line.append(',');
+                appendMicros(line, histogram.getMax());
+                line.append(',');
+                int summaryLength = line.length();
+
+                long seen = 0;
+                for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+                    int count = histogram.counts[bucket];
+                    if (count == 0)
+                        continue;
+                    seen += count;
+                    line.setLength(summaryLength);
+                    line.append(LatencyHistogram.lowestValueIn(bucket)).append(',');
+                    line.append(Math.min(LatencyHistogram.highestValueIn(bucket), histogram.getMax())).append(',').append(count).append(',').append((double)seen / histogram.getCount());
+                    line.append('\n');
+                    writer.write(line.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't write " + file, e);
+        } finally {
+            try { writer.close(); } catch (IOException ignored) {}
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.mygdx.game;
 
-import java.util.Iterator;
-
 import com.badlogic.gdx.*;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.Color;
@@ -11,234 +9,195 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.viewport.FitViewport;
+import com.badlogic.gdx.utils.viewport.Viewport;
 
 public class GameScreen extends ApplicationAdapter implements Screen, InputProcessor {
     final VolleyBall game;
-    MainMenuScreen mainMenuScreen;
 
-    // Implement pause/resume
-    State state = State.RUN;
+    // The match rules and physics; this screen only feeds it input and draws it
+    MatchSimulation match;
+    final MatchInput input = new MatchInput(); // Key states for the next physics tick
+    final InputQueue keys = new InputQueue(); // Key changes not applied to a tick yet
 
     SpriteBatch batch;
-    Sprite rightHippoSprite, leftHippoSprite, ballSprite, netSprite;
-    Texture hippoRed, hippoBlue, ballImg, netImg;
-    World world;
-    Body rightHippo, leftHippo, ball, net;
-    Body bottomEdge, topEdge, leftEdge, rightEdge;
+    final Sprite[] sprites = new Sprite[MatchEntities.CAPACITY]; // Each hippo's and ball's, by entity; null for the rest
+    Sprite netSprite;
+    TextureAtlas atlas; // Every sprite comes from this one texture, so they are batched into a single draw call
     Box2DDebugRenderer debugRenderer;
-    Matrix4 debugMatrix;
+    final Matrix4 debugMatrix = new Matrix4(); // The camera's projection in meters, for the debug renderer
     OrthographicCamera camera;
+    Viewport viewport; // Fits the field into the window whatever its shape, with bars along the sides that are left over
+    final DynamicResolution resolution = new DynamicResolution(); // What the match is drawn into, scaled up to the viewport
+    final Matrix4 screenMatrix = new Matrix4(); // The window in pixels, for scaling the match up to it
     BitmapFont font;
-    Sound wavSound1, wavSound2, wavSound3, wavSound4, wavSound5;
+    HudText announcementText, statusText, leftScoreText, rightScoreText, replayText, replayHelpText, profileText;
+    // Sound effects go through the mixer, which plays them after the physics step with a limited number of voices
+    final SoundMixer sounds = new SoundMixer(2);
+    final int hitSound, serveSound;
     Texture background;
     Sprite backgroundSprite;
 
-    // Variables for handling hippo movement
-    float rightJumpHeight = 0.0f;
-    float leftJumpHeight = 0.0f;
-    boolean isRightHippoAirborne, isLeftHippoAirborne;
-    boolean isRightHippoFlipped = true, isLeftHippoFlipped = false;
-    boolean isMovementAllowed = true; // Enable/disable player control for hippos
-    boolean upHeld = false, rightHeld = false, leftHeld = false,
-            wHeld = false, dHeld = false, aHeld = false; // Tracking key states for hippo movement
-
-    // Variables for score handling and round transition
-    int leftScore = 0, rightScore = 0; // Tracking score for both players
-    int roundCount = 0; // Tracking number of rounds
-    boolean hasBallLanded = false; // If the ball has already landed once for the round, disregard any other times
-    boolean scoringHippo; // Which hippo will serve next round? False = leftHippo, true = rightHippo
-    boolean isNextRoundStarting; // Do not allow players to pause/resume the game while this is true
-    boolean rightWin = false, leftWin = false; // Which hippo has won the game?
-    float timeSinceLanding = 0f; // Timer until game state is paused and round transitions (players cannot pause/resume during this time)
-    float timeUntilStart; // Timer until the new round starts and game state is resumed (players cannot pause/resume during this time)
-
     // Variables for game rendering
     boolean drawSprite = true, drawDebug = false;
 
-    // Hippo calibrations
-    final float HIPPO_SCALE = 1.25f; // Decides the size of the hippo; density and velocity variables are scaled by this value
-    final float HIPPO_DENSITY = 0f; // Do not use density for hippos; libgdx will assign a mass value which will remain constant when scaling the hippo size up or down
-    final float HIPPO_RESTITUTION = 0.0f; // No bounce on collision with the ground
-    final float HIPPO_FRICTION = 50f; // Very little sliding on the ground
-    final float HORIZONTAL_VELOCITY = 100f; // Velocity when pressing or holding Left/Right or A/D
-    final float MAX_HORIZONTAL_VELOCITY = 6.75f; // Max horizontal speed
-    final float JUMP_VELOCITY = 225f; // Initial velocity when pressing Up or W
-    final float JUMP_HOLD_VELOCITY = 75f; // Incremental velocity when holding Up or W
-    final float MAX_JUMP_HEIGHT = 600f; // Constraint to prevent hippos from perpetually floating up
-
-    // Other calibrations
-    final float BALL_DENSITY = 1.5f; // Less density than the hippos
-    final float BALL_RESTITUTION = 0.7f; // Unlike the hippos, the ball will bounce off everything
-    final float NET_RESTITUTION = 0.75f; // Hippos and ball will retain most of their velocity upon collision with the net
-    final float NET_SCALE = 1f;
-    final float TIME_TO_NEXT_ROUND = 2f; // Wait 2 seconds after scoring to start next round
-    final float PIXELS_TO_METERS = 100f;
-
-    // Entity definitions
-    final short HIPPO_ENTITY = 0x1; // Hippos will not collide with each other
-    final short BALL_ENTITY = 0x1 << 1; // The ball collides with hippos and the world
-    final short WORLD_ENTITY = 0x1 << 2;
+    // Variables for the fixed timestep loop
+    float accumulator = 0f; // Frame time that has not been simulated yet
+    float alpha = 0f; // How far between the previous and current physics state the frame is drawn (0 to 1)
+    // Body states as of the previous physics step, by entity, used to interpolate sprites between steps
+    final float[] prevX = new float[MatchEntities.CAPACITY], prevY = new float[MatchEntities.CAPACITY];
+    final float[] prevAngle = new float[MatchEntities.CAPACITY];
+
+    final int MAX_STEPS_PER_FRAME = 5; // Catch-up cap; on a long stall the simulation slows down instead of spiraling
+
+    static final float HIT_SOUND_COOLDOWN = 0.15f; // Least time between two hit sounds, in seconds
+    static final int MAX_HUD_GLYPHS = 100;
+
+    // Variables for recording and replays
+    final MatchCalibration calibration = new MatchCalibration();
+    ReplayLog recording; // Inputs of the match being played, from its first tick
+    ReplayPlayer replay; // Set while a replay is being watched instead of a live match
+    boolean isReplayFast = false;
+    boolean isSavePending = false; // The match just ended; saved after the ticks, not from inside one
+    boolean isRecordingSaved = false; // Since the match ended, so leaving doesn't write it again
+    static final long FAST_REPLAY_NANOS_PER_FRAME = 10000000L; // Time per frame spent fast-forwarding a replay
+    static final String LAST_REPLAY_FILE = "replays/last.hvr";
+    // The last ticks of the match, hashed; to check another device's playback of the replay, or the other
+    // player's side of an online match, against with DesyncTool
+    final MatchChecksums checksums = new MatchChecksums(CHECKSUM_TICKS);
+    static final int CHECKSUM_TICKS = 1 << 14; // About four and a half minutes
+    static final String LAST_CHECKSUMS_FILE = "replays/last.hvc";
+    static final String ONLINE_CHECKSUMS_FILE = "replays/online.hvc";
+
+    // Set while playing against another player over the network; the session owns the match then
+    RollbackSession online;
+
+    CpuPlayer cpu; // Plays the blue hippo when the computer is the opponent
+
+    // The live match so far, for its entry in the match history
+    int matchHits;
+    int pointStreak; // Points in a row by the side that scored last
+    boolean isStreakRight;
+    int longestLeftStreak, longestRightStreak;
+
+    // Phases of render() timed by the frame profiler, and the overlay's text as last built
+    final int inputLatencyPhase, physicsPhase, soundPhase, spriteSyncPhase, spritesPhase, debugPhase, upscalePhase, textPhase,
+            overlayPhase, flushPhase;
+    final StringBuilder profileDescription = new StringBuilder();
+
+    // Sound and sprite updates for whichever match is running, live or replayed
+    final MatchListener events = new MatchListener() {
+        @Override
+        public void ballHitHippo(boolean rightHippo) {
+            // Hippo contact with ball plays one of the hit sounds
+            sounds.request(hitSound);
+            if (replay == null)
+                matchHits++;
+            spectatorEvent(SpectatorStream.HIT);
+        }
+
+        @Override
+        public void pointScored(boolean rightHippo) {
+            if (replay == null)
+                countPoint(rightHippo);
+            spectatorEvent(SpectatorStream.POINT);
+        }
+
+        @Override
+        public void gameWon(boolean rightHippo) {
+            if (replay == null) {
+                isSavePending = true;
+                saveResult(rightHippo);
+            }
+            spectatorEvent(SpectatorStream.GAME_OVER);
+        }
+
+        @Override
+        public void roundStarted(int roundCount) {
+            if (recording != null && replay == null)
+                recording.roundStarted(roundCount);
+            sounds.request(serveSound);
+            spectatorEvent(SpectatorStream.ROUND);
+            // The bodies were teleported, so don't let the sprites slide over from where they used to be
+            savePreviousState();
+            accumulator = 0f;
+            alpha = 0f;
+        }
+    };
 
     public GameScreen(final VolleyBall game) {
         this.game = game;
+        FrameProfiler profiler = game.profiler;
+        inputLatencyPhase = profiler.phase("key to tick"); // Not a part of the frame: from a key press to its tick
+        physicsPhase = profiler.phase("physics");
+        soundPhase = profiler.phase("sounds");
+        spriteSyncPhase = profiler.phase("sprite sync");
+        spritesPhase = profiler.phase("sprites");
+        debugPhase = profiler.phase("debug render");
+        upscalePhase = profiler.phase("upscale");
+        textPhase = profiler.phase("text");
+        overlayPhase = profiler.phase("profile overlay");
+        flushPhase = profiler.phase("batch flush");
+
+        // The field is always the same size; the viewport fits it to whatever size the window is
+        match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, calibration, events);
 
         batch = new SpriteBatch();
-        hippoRed = new Texture("Hippored.png");
-        hippoBlue = new Texture("Hippoblue.png");
-        ballImg = new Texture("volleyball.png");
-        netImg = new Texture("Net.png");
-        leftHippoSprite = new Sprite(hippoRed); // Faces towards the right by default
-        leftHippoSprite.setScale(HIPPO_SCALE);
-        rightHippoSprite = new Sprite(hippoBlue);
-        rightHippoSprite.flip(true,false); // Flip horizontally so the right hippo will face towards the left by default
-        rightHippoSprite.setScale(HIPPO_SCALE);
-        ballSprite = new Sprite(ballImg);
-        netSprite = new Sprite(netImg);
-        background = new Texture("anime_style_background___beach_by_azuki_sato-d2zhqix.jpg");
+        atlas = game.assets.get(Assets.SPRITES, TextureAtlas.class);
+        netSprite = atlas.createSprite(Assets.NET);
+        background = Assets.getBackground(game.assets, Assets.BEACH_BACKGROUND);
         backgroundSprite = new Sprite(background);
-        backgroundSprite.setBounds(0f, 0f, 950f, 768f);
+        backgroundSprite.setBounds(0f, 0f, VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT);
         backgroundSprite.setCenter(0, 0);
 
-        wavSound1 = Gdx.audio.newSound(Gdx.files.internal("bgrunt.wav"));
-        wavSound2 = Gdx.audio.newSound(Gdx.files.internal("w1.wav"));
-        wavSound3 = Gdx.audio.newSound(Gdx.files.internal("w2.wav"));
-        wavSound4 = Gdx.audio.newSound(Gdx.files.internal("chew_roar.mp3"));
-
-        netSprite.setPosition(-netSprite.getWidth()/2,-525);
-        netSprite.setScale(NET_SCALE);
-
-        world = new World(new Vector2(0, -15f),true);
-
-        /*
-        // BEGIN BODY DEFINITIONS
-        */
-        rightHippo = createHippo(rightHippoSprite);
-        leftHippo = createHippo(leftHippoSprite);
-        ball = createBall(ballSprite);
-        net = createNet(netSprite);
-        // End body definitions
-
-        /*
-        // BEGIN EDGE DEFINITIONS
-        */
-        // Set the height to just 50 pixels above the bottom of the screen so we have a place to
-        // display the score counters
-        float w = Gdx.graphics.getWidth()/PIXELS_TO_METERS;
-        float h = Gdx.graphics.getHeight()/PIXELS_TO_METERS- 50/PIXELS_TO_METERS;
-
-        bottomEdge = createScreenEdge(-w/2, -h/2, w/2, -h/2);
-
-        // We don't want the 50 pixel padding for the other edges, so set height to screen height
-        h = Gdx.graphics.getHeight()/PIXELS_TO_METERS;
-
-        topEdge = createScreenEdge(w/2, h/2, -w/2, h/2, 0f);
-        leftEdge = createScreenEdge(-w/2, -h/2, -w/2, h/2, 0f);
-        rightEdge = createScreenEdge(w/2, h/2, w/2, -h/2, 0f);
-        // End edge definitions
-
-        /*
-        //  BALL AND GROUND COLLISION
-        */
-        world.setContactListener(new ContactListener() {
-            @Override
-            public void beginContact(Contact contact) {
-                // Listen for when the ball lands on the ground
-                // Since we don't know if A/B will be the ball or the edge, we must include comparisons for both ways
-                if ((contact.getFixtureA().getBody() == bottomEdge && contact.getFixtureB().getBody() == ball)
-                        ||
-                        (contact.getFixtureA().getBody() == ball && contact.getFixtureB().getBody() == bottomEdge)) {
-                    // If the ball has not landed for the current round, increment score
-                    if (!hasBallLanded) {
-                        if (ball.getPosition().x < 0) {
-                            rightScore++;
-                            scoringHippo = true; // scoringHippo means the right hippo has won the round
-                        } else if (ball.getPosition().x > 0) {
-                            leftScore++;
-                            scoringHippo = false; // !scoringHippo means the left hippo has won the round
-                        }
-                        // If one of the players has scored enough points to win, and they have a sufficient margin lead
-                        if (rightScore >= VolleyBall.scoreToWin && rightScore - leftScore >= VolleyBall.scoreMargin) {
-                            rightWin = true;
-                        }
-                        else if (leftScore >= VolleyBall.scoreToWin && leftScore - rightScore >= VolleyBall.scoreMargin) {
-                            leftWin = true;
-                        }
-
-                        // Ball has landed; game will take action in the render loop
-                        hasBallLanded = true;
-                    }
-                }
-
-                /*
-                // Hippo contact with ball plays a sound
-                */
-                if ((contact.getFixtureA().getBody() == rightHippo && contact.getFixtureB().getBody() == ball)
-                        ||
-                        (contact.getFixtureA().getBody() == ball && contact.getFixtureB().getBody() == rightHippo)
-                        ||
-                        (contact.getFixtureA().getBody() == leftHippo && contact.getFixtureB().getBody() == ball)
-                        ||
-                        (contact.getFixtureA().getBody() == ball && contact.getFixtureB().getBody() == leftHippo)) {
-                    int rnum = MathUtils.random(0, 3);
-                    if(rnum == 0)
-                    {
-                        wavSound1.play();
-                    }
-                    else if(rnum == 1)
-                    {
-                        wavSound2.play();
-                    }
-                    else if(rnum == 2)
-                    {
-                        wavSound3.play();
-                    }
-                    else if(rnum == 3)
-                    {
-                        wavSound4.play();
-                    }
-
-                    //wavSound5.play();
-                }
-
-                // This controls jumping; when the hippos touch the ground, mark them as NOT airborne
-                if ((contact.getFixtureA().getBody() == rightHippo && contact.getFixtureB().getBody() == bottomEdge)
-                        ||
-                        (contact.getFixtureA().getBody() == bottomEdge && contact.getFixtureB().getBody() == rightHippo))
-                    isRightHippoAirborne = false;
-                else if ((contact.getFixtureA().getBody() == leftHippo && contact.getFixtureB().getBody() == bottomEdge)
-                        ||
-                        (contact.getFixtureA().getBody() == bottomEdge && contact.getFixtureB().getBody() == leftHippo))
-                    isLeftHippoAirborne = false;
-            }
-
-            @Override
-            public void endContact(Contact contact) {
-                // This controls jumping; when the hippos leave the ground, mark them as airborne
-                if ((contact.getFixtureA().getBody() == rightHippo && contact.getFixtureB().getBody() == bottomEdge)
-                        ||
-                        (contact.getFixtureA().getBody() == bottomEdge && contact.getFixtureB().getBody() == rightHippo))
-                    isRightHippoAirborne = true;
-                else if ((contact.getFixtureA().getBody() == leftHippo && contact.getFixtureB().getBody() == bottomEdge)
-                        ||
-                        (contact.getFixtureA().getBody() == bottomEdge && contact.getFixtureB().getBody() == leftHippo))
-                    isLeftHippoAirborne = true;
-            }
+        // A hippo bouncing the ball on its head would otherwise fire a sound on every touch. The serve
+        // whistle is rare and short, so it may cut off a hit sound but never the other way around.
+        hitSound = sounds.add(1, HIT_SOUND_COOLDOWN, 1f,
+                new Sound[] { game.assets.get(Assets.GRUNT_SOUND, Sound.class),
+                        game.assets.get(Assets.WHOOSH_SOUND_1, Sound.class),
+                        game.assets.get(Assets.WHOOSH_SOUND_2, Sound.class),
+                        game.assets.get(Assets.ROAR_SOUND, Sound.class) },
+                new float[] { 0.98f, 0.77f, 0.87f, 1.46f });
+        serveSound = sounds.add(2, 0f, game.assets.get(Assets.SERVE_SOUND, Sound.class), 0.23f);
 
-            // Ignore the rest of this
-            @Override
-            public void preSolve(Contact contact, Manifold oldManifold) {}
-            @Override
-            public void postSolve(Contact contact, ContactImpulse impulse) {}
-        });
-
-        Gdx.input.setInputProcessor(this);
+        netSprite.setPosition(-netSprite.getWidth()/2, MatchSimulation.NET_Y);
+        netSprite.setScale(MatchSimulation.NET_SCALE);
 
         debugRenderer = new Box2DDebugRenderer();
-        font = new BitmapFont();
-        font.setColor(Color.BLACK);
-        camera = new OrthographicCamera(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        font = game.resources.getFont(ResourceCache.DEFAULT_FONT); // The HUD texts set their own colors
+        // Point and game announcements, and the round count or pause message, at the center of the screen
+        announcementText = new HudText(font, Color.BLACK).setPosition(0f, 0f);
+        statusText = new HudText(font, Color.BLACK).setPosition(0f, 0f);
+        // The left player's score count at bottom left corner, the right player's at bottom right corner
+        leftScoreText = new HudText(font, Color.BLACK)
+                .setPosition(-VolleyBall.SCREEN_WIDTH / 2 + 2.5f, -VolleyBall.SCREEN_HEIGHT / 2 + 20);
+        rightScoreText = new HudText(font, Color.BLACK)
+                .setPosition(VolleyBall.SCREEN_WIDTH / 2 - 145, -VolleyBall.SCREEN_HEIGHT / 2 + 20);
+        // Replay status at top left corner
+        replayText = new HudText(font, Color.BLACK)
+                .setPosition(-VolleyBall.SCREEN_WIDTH / 2 + 2.5f, VolleyBall.SCREEN_HEIGHT / 2 - 5);
+        replayHelpText = new HudText(font, Color.BLACK)
+                .setPosition(-VolleyBall.SCREEN_WIDTH / 2 + 2.5f, VolleyBall.SCREEN_HEIGHT / 2 - 25);
+        replayHelpText.set("F: fast forward   [ and ]: previous and next round   R: restart");
+        // Frame timings at top right corner, while TAB has them switched on
+        profileText = new HudText(font, Color.BLACK)
+                .setPosition(VolleyBall.SCREEN_WIDTH / 2 - 250, VolleyBall.SCREEN_HEIGHT / 2 - 5);
+        // Room for the longest message (the end of the game) in every match text, so none of them allocates
+        // mid-match; updateHud() replaces the placeholders before anything is drawn
+        announcementText.reserve(MAX_HUD_GLYPHS);
+        statusText.reserve(MAX_HUD_GLYPHS);
+        leftScoreText.reserve(MAX_HUD_GLYPHS);
+        rightScoreText.reserve(MAX_HUD_GLYPHS);
+        replayText.reserve(MAX_HUD_GLYPHS);
+        // The camera stays centered on the net, which is where the match's coordinates start from
+        camera = new OrthographicCamera(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT);
+        viewport = new FitViewport(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, camera);
+        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
 
         // Setup complete; initialize the game with right hippo on serve
         startNewGame();
@@ -246,66 +205,77 @@ public class GameScreen extends ApplicationAdapter implements Screen, InputProce
 
     @Override
     public void render(float delta) {
+        FrameProfiler profiler = game.profiler;
         camera.update();
 
-        // Advance the game state if it's running, freeze the game state if it's paused
-        switch (state) {
-            case RUN:
-                // Step the physics simulation forward at a rate of 60hz
-                world.step(1f/60f, 6, 2);
-
-                // Check if any of the keys are being held, then apply force accordingly
-                if(rightHeld && rightHippo.getLinearVelocity().x <= MAX_HORIZONTAL_VELOCITY)
-                    rightHippo.applyForceToCenter(HORIZONTAL_VELOCITY,0f,true);
-                if(leftHeld && rightHippo.getLinearVelocity().x >= -MAX_HORIZONTAL_VELOCITY)
-                    rightHippo.applyForceToCenter(-HORIZONTAL_VELOCITY,0f,true);
-                if(upHeld && rightJumpHeight < MAX_JUMP_HEIGHT) {
-                    rightHippo.applyForceToCenter(0f, JUMP_HOLD_VELOCITY, true);
-                    rightJumpHeight = rightJumpHeight + JUMP_HOLD_VELOCITY;
-                }
-
-                if(dHeld && leftHippo.getLinearVelocity().x <= MAX_HORIZONTAL_VELOCITY)
-                    leftHippo.applyForceToCenter(HORIZONTAL_VELOCITY,0f,true);
-                if(aHeld && leftHippo.getLinearVelocity().x >= -MAX_HORIZONTAL_VELOCITY)
-                    leftHippo.applyForceToCenter(-HORIZONTAL_VELOCITY,0f,true);
-                if(wHeld && leftJumpHeight < MAX_JUMP_HEIGHT) {
-                    leftHippo.applyForceToCenter(0f, JUMP_HOLD_VELOCITY, true);
-                    leftJumpHeight = leftJumpHeight + JUMP_HOLD_VELOCITY;
-                }
-                break; // End RESUME case
-            case FINISHED:
-                break;
-            case PAUSE:
+        // Between points, and once the game is over, the match only waits on the players, so a few frames a
+        // second do. Online, the other peer is still waiting for this one's ticks.
+        if (match.state != State.RUN && online == null && !(replay != null && isReplayFast))
+            game.pacer.animateSlowly();
+        else
+            game.pacer.animate();
+
+        // Advance the match in fixed steps, however long the frame took. The match keeps ticking while
+        // paused so the round transition timers run; it freezes the physics itself.
+        if (replay != null && isReplayFast) {
+            // Fast forward: as many recorded ticks as fit in the frame, drawn where they end up
+            long deadline = TimeUtils.nanoTime() + FAST_REPLAY_NANOS_PER_FRAME;
+            while (TimeUtils.nanoTime() < deadline && replay.tick()) {}
+            publish(); // Viewers jump to where the batch ended up
+            savePreviousState();
+            accumulator = 0f;
+        }
+        accumulator += delta;
+        int steps = 0;
+        while (accumulator >= MatchSimulation.TIME_STEP && steps < MAX_STEPS_PER_FRAME) {
+            savePreviousState();
+            if (!tickMatch()) {
+                accumulator = 0f; // The replay has run out; hold the last frame
                 break;
+            }
+            publish();
+            accumulator -= MatchSimulation.TIME_STEP;
+            steps++;
+        }
+        // If we hit the cap, drop the remaining backlog rather than carrying it into the next frame
+        if (steps == MAX_STEPS_PER_FRAME && accumulator >= MatchSimulation.TIME_STEP)
+            accumulator = 0f;
+        alpha = accumulator / MatchSimulation.TIME_STEP;
+        if (isSavePending) {
+            isSavePending = false;
+            saveRecording();
+            isRecordingSaved = true;
+        }
+        profiler.lap(physicsPhase);
+
+        // Play the sounds the ticks asked for, at most once each however many ticks ran
+        sounds.update();
+        profiler.lap(soundPhase);
+
+        // Face the hippo sprites the way their hippos are heading
+        MatchEntities entities = match.entities;
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            if (sprites[hippo].isFlipX() != entities.isFlipped[hippo])
+                sprites[hippo].flip(true, false);
+        }
 
-        } // End switch
-
-        // The rest of the code must stay outside of the switch structure,
-        // or else massive jittering occurs with the sprites while the game is paused
-
-        // Match the rightHippo sprite to the coordinates of its body
-        rightHippoSprite.setPosition(
-                (rightHippo.getPosition().x * PIXELS_TO_METERS) - rightHippoSprite.getWidth()/2,
-                (rightHippo.getPosition().y * PIXELS_TO_METERS) - rightHippoSprite.getHeight()/2);
-        rightHippoSprite.setRotation((float)Math.toDegrees(rightHippo.getAngle()));
-
-        // Match the leftHippo sprite to the coordinates of its body
-        leftHippoSprite.setPosition(
-                (leftHippo.getPosition().x * PIXELS_TO_METERS) - leftHippoSprite.getWidth()/2,
-                (leftHippo.getPosition().y * PIXELS_TO_METERS) - leftHippoSprite.getHeight()/2);
-        leftHippoSprite.setRotation((float)Math.toDegrees(leftHippo.getAngle()));
-
-        // Match the ball sprite to the coordinates of its body
-        ballSprite.setPosition(
-                (ball.getPosition().x * PIXELS_TO_METERS) - ballSprite.getWidth() / 2,
-                (ball.getPosition().y * PIXELS_TO_METERS) - ballSprite.getHeight() / 2);
-        ballSprite.setRotation((float) Math.toDegrees(ball.getAngle()));
-
+        // Match the sprites to their bodies, blended between the previous and current physics step
+        for (int entity = 0; entity < entities.count; entity++)
+            if (sprites[entity] != null)
+                syncSprite(entity);
+        profiler.lap(spriteSyncPhase);
+
+        // The match is drawn into the offscreen buffer, at whatever resolution the frame times allow. The
+        // backend holds back the frames of an application in the background, so those aren't counted.
+        if (!game.pacer.isInBackground())
+            resolution.update(game.pacer.getWorkSeconds(delta), game.pacer.getPeriodSeconds());
+        resolution.begin();
         Gdx.gl.glClearColor(1, 1, 1, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
         batch.setProjectionMatrix(camera.combined);
-        debugMatrix = batch.getProjectionMatrix().cpy().scale(PIXELS_TO_METERS,	PIXELS_TO_METERS, 0);
+        debugMatrix.set(camera.combined).scale(MatchSimulation.PIXELS_TO_METERS, MatchSimulation.PIXELS_TO_METERS, 0);
         batch.begin();
 
         // Always draw the background first, and do not allow it to be disabled by user
@@ -313,176 +283,193 @@ public class GameScreen extends ApplicationAdapter implements Screen, InputProce
 
         // Draw all other graphics if enabled by user
         if (drawSprite) {
-            rightHippoSprite.draw(batch);
-            leftHippoSprite.draw(batch);
-            ballSprite.draw(batch);
+            for (int entity = 0; entity < entities.count; entity++)
+                if (sprites[entity] != null)
+                    sprites[entity].draw(batch);
             netSprite.draw(batch);
         }
+        batch.end();
+        profiler.lap(spritesPhase);
+
+        if (drawDebug) {
+            debugRenderer.render(match.world, debugMatrix);
+            profiler.lap(debugPhase);
+        }
+        resolution.end();
 
-        // If the ball has landed, prepare to start next round or end the game
-        if (hasBallLanded) {
-            // If the right hippo has won the game
-            if (rightWin) {
-                font.draw(batch, "Blue player wins the game! (Click anywhere to exit)", 0f, 0f);
-                this.state = State.FINISHED;
+        // Scale the match up to the viewport, with black bars around it. It covers everything it is drawn
+        // over, so blending would only cost fill rate.
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        batch.setProjectionMatrix(screenMatrix);
+        batch.disableBlending();
+        batch.begin();
+        resolution.draw(batch);
+        batch.end();
+        batch.enableBlending();
+        profiler.lap(upscalePhase);
+
+        // The HUD goes on top at the screen's own resolution, so the text stays sharp at any scale.
+        // Text only gets laid out again when what it says changes.
+        viewport.apply();
+        batch.setProjectionMatrix(camera.combined);
+        batch.begin();
+        updateHud();
+        announcementText.draw(batch);
+        statusText.draw(batch);
+        if (replay != null) {
+            replayText.draw(batch);
+            replayHelpText.draw(batch);
+        }
+        leftScoreText.draw(batch);
+        rightScoreText.draw(batch);
+        profiler.lap(textPhase);
+
+        // The overlay is rebuilt once a second at most, when the profiler has a new window of frames
+        if (profiler.isOverlayVisible) {
+            if (profiler.describeWindow(profileDescription)) {
+                MusicService music = game.musicService;
+                profileDescription.append("music underruns: ").append(music.getUnderruns())
+                        .append(", slowest call ").append(music.getSlowestCallNanos() / 1000).append(" us\n")
+                        .append("resolution: ").append(Math.round(resolution.getScale() * 100)).append("%\n")
+                        .append("key events dropped: ").append(keys.getOverflows());
+                profileText.set(profileDescription);
             }
+            profileText.draw(batch);
+            profiler.lap(overlayPhase);
+        }
+
+        batch.end();
+        profiler.lap(flushPhase);
+    }
+
+    // Pick the HUD messages for the current match state; unchanged text costs nothing
+    void updateHud() {
+        // If the ball has landed, announce the point or the end of the game
+        if (match.hasBallLanded) {
+            // If the right hippo has won the game
+            if (match.rightWin)
+                announcementText.set("Blue player wins the game! (Click anywhere to exit, R to watch the replay)");
             // If the left hippo has won the game
-            else if (leftWin) {
-                font.draw(batch, "Red player wins the game! \n" +
-                        "(Click anywhere to return to main menu)", 0f, 0f);
-                this.state = State.FINISHED;
-            }
+            else if (match.leftWin)
+                announcementText.set("Red player wins the game! \n" +
+                        "(Click anywhere to return to main menu, R to watch the replay)");
             // Neither hippo has won the game yet
-            else {
-                if (scoringHippo)
-                    font.draw(batch, "Blue player scores!", 0f, 0f);
-                else
-                    font.draw(batch, "Red player scores!", 0f, 0f);
-
-                // Wait one second before pausing and resetting the game state
-                timeSinceLanding += delta;
-                if (timeSinceLanding >= TIME_TO_NEXT_ROUND / 2) {
-                    pause();
-                    if (scoringHippo)
-                        startNewRound(rightHippo);
-                    else
-                        startNewRound(leftHippo);
-                }
-            }
+            else if (match.scoringHippo)
+                announcementText.set("Blue player scores!");
+            else
+                announcementText.set("Red player scores!");
+        } else {
+            announcementText.clear();
         }
 
-        // If the game is finished or paused, wait for the user to click to return to main menu
-        if (Gdx.input.isTouched()) {
-            if (this.state == State.FINISHED || (this.state == State.PAUSE && !hasBallLanded && !isNextRoundStarting)) {
-                hasBallLanded = false; // Exiting game screen, prevent the above code from executing upon return
-                game.setScreen(new MainMenuScreen(game));
-                game.music.stop();
-                // Do not use dispose() on the GameScreen object; the program will crash
-            }
-        }
+        // If we are preparing to start the next round, display round count at center of the screen
+        if (online != null && online.hasLostPeer())
+            statusText.set("Connection lost \n" +
+                    "(Click anywhere to return to main menu)");
+        else if (online != null && !online.hasPeer())
+            statusText.set("Waiting for the other player...");
+        else if (match.isNextRoundStarting)
+            statusText.set("Round ", match.roundCount);
+        else if (match.state == State.PAUSE)
+            statusText.set("Paused \n" +
+                    "(Click anywhere to return to main menu)");
+        else
+            statusText.clear();
 
-        // If we are preparing to start the next round
-        if (isNextRoundStarting) {
-            // Display round count at center of the screen
-            font.draw(batch, "Round " + roundCount, 0f, 0f);
+        if (replay != null)
+            replayText.set(isReplayFast ? "Replay (fast forward), round " : "Replay, round ", match.roundCount);
 
-            // Countdown from 1 second to resume the game state
-            timeUntilStart -= delta;
-            if (timeUntilStart <= 0) {
-                isNextRoundStarting = false;
-                resume();
-            }
+        leftScoreText.set("Red player score: ", match.leftScore);
+        rightScoreText.set("Blue player score: ", match.rightScore);
+    }
+
+    // Remember where the bodies are before stepping, so the sprites can be drawn in between steps
+    void savePreviousState() {
+        MatchEntities entities = match.entities;
+        for (int entity = 0; entity < entities.count; entity++) {
+            Body body = entities.bodies[entity];
+            prevX[entity] = body.getPosition().x;
+            prevY[entity] = body.getPosition().y;
+            prevAngle[entity] = body.getAngle();
         }
-        else if (this.state == State.PAUSE)
-            font.draw(batch, "Paused \n" +
-                    "(Click anywhere to return to main menu)", 0f, 0f);
+    }
+
+    // Place an entity's sprite at its body's interpolated position; alpha = 0 is the previous step, alpha = 1 the current one
+    void syncSprite(int entity) {
+        Sprite sprite = sprites[entity];
+        Body body = match.entities.bodies[entity];
+        Vector2 pos = body.getPosition();
+        float x = prevX[entity] + (pos.x - prevX[entity]) * alpha;
+        float y = prevY[entity] + (pos.y - prevY[entity]) * alpha;
+        float angle = prevAngle[entity] + (body.getAngle() - prevAngle[entity]) * alpha;
+        sprite.setPosition(x * MatchSimulation.PIXELS_TO_METERS - sprite.getWidth()/2,
+                y * MatchSimulation.PIXELS_TO_METERS - sprite.getHeight()/2);
+        sprite.setRotation(angle * MathUtils.radiansToDegrees);
+    }
 
-        // Display the left player's score count at bottom left corner
-        font.draw(batch,
-                "Red player score: " + leftScore,
-                -Gdx.graphics.getWidth() / 2 + 2.5f, -Gdx.graphics.getHeight() / 2 + 20);
+    // Send the match as it is now to whoever is watching it
+    void publish() {
+        if (game.spectators != null)
+            game.spectators.publish(match);
+    }
 
-        // Display the right player's score count at bottom right corner
-        font.draw(batch,
-                "Blue player score: " + rightScore,
-                Gdx.graphics.getWidth() / 2 - 145, -Gdx.graphics.getHeight() / 2 + 20);
+    // Sent along with the frame of the tick it happened in
+    void spectatorEvent(int event) {
+        if (game.spectators != null)
+            game.spectators.event(event);
+    }
 
-        batch.end();
+    // One physics tick, driven by the keyboard or by the replay being watched; false once a replay has run out
+    boolean tickMatch() {
+        if (replay != null) {
+            keys.clear(); // The keys control the replay here; they mustn't pile up for the next match
+            return replay.tick();
+        }
+        keys.apply(input);
+        if (online != null)
+            tickOnline();
+        else
+            tickLocal();
+        // The presses taken by this tick have moved their hippos now
+        long now = TimeUtils.nanoTime();
+        for (int i = 0; i < keys.getAppliedPresses(); i++)
+            game.profiler.record(inputLatencyPhase, now - keys.getAppliedPressTime(i));
+        return true;
+    }
+
+    void tickLocal() {
+        // The computer presses its keys like a player would, so its moves are recorded like anyone else's
+        if (cpu != null)
+            cpu.update(match, input);
+        recording.record(input.bits);
+        match.tick(input);
+        input.clearCommands();
+    }
 
-        if (drawDebug)
-            debugRenderer.render(world, debugMatrix);
+    // Online, any set of keys moves this player's hippo; the session decides when the tick actually runs
+    void tickOnline() {
+        int buttons = 0;
+        for (int slot = 0; slot < MatchInput.MAX_HIPPOS; slot++)
+            buttons |= MatchInput.buttons(input.bits, slot);
+        online.update(buttons << (online.getLocalHippo() * MatchInput.BITS_PER_HIPPO) | (input.bits & MatchInput.COMMAND_MASK));
+        input.clearCommands();
+        // The joining player's match is replaced once the host's rules arrive
+        if (match != online.getMatch())
+            setMatch(online.getMatch());
     }
 
     @Override
     public boolean keyDown(int keycode) {
-        // Only acknowledge key usage when player movement is enabled
-        if (isMovementAllowed) {
-            // When the user presses an arrow key, apply an initial force and enable additional
-            // force to be added during the render loop
-            if (keycode == Input.Keys.RIGHT) {
-                rightHippo.applyForceToCenter(HORIZONTAL_VELOCITY, 0f, true);
-                if (isRightHippoFlipped) {
-                    rightHippoSprite.flip(true, false);
-                    isRightHippoFlipped = false;
-                }
-                rightHeld = true;
-            }
-            if (keycode == Input.Keys.LEFT) {
-                rightHippo.applyForceToCenter(-HORIZONTAL_VELOCITY, 0f, true);
-                if (!isRightHippoFlipped) {
-                    rightHippoSprite.flip(true, false);
-                    isRightHippoFlipped = true;
-                }
-                leftHeld = true;
-            }
-            if (keycode == Input.Keys.UP) {
-                // Only allow jumping if the hippo is actually touching the ground
-                if (!isRightHippoAirborne) {
-                    rightHippo.applyForceToCenter(0f, JUMP_VELOCITY, true);
-                    rightJumpHeight = JUMP_VELOCITY;
-                    upHeld = true;
-                }
-            }
-
-            if (keycode == Input.Keys.D) {
-                leftHippo.applyForceToCenter(HORIZONTAL_VELOCITY, 0f, true);
-                if (isLeftHippoFlipped) {
-                    leftHippoSprite.flip(true, false);
-                    isLeftHippoFlipped = false;
-                }
-                dHeld = true;
-            }
-            if (keycode == Input.Keys.A) {
-                leftHippo.applyForceToCenter(-HORIZONTAL_VELOCITY, 0f, true);
-                if (!isLeftHippoFlipped) {
-                    leftHippoSprite.flip(true, false);
-                    isLeftHippoFlipped = true;
-                }
-                aHeld = true;
-            }
-            if (keycode == Input.Keys.W) {
-                // Only allow jumping if the hippo is actually touching the ground
-                if (!isLeftHippoAirborne) {
-                    leftHippo.applyForceToCenter(0f, JUMP_VELOCITY, true);
-                    leftJumpHeight = JUMP_VELOCITY;
-                    wHeld = true;
-                }
-            }
-        }
+        // Queue the key change; the match applies it on its next tick
+        setKey(keycode, true);
         return true;
     }
 
     @Override
     public boolean keyUp(int keycode) {
-        // When the user releases an arrow key, disable force during the render loop
-        if (keycode == Input.Keys.RIGHT)
-            rightHeld = false;
-        if (keycode == Input.Keys.LEFT)
-            leftHeld = false;
-        if (keycode == Input.Keys.UP)
-            upHeld = false;
-
-        if (keycode == Input.Keys.D)
-            dHeld = false;
-        if (keycode == Input.Keys.A)
-            aHeld = false;
-        if (keycode == Input.Keys.W)
-            wHeld = false;
+        setKey(keycode, false);
 
-        // Allow user to change ball restitution using comma and period keys
-        if(keycode == Input.Keys.COMMA) {
-            ball.getFixtureList().first().setRestitution(ball.getFixtureList().first().getRestitution() - 0.1f);
-        }
-        if(keycode == Input.Keys.PERIOD) {
-            ball.getFixtureList().first().setRestitution(ball.getFixtureList().first().getRestitution() + 0.1f);
-        }
-        if(keycode == Input.Keys.ESCAPE) {
-            // Do not allow the players to pause or resume the game while it's transitioning between rounds
-            if (state == State.RUN && !hasBallLanded && !isNextRoundStarting)
-                pause();
-            else if (state == State.PAUSE && !hasBallLanded && !isNextRoundStarting)
-                resume();
-        }
         if(keycode == Input.Keys.ENTER) {
             drawDebug = !drawDebug;
             if (!drawDebug && !drawSprite)
@@ -493,211 +480,261 @@ public class GameScreen extends ApplicationAdapter implements Screen, InputProce
             if (!drawDebug && !drawSprite)
                 drawDebug = true;
         }
-        return true;
-    }
-
-    public Body createHippo (Sprite hippoSprite) {
-        BodyDef hippoBodyDef = new BodyDef();
-        hippoBodyDef.type = BodyDef.BodyType.DynamicBody;
-        hippoBodyDef.position.set((hippoSprite.getX() + hippoSprite.getWidth()/2) / PIXELS_TO_METERS,
-                (hippoSprite.getY() + hippoSprite.getHeight()/2) / PIXELS_TO_METERS);
-
-        Body hippoBody = world.createBody(hippoBodyDef);
-
-        // Prevent the hippo's angular facing from changing
-        hippoBody.setFixedRotation(true);
-
-        PolygonShape hippoShape = new PolygonShape();
-        hippoShape.setAsBox(hippoSprite.getWidth()*HIPPO_SCALE / 2 / PIXELS_TO_METERS,
-                hippoSprite.getHeight()*HIPPO_SCALE / 2 / PIXELS_TO_METERS);
-
-        FixtureDef hippoFixtureDef = new FixtureDef();
-        hippoFixtureDef.shape = hippoShape;
-        hippoFixtureDef.density = HIPPO_DENSITY;
-        hippoFixtureDef.friction = HIPPO_FRICTION;
-        hippoFixtureDef.restitution = HIPPO_RESTITUTION;
-        hippoFixtureDef.filter.categoryBits = HIPPO_ENTITY;
-        hippoFixtureDef.filter.maskBits = BALL_ENTITY|WORLD_ENTITY;
+        if(keycode == Input.Keys.TAB) {
+            game.profiler.isOverlayVisible = !game.profiler.isOverlayVisible;
+        }
 
-        hippoBody.createFixture(hippoFixtureDef);
-        hippoShape.dispose();
+        // While watching a replay, the keys control the replay instead of the match
+        if (replay != null) {
+            if (keycode == Input.Keys.F)
+                isReplayFast = !isReplayFast;
+            if (keycode == Input.Keys.LEFT_BRACKET)
+                seekReplay(match.getRoundCount() - 1);
+            if (keycode == Input.Keys.RIGHT_BRACKET)
+                seekReplay(match.getRoundCount() + 1);
+            if (keycode == Input.Keys.R)
+                startReplay(replay.getLog());
+            return true;
+        }
 
-        return hippoBody;
+        // Match commands are applied on the next tick, so they end up in the replay like the movement keys.
+        // Allow user to change ball restitution using comma and period keys
+        if(keycode == Input.Keys.COMMA) {
+            input.command(MatchInput.BALL_LESS_BOUNCY);
+        }
+        if(keycode == Input.Keys.PERIOD) {
+            input.command(MatchInput.BALL_BOUNCIER);
+        }
+        if(keycode == Input.Keys.ESCAPE) {
+            input.command(MatchInput.TOGGLE_PAUSE);
+        }
+        // Once the match is over, R plays it back from the start
+        if(keycode == Input.Keys.R && match.getState() == State.FINISHED && recording != null) {
+            startReplay(recording);
+        }
+        return true;
     }
 
-    public Body createBall (Sprite ballSprite) {
-        BodyDef ballBodyDef = new BodyDef();
-        ballBodyDef.type = BodyDef.BodyType.DynamicBody;
-        ballBodyDef.position.set((ballSprite.getX() + ballSprite.getWidth()/2) / PIXELS_TO_METERS,
-                (ballSprite.getY() + ballSprite.getHeight()/2) / PIXELS_TO_METERS);
-
-        Body ballBody = world.createBody(ballBodyDef);
-
-        CircleShape ballShape = new CircleShape();
-        ballShape.setRadius((ballSprite.getWidth() / 2) / PIXELS_TO_METERS);
-
-        FixtureDef ballFixtureDef = new FixtureDef();
-        ballFixtureDef.shape = ballShape;
-        ballFixtureDef.density = BALL_DENSITY;
-        ballFixtureDef.restitution = BALL_RESTITUTION;
-        ballFixtureDef.filter.categoryBits = BALL_ENTITY;
-        ballFixtureDef.filter.maskBits = HIPPO_ENTITY|WORLD_ENTITY;
-
-        ballBody.createFixture(ballFixtureDef);
-        ballShape.dispose();
+    // Map the arrow keys to the right hippo and WASD to the left hippo; in two against two, IJL and TFH
+    // move the second blue and red hippo
+    void setKey(int keycode, boolean held) {
+        if (keycode == Input.Keys.RIGHT)
+            keys.add(MatchInput.RIGHT_HIPPO, MatchInput.RIGHT, held);
+        if (keycode == Input.Keys.LEFT)
+            keys.add(MatchInput.RIGHT_HIPPO, MatchInput.LEFT, held);
+        if (keycode == Input.Keys.UP)
+            keys.add(MatchInput.RIGHT_HIPPO, MatchInput.UP, held);
 
-        return ballBody;
+        if (keycode == Input.Keys.D)
+            keys.add(MatchInput.LEFT_HIPPO, MatchInput.RIGHT, held);
+        if (keycode == Input.Keys.A)
+            keys.add(MatchInput.LEFT_HIPPO, MatchInput.LEFT, held);
+        if (keycode == Input.Keys.W)
+            keys.add(MatchInput.LEFT_HIPPO, MatchInput.UP, held);
+
+        if (keycode == Input.Keys.L)
+            keys.add(MatchInput.slot(MatchInput.RIGHT_HIPPO, 1), MatchInput.RIGHT, held);
+        if (keycode == Input.Keys.J)
+            keys.add(MatchInput.slot(MatchInput.RIGHT_HIPPO, 1), MatchInput.LEFT, held);
+        if (keycode == Input.Keys.I)
+            keys.add(MatchInput.slot(MatchInput.RIGHT_HIPPO, 1), MatchInput.UP, held);
+
+        if (keycode == Input.Keys.H)
+            keys.add(MatchInput.slot(MatchInput.LEFT_HIPPO, 1), MatchInput.RIGHT, held);
+        if (keycode == Input.Keys.F)
+            keys.add(MatchInput.slot(MatchInput.LEFT_HIPPO, 1), MatchInput.LEFT, held);
+        if (keycode == Input.Keys.T)
+            keys.add(MatchInput.slot(MatchInput.LEFT_HIPPO, 1), MatchInput.UP, held);
     }
 
-    public Body createNet (Sprite netSprite) {
-        BodyDef netBodyDef = new BodyDef();
-        netBodyDef.type = BodyDef.BodyType.StaticBody;
-        netBodyDef.position.set((netSprite.getX() + netSprite.getWidth()/2) / PIXELS_TO_METERS,
-                (netSprite.getY() + netSprite.getHeight()/2) / PIXELS_TO_METERS);
-
-        Body netBody = world.createBody(netBodyDef);
-
-        PolygonShape netShape = new PolygonShape();
-        netShape.setAsBox(netSprite.getWidth()*NET_SCALE / 2 / PIXELS_TO_METERS,
-                netSprite.getHeight()*NET_SCALE / 2 / PIXELS_TO_METERS);
-
-        FixtureDef netFixtureDef = new FixtureDef();
-        netFixtureDef.shape = netShape;
-        netFixtureDef.restitution = NET_RESTITUTION;
-        netFixtureDef.friction = 0f;
-        netFixtureDef.filter.categoryBits = WORLD_ENTITY;
-        netFixtureDef.filter.maskBits = BALL_ENTITY|HIPPO_ENTITY;
-
-        netBody.createFixture(netFixtureDef);
-        netShape.dispose();
-
-        return netBody;
+    // If the game is finished or paused, or the other player is gone, a click returns to the main menu
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        if (match.canLeave() || (online != null && !online.isConnected()))
+            game.setScreen(game.screens.mainMenu());
+        return true;
     }
 
-    public Body createScreenEdge (float v1X, float v1Y, float v2X, float v2Y) {
-        BodyDef edgeBodyDef = new BodyDef();
-        edgeBodyDef.type = BodyDef.BodyType.StaticBody;
-        edgeBodyDef.position.set(0,0);
-        FixtureDef edgeFixtureDef = new FixtureDef();
-        edgeFixtureDef.filter.categoryBits = WORLD_ENTITY;
-
-        EdgeShape edgeShape = new EdgeShape();
-        edgeFixtureDef.shape = edgeShape;
-        edgeShape.set(v1X, v1Y, v2X, v2Y);
-
-        Body screenEdgeBody = world.createBody(edgeBodyDef);
-        screenEdgeBody.createFixture(edgeFixtureDef);
-        edgeShape.dispose();
-
-        return screenEdgeBody;
+    public void startNewGame() {
+        replay = null;
+        isReplayFast = false;
+        isSavePending = false;
+        isRecordingSaved = false;
+        input.clear(); // Nothing pressed during a replay or before the start carries over into the match
+        keys.clear();
+        matchHits = 0;
+        pointStreak = 0;
+        longestLeftStreak = 0;
+        longestRightStreak = 0;
+
+        // Every match gets a fresh world, so that playing its recorded inputs into another fresh world
+        // with the same seed reproduces it exactly
+        match.dispose();
+        if (game.onlineTransport != null) {
+            startOnlineGame();
+            return;
+        }
+        calibration.hipposPerSide = VolleyBall.hipposPerSide;
+        calibration.ballCount = VolleyBall.ballCount;
+        setMatch(new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, calibration, events));
+        long seed = MathUtils.random.nextLong();
+        match.setSeed(seed);
+        match.setRules(VolleyBall.scoreToWin, VolleyBall.scoreMargin);
+        match.setChecksums(checksums);
+        cpu = VolleyBall.cpuLevel == null ? null
+                : new CpuPlayer(MatchInput.RIGHT_HIPPO, VolleyBall.cpuLevel, match, MathUtils.random.nextLong());
+        recording = new ReplayLog(match, seed, calibration);
+        match.startNewGame();
+        game.musicService.play(game.getMusic());
     }
 
-    public Body createScreenEdge (float v1X, float v1Y, float v2X, float v2Y, float friction) {
-        BodyDef edgeBodyDef = new BodyDef();
-        edgeBodyDef.type = BodyDef.BodyType.StaticBody;
-        edgeBodyDef.position.set(0,0);
-        FixtureDef edgeFixtureDef = new FixtureDef();
-        edgeFixtureDef.friction = friction;
-        edgeFixtureDef.filter.categoryBits = WORLD_ENTITY;
+    // Online matches are not recorded; the host picks the seed and the rules
+    void startOnlineGame() {
+        recording = null;
+        cpu = null;
+        if (game.isOnlineHost)
+            online = new RollbackSession(game.onlineTransport, MathUtils.random.nextLong(), VolleyBall.scoreToWin,
+                    VolleyBall.scoreMargin, VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, events);
+        else
+            online = new RollbackSession(game.onlineTransport, VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, events);
+        online.setChecksums(checksums);
+        setMatch(online.getMatch());
+        game.musicService.play(game.getMusic());
+    }
 
-        EdgeShape edgeShape = new EdgeShape();
-        edgeFixtureDef.shape = edgeShape;
-        edgeShape.set(v1X, v1Y, v2X, v2Y);
+    // Watch the given recording from the start, in place of the current match
+    void startReplay(ReplayLog log) {
+        MatchSimulation previous = match;
+        replay = new ReplayPlayer(log, events);
+        setMatch(replay.getMatch());
+        previous.dispose();
+        accumulator = 0f;
+        input.clear(); // Whatever the players were holding belongs to the match that ended
+        keys.clear();
+    }
 
-        Body screenEdgeBody = world.createBody(edgeBodyDef);
-        screenEdgeBody.createFixture(edgeFixtureDef);
-        edgeShape.dispose();
+    void seekReplay(int round) {
+        replay.seekToRound(round);
+        setMatch(replay.getMatch()); // Seeking backwards starts over in a new match
+        accumulator = 0f;
+    }
 
-        return screenEdgeBody;
+    // Draw the given match from now on, with a sprite for each of its hippos and balls
+    void setMatch(MatchSimulation match) {
+        this.match = match;
+        MatchEntities entities = match.entities;
+        for (int entity = 0; entity < sprites.length; entity++)
+            sprites[entity] = null;
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            // Both face towards the right by default; render() flips them the way their hippos face
+            Sprite sprite = atlas.createSprite(entities.sides[hippo] == MatchInput.RIGHT_HIPPO ? Assets.HIPPO_BLUE : Assets.HIPPO_RED);
+            sprite.setScale(MatchSimulation.HIPPO_SCALE);
+            sprites[hippo] = sprite;
+        }
+        for (int i = 0; i < entities.ballCount; i++)
+            sprites[entities.balls[i]] = atlas.createSprite(Assets.BALL);
+        savePreviousState();
     }
 
-    public void startNewRound(Body whichHippo) {
-        // Starting next round
-        timeUntilStart = TIME_TO_NEXT_ROUND/2;
-        isNextRoundStarting = true;
-        roundCount++;
-
-        // Move hippos back to their starting positions
-        rightHippo.setLinearVelocity(0f, 0f);
-        rightHippo.setAngularVelocity(0f);
-        rightHippo.setTransform(rightHippoSprite.getWidth()*4f/PIXELS_TO_METERS,-VolleyBall.SCREEN_HEIGHT/PIXELS_TO_METERS/2 + rightHippoSprite.getHeight()/PIXELS_TO_METERS - 0.2f, 0f);
-
-        leftHippo.setLinearVelocity(0f, 0f);
-        leftHippo.setAngularVelocity(0f);
-        leftHippo.setTransform(-leftHippoSprite.getWidth()*4f/PIXELS_TO_METERS,-VolleyBall.SCREEN_HEIGHT/PIXELS_TO_METERS/2 + leftHippoSprite.getHeight()/PIXELS_TO_METERS - 0.2f, 0f);
-
-        // If the game is paused, reset key states to avoid weird bugs
-        upHeld = false;
-        rightHeld = false;
-        leftHeld = false;
-
-        wHeld = false;
-        dHeld = false;
-        aHeld = false;
-
-        // Reset ball back to non-landed state and place it above the specified hippo
-        hasBallLanded = false;
-        timeSinceLanding = 0f;
-        ball.setLinearVelocity(0f, 0f);
-        ball.setAngularVelocity(1f);
-        ball.setTransform(whichHippo.getPosition().x, whichHippo.getPosition().y*5f/PIXELS_TO_METERS,0f);
+    void countPoint(boolean rightHippo) {
+        if (pointStreak > 0 && isStreakRight == rightHippo) {
+            pointStreak++;
+        } else {
+            pointStreak = 1;
+            isStreakRight = rightHippo;
+        }
+        if (rightHippo)
+            longestRightStreak = Math.max(longestRightStreak, pointStreak);
+        else
+            longestLeftStreak = Math.max(longestLeftStreak, pointStreak);
     }
 
-    public void startNewGame(Body whichHippo) {
-        pause();
-        leftScore = 0;
-        rightScore = 0;
-        leftWin = false;
-        rightWin = false;
-        roundCount = 0;
-        game.music.play();
-        startNewRound(whichHippo);
+    // Hand the finished match to the history, which writes it out on its own thread
+    void saveResult(boolean rightWon) {
+        if (game.history == null)
+            return;
+        MatchHistory.Result result = new MatchHistory.Result();
+        result.endTime = TimeUtils.millis();
+        result.rightWon = rightWon;
+        result.isOnline = online != null;
+        result.hipposPerSide = match.hipposPerSide;
+        result.ballCount = match.ballCount;
+        result.opponent = cpu == null ? 0 : cpu.level.ordinal() + 1;
+        result.leftScore = match.leftScore;
+        result.rightScore = match.rightScore;
+        result.hits = matchHits;
+        result.ticks = (int)match.tickCount;
+        result.longestLeftStreak = longestLeftStreak;
+        result.longestRightStreak = longestRightStreak;
+        game.history.add(result);
     }
 
-    public void startNewGame() {
-        // Coin flip; which hippo will have the first serve at start of the game
-        if (MathUtils.randomBoolean())
-            startNewGame(rightHippo);
-        else
-            startNewGame(leftHippo);
+    // Keep the last match on disk, so a rally can be watched again or passed on, with its checksums
+    void saveRecording() {
+        if (!Gdx.files.isLocalStorageAvailable())
+            return;
+        try {
+            if (recording != null && recording.getTickCount() > 0)
+                recording.save(Gdx.files.local(LAST_REPLAY_FILE));
+            if (checksums.getLastTick() >= 0)
+                checksums.save(Gdx.files.local(online != null ? ONLINE_CHECKSUMS_FILE : LAST_CHECKSUMS_FILE));
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error("GameScreen", "Couldn't save the replay", e);
+        }
     }
 
     @Override
     public void pause() {
-        this.state = State.PAUSE;
-        // Disable player movement inputs while game is paused
-        isMovementAllowed = false;
+        // Pause through the tick like the player would, so the replay pauses at the same point. There are
+        // no ticks while the application is paused, and the players resume the match themselves.
+        if (replay == null && match.getState() == State.RUN)
+            input.command(MatchInput.TOGGLE_PAUSE);
     }
 
     @Override
-    public void resume() {
-        this.state = State.RUN;
-        isMovementAllowed = true;
-    }
+    public void resume() {}
 
+    // The field keeps its size and shape; only the viewport and the buffer follow the window
     @Override
-    public void dispose() {
-        hippoRed.dispose();
-        hippoBlue.dispose();
-        ballImg.dispose();
-        netImg.dispose();
-        world.dispose();
+    public void resize(int width, int height) {
+        viewport.update(width, height);
+        resolution.resize(viewport.getScreenX(), viewport.getScreenY(), viewport.getScreenWidth(), viewport.getScreenHeight());
+        screenMatrix.setToOrtho2D(0, 0, width, height);
     }
 
-    // Unused Screen functions
     @Override
-    public void resize(int width, int height) {}
+    public void show() {
+        Gdx.input.setInputProcessor(this);
+    }
+
+    // This screen is kept for the next match, so leave it in a clean state
     @Override
-    public void show() {}
+    public void hide() {
+        if (replay == null && !isRecordingSaved)
+            saveRecording(); // Left in the middle of the match
+        replay = null;
+        online = null; // Leaving ends the online match; the next one starts over with a new HELLO
+        input.clear(); // Keys still held on the way out would otherwise stay held in the next match
+        keys.clear();
+        sounds.stopAll();
+        game.musicService.play(null); // Fades out; the track is paused, not stopped, so the next match resumes it at once
+    }
+
     @Override
-    public void hide() {}
+    public void dispose() {
+        // The textures and sounds belong to the asset manager
+        batch.dispose();
+        game.resources.release(ResourceCache.DEFAULT_FONT);
+        debugRenderer.dispose();
+        resolution.dispose();
+        match.dispose();
+    }
 
     // Unused InputProcessor functions
     @Override
     public boolean keyTyped(char character) { return false; }
     @Override
-    public boolean touchDown(int screenX, int screenY, int pointer, int button) { return false; }
-    @Override
     public boolean touchUp(int screenX, int screenY, int pointer, int button) { return false; }
     @Override
     public boolean touchDragged(int screenX, int screenY, int pointer) { return false; }
@@ -705,4 +742,4 @@ public class GameScreen extends ApplicationAdapter implements Screen, InputProce
     public boolean mouseMoved(int screenX, int screenY) { return false; }
     @Override
     public boolean scrolled(int amount) { return false; }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.utils.Align;
+
+/**
+ * A line (or block) of on-screen text that is laid out once and then drawn from a vertex cache every frame.
+ * It is only laid out again when set() is given text that differs from what is showing, so drawing the same
+ * text frame after frame allocates nothing. An optional drop shadow is baked into the same cache.
+ *
+ * Laying out longer text than before grows the cache's vertex arrays, and the font's pooled layouts. To keep
+ * that out of a match (a score going from 9 to 10 is enough), reserve() lays out the longest text there will
+ * be up front.
+ */
+public class HudText {
+    final BitmapFont font;
+    final BitmapFontCache cache;
+    final StringBuilder text = new StringBuilder(); // What is currently laid out in the cache
+
+    // Set by set(prefix, value) so an unchanged number can be detected without building the string
+    String lastPrefix;
+    int lastValue;
+
+    final Color color = new Color();
+    final Color shadowColor = new Color();
+    boolean hasShadow = false;
+    float shadowOffsetX, shadowOffsetY;
+    float scale = 1f;
+
+    float x, y, width;
+    int align = Align.left;
+
+    public HudText(BitmapFont font, Color color) {
+        this.font = font;
+        this.color.set(color);
+        cache = new BitmapFontCache(font, font.usesIntegerPositions());
+    }
+
+    public HudText setPosition(float x, float y) {
+        return setPosition(x, y, 0f, Align.left);
+    }
+
+    // Like BitmapFont.draw(); the text is aligned within the given width
+    public HudText setPosition(float x, float y, float width, int align) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.align = align;
+        rebuild();
+        return this;
+    }
+
+    public HudText setShadow(Color shadowColor, float offsetX, float offsetY) {
+        hasShadow = true;
+        this.shadowColor.set(shadowColor);
+        shadowOffsetX = offsetX;
+        shadowOffsetY = offsetY;
+        rebuild();
+        return this;
+    }
+
+    // Scale the font is laid out at; the font itself is left at its own scale
+    public HudText setScale(float scale) {
+        this.scale = scale;
+        rebuild();
+        return this;
+    }
+
+    public void set(CharSequence newText) {
+        lastPrefix = null;
+        if (contentEquals(text, newText))
+            return;
+        text.setLength(0);
+        text.append(newText);
+        rebuild();
+    }
+
+    // Shows prefix followed by value, e.g. a score; does nothing if neither has changed
+    public void set(String prefix, int value) {
+        if (prefix == lastPrefix && value == lastValue)
+            return;
+        lastPrefix = prefix;
+        lastValue = value;
+        text.setLength(0);
+        text.append(prefix).append(value);
+        rebuild();
+    }
+
+    public void clear() {
+        set("");
+    }
+
+    /**
+     * Lays out the given number of glyphs, which stay until the next set(). Reserving every text of a screen
+     * before setting any of them also leaves enough pooled layouts, each big enough, for all of them at once.
+     */
+    public HudText reserve(int glyphs) {
+        lastPrefix = null;
+        text.setLength(0);
+        for (int i = 0; i < glyphs; i++)
+            text.append('0');
+        rebuild();
+        return this;
+    }
+
+    public void draw(Batch batch) {
+        if (text.length() > 0)
+            cache.draw(batch);
+    }
+
+    void rebuild() {
+        cache.clear();
+        if (text.length() == 0)
+            return;
+        float scaleX = font.getData().scaleX;
+        float scaleY = font.getData().scaleY;
+        font.getData().setScale(scale);
+        if (hasShadow) {
+            cache.setColor(shadowColor);
+            cache.addText(text, x + shadowOffsetX, y + shadowOffsetY, width, align, false);
+        }
+        cache.setColor(color);
+        cache.addText(text, x, y, width, align, false);
+        font.getData().setScale(scaleX, scaleY);
+    }
+
+    static boolean contentEquals(CharSequence a, CharSequence b) {
+        if (a.length() != b.length())
+            return false;
+        for (int i = 0; i < a.length(); i++)
+            if (a.charAt(i) != b.charAt(i))
+                return false;
+        return true;
+    }
+}
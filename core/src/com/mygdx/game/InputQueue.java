@@ -0,0 +1,85 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Key presses and releases in the order they happened, waiting for the physics tick they apply to.
+ *
+ * Setting the buttons straight from the key callbacks loses anything shorter than a tick: a key pressed and
+ * let go between two ticks never shows up in the input, and a quick second tap of the jump key merges with
+ * the first. Here each tick takes the events in order, but at most one change per button, so every press is
+ * seen by at least one tick and the rest wait for the following ones. Everything else applies on the next
+ * tick that runs, so queueing costs no latency.
+ *
+ * Each event keeps the time it came in, so the time from a press until the tick that moves the hippo can
+ * be measured.
+ */
+public class InputQueue {
+    static final int CAPACITY = 64; // Power of two; far more than anyone can press between two ticks
+
+    // Ring of events: the MatchInput bits they change, whether they set or clear them, and when they came in
+    final int[] masks = new int[CAPACITY];
+    final boolean[] isDown = new boolean[CAPACITY];
+    final long[] times = new long[CAPACITY];
+    int head = 0, size = 0;
+    int overflows = 0; // Events dropped because the ring was full, shown in the profiler overlay
+
+    // When the presses taken by the last apply() came in
+    final long[] appliedPressTimes = new long[CAPACITY];
+    int appliedPresses = 0;
+
+    // Queue a change to the given hippo's button
+    public void add(int hippo, int button, boolean down) {
+        add(button << (hippo * MatchInput.BITS_PER_HIPPO), down, TimeUtils.nanoTime());
+    }
+
+    public void add(int mask, boolean down, long time) {
+        if (size == CAPACITY) {
+            overflows++;
+            return;
+        }
+        int at = (head + size) & (CAPACITY - 1);
+        masks[at] = mask;
+        isDown[at] = down;
+        times[at] = time;
+        size++;
+    }
+
+    // Apply the events for the next tick to the input; a button already changed in this tick stops the queue
+    public void apply(MatchInput input) {
+        appliedPresses = 0;
+        int changed = 0;
+        while (size > 0) {
+            int mask = masks[head];
+            if ((mask & changed) != 0)
+                break;
+            changed |= mask;
+            if (isDown[head]) {
+                input.bits |= mask;
+                appliedPressTimes[appliedPresses++] = times[head];
+            } else {
+                input.bits &= ~mask;
+            }
+            head = (head + 1) & (CAPACITY - 1);
+            size--;
+        }
+    }
+
+    public int getAppliedPresses() {
+        return appliedPresses;
+    }
+
+    public long getAppliedPressTime(int i) {
+        return appliedPressTimes[i];
+    }
+
+    public int getOverflows() {
+        return overflows;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        appliedPresses = 0;
+    }
+}
@@ -2,6 +2,7 @@ package com.mygdx.game;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
@@ -10,30 +11,46 @@ import com.badlogic.gdx.utils.Align;
 public class InstructionScreen implements Screen {
 
     final VolleyBall game;
+    final int drawPhase; // Timed by the frame profiler
     Texture background;
     Sprite backgroundSprite;
     CharSequence helpMessage;
+    HudText helpText;
 
     public InstructionScreen(final VolleyBall game) {
-        create();
         this.game = game;
+        drawPhase = game.profiler.phase("menu draw");
+        create();
     }
 
     public void create() {
-        background = new Texture("mainscreen.jpg");
+        background = Assets.getBackground(game.assets, Assets.MENU_BACKGROUND);
         backgroundSprite = new Sprite(background);
         backgroundSprite.setBounds(0f, 0f, 950f, 768f);
         backgroundSprite.setAlpha(200f);
+
+        // One and a half times the default font size, in bright green over a black drop shadow that improves readability
+        helpText = new HudText(game.font, Color.GREEN)
+                .setScale(1.5f)
+                .setShadow(Color.BLACK, 0f, -2.5f)
+                .setPosition(0, VolleyBall.SCREEN_HEIGHT - 100, VolleyBall.SCREEN_WIDTH, Align.center);
+    }
+
+    @Override
+    public void show() {
+        // Rebuilt on every visit since the score to win can be changed in the settings
         helpMessage = "Welcome to Hippo Volleyball! \n" +
                 "Click anywhere to return to main menu. \n\n\n\n" +
                 "This game is designed to be played by two players only. \n\n" +
                 "The red hippo starts on the left side of the screen and is controlled with the WASD keys. \n" +
                 "The blue hippo starts on the right side of the screen and is controlled with the arrow keys. \n" +
+                "In two against two, the second red hippo moves with TFH and the second blue hippo with IJL. \n" +
                 "In Hippo Volleyball, you don't abide by the rules set by puny humans. You are allowed to hit \n" +
                 "the ball any number of times in a row, and you can jump over the net to your opponent's side \n" +
                 "to launch an all-out offense. \n\n" +
                 "The first hippo to reach " + VolleyBall.scoreToWin + " points wins the game! \n" +
                 "Click anywhere to return to main menu.";
+        helpText.set(helpMessage);
     }
 
     @Override
@@ -43,32 +60,18 @@ public class InstructionScreen implements Screen {
 
         game.batch.begin();
         backgroundSprite.draw(game.batch);
-        // Before changing the font scale, grab the previous scale values
-        float scaleX = game.font.getData().scaleX;
-        float scaleY = game.font.getData().scaleY;
-        // Set the scale of the font to double the default
-        game.font.getData().setScale(1.5f);
-        // First print the message in pure black; this will provide a drop shadow effect that improves readability
-        game.font.setColor(0f, 0f, 0f, 255f);
-        game.font.draw(game.batch, helpMessage, 0, VolleyBall.SCREEN_HEIGHT - 102.5f, VolleyBall.SCREEN_WIDTH, Align.center, false);
-        // Print the message again in bright green
-        game.font.setColor(0f, 100f, 0f, 255f);
-        game.font.draw(game.batch, helpMessage, 0, VolleyBall.SCREEN_HEIGHT - 100, VolleyBall.SCREEN_WIDTH, Align.center, false);
-        // Set the game font scale back to its previous values
-        game.font.getData().setScale(scaleX, scaleY);
+        helpText.draw(game.batch);
         game.batch.end();
+        game.profiler.lap(drawPhase);
 
         if (Gdx.input.isTouched()) {
-            game.setScreen(new MainMenuScreen(game));
-            dispose();
+            game.setScreen(game.screens.mainMenu());
         }
     }
 
     @Override
     public void resize(int width, int height) {}
     @Override
-    public void show() {}
-    @Override
     public void hide() {}
     @Override
     public void pause() {}
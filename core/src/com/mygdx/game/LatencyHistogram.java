@@ -0,0 +1,101 @@
+package com.mygdx.game;
+
+/**
+ * Counts durations in nanoseconds into log-linear buckets, the way HdrHistogram does: every power of two is
+ * split into SUB_BUCKETS equal buckets, so any value is kept to within 1/SUB_BUCKETS (about 6%) of what it
+ * was, from a nanosecond up to about 17 seconds. Recording is a couple of shifts and an array increment and
+ * allocates nothing, so it can be done every frame.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 34; // 2^34 ns is about 17 s; anything longer goes in the last bucket
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    final int[] counts = new int[BUCKETS];
+    long count;
+    long total; // Sum of all values, for the mean
+    long max;
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts[bucketOf(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    // Adds another histogram's counts to this one
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = 0;
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    // The value below which the given fraction (0 to 1) of the recorded values fall, rounded up to the top of
+    // its bucket but never past the largest value recorded
+    public long getPercentile(double fraction) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long)Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestValueIn(i), max);
+        }
+        return max;
+    }
+
+    // Values below SUB_BUCKETS get a bucket each; above that, the top SUB_BUCKET_BITS bits below the leading
+    // one pick the bucket within the value's power of two
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int)nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT)
+            return BUCKETS - 1;
+        int subBucket = (int)(nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long)(SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        if (bucket == BUCKETS - 1)
+            return Long.MAX_VALUE;
+        return lowestValueIn(bucket + 1) - 1;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.Align;
+
+/**
+ * Shows a progress bar until a set of assets is loaded, then calls loaded() once to move on. The loading
+ * itself is driven by VolleyBall.render(), so this screen only has to watch.
+ */
+public abstract class LoadingScreen implements Screen {
+
+    final VolleyBall game;
+    final String[] required; // Assets that must be in before loaded() is called
+    ShapeRenderer shapes;
+    HudText loadingText; // Has its own color, so the shared font is left as the other screens expect it
+    boolean isDone = false;
+
+    final float BAR_WIDTH = 400f;
+    final float BAR_HEIGHT = 20f;
+
+    public LoadingScreen(final VolleyBall game, String[] required) {
+        this.game = game;
+        this.required = required;
+        shapes = new ShapeRenderer();
+        loadingText = new HudText(game.font, Color.WHITE)
+                .setPosition(0f, (VolleyBall.SCREEN_HEIGHT + BAR_HEIGHT) / 2 + 30f, VolleyBall.SCREEN_WIDTH, Align.center);
+        loadingText.set("Loading...");
+    }
+
+    // Called on the render thread once every required asset can be fetched from game.assets
+    abstract void loaded();
+
+    @Override
+    public void render(float delta) {
+        if (isDone)
+            return;
+        float progress = Assets.progress(game.assets, required);
+        if (progress == 1f) {
+            isDone = true;
+            loaded();
+            dispose();
+            return;
+        }
+
+        Gdx.gl.glClearColor(0.2f, 0.2f, 0.2f, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        // Bar outline, then the filled part
+        float x = (VolleyBall.SCREEN_WIDTH - BAR_WIDTH) / 2;
+        float y = (VolleyBall.SCREEN_HEIGHT - BAR_HEIGHT) / 2;
+        shapes.begin(ShapeRenderer.ShapeType.Line);
+        shapes.setColor(Color.WHITE);
+        shapes.rect(x, y, BAR_WIDTH, BAR_HEIGHT);
+        shapes.end();
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        shapes.setColor(Color.GREEN);
+        shapes.rect(x, y, BAR_WIDTH * progress, BAR_HEIGHT);
+        shapes.end();
+
+        game.batch.begin();
+        loadingText.draw(game.batch);
+        game.batch.end();
+    }
+
+    @Override
+    public void resize(int width, int height) {}
+    @Override
+    public void show() {}
+    @Override
+    public void hide() {}
+    @Override
+    public void pause() {}
+    @Override
+    public void resume() {}
+    @Override
+    public void dispose() {
+        shapes.dispose();
+    }
+}
@@ -7,7 +7,6 @@ import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
@@ -22,109 +21,99 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 public class MainMenuScreen implements Screen {
 
     final VolleyBall game;
-    GameScreen gameScreen = null;
-    InstructionScreen helpScreen = null;
-    MainMenuScreen mainMenuScreen = null;
-    SettingsScreen settingsScreen = null;
+    final int drawPhase, stagePhase; // Timed by the frame profiler
     Texture background;
     Sprite backgroundSprite;
 
     Skin skin;
     Stage stage;
+    TextButton playButton;
     Viewport vport;
 
     public MainMenuScreen(final VolleyBall game) {
-        create();
         this.game = game;
-        mainMenuScreen = this;
+        drawPhase = game.profiler.phase("menu draw");
+        stagePhase = game.profiler.phase("menu stage");
+        create();
     }
 
     public void create() {
         stage = new Stage();
-        Gdx.input.setInputProcessor(stage);
 
-        background = new Texture("mainscreen.jpg");
+        background = Assets.getBackground(game.assets, Assets.MENU_BACKGROUND);
         backgroundSprite = new Sprite(background);
         backgroundSprite.setBounds(0f, 0f, 950f, 768f);
 
-        // A skin can be loaded via JSON or defined programmatically, either is fine. Using a skin is optional but strongly
-        // recommended solely for the convenience of getting a texture, region, etc as a drawable, tinted drawable, etc.
-        skin = new Skin();
-        // Generate a 1x1 white texture and store it in the skin named "white".
-        Pixmap pixmap = new Pixmap(100, 100, Pixmap.Format.RGBA8888);
-        pixmap.setColor(Color.GREEN);
-        pixmap.fill();
-
-        skin.add("white", new Texture(pixmap));
-
-        // Store the default libgdx font under the name "default".
-        BitmapFont bfont = new BitmapFont();
-        bfont.getData().setScale(1, 1);
-        skin.add("default", bfont);
-
-        // Configure a TextButtonStyle and name it "default". Skin resources are stored by type, so this doesn't overwrite the font.
-        TextButton.TextButtonStyle textButtonStyle = new TextButton.TextButtonStyle();
-        textButtonStyle.up = skin.newDrawable("white", Color.DARK_GRAY);
-        textButtonStyle.down = skin.newDrawable("white", Color.DARK_GRAY);
-        textButtonStyle.checked = skin.newDrawable("white", Color.BLUE);
-        textButtonStyle.over = skin.newDrawable("white", Color.LIGHT_GRAY);
-
-        textButtonStyle.font = skin.getFont("default");
-
-        skin.add("default", textButtonStyle);
+        // The button styles are shared with the other menu screens
+        skin = game.resources.getSkin(ResourceCache.MENU_SKIN);
+        TextButton.TextButtonStyle textButtonStyle = skin.get(ResourceCache.BUTTON, TextButton.TextButtonStyle.class);
 
-        // Create a button with the "default" TextButtonStyle. A 3rd parameter can be used to specify a name other than "default".
-        final TextButton playButton = new TextButton("PLAY", textButtonStyle);
-        playButton.setPosition(150, 75);
+        // PLAY stays highlighted while the game is starting
+        playButton = new TextButton("PLAY", skin.get(ResourceCache.TOGGLE_BUTTON, TextButton.TextButtonStyle.class));
+        playButton.setProgrammaticChangeEvents(false); // So show() can reset it without starting a game
+        playButton.setPosition(100, 75);
         stage.addActor(playButton);
         //stage.addActor(textButton);
         //stage.addActor(textButton);
         playButton.addListener(new ChangeListener() {
             public void changed(ChangeEvent event, Actor actor) {
                 playButton.setText("Starting new game");
-                if (gameScreen == null)
-                    gameScreen = new GameScreen(game);
-                game.setScreen(gameScreen);
-                gameScreen.startNewGame();
-                dispose();
+                // The game assets are normally in by now; if not, wait for the rest of them
+                if (Assets.isLoaded(game.assets, Assets.gameAssets()))
+                    startGame();
+                else
+                    game.setScreen(new LoadingScreen(game, Assets.gameAssets()) {
+                        @Override
+                        void loaded() {
+                            startGame();
+                        }
+                    });
             }
         });
 
         final TextButton helpButton = new TextButton("HELP", textButtonStyle);
-        helpButton.setPosition(350, 75);
+        helpButton.setPosition(270, 75);
         stage.addActor(helpButton);
         helpButton.addListener(new ChangeListener() {
             public void changed(ChangeEvent event, Actor actor) {
-                if (helpScreen == null)
-                    helpScreen = new InstructionScreen(game);
-                game.setScreen(helpScreen);
-                dispose();
+                game.setScreen(game.screens.instructions());
+            }
+        });
+
+        final TextButton statsButton = new TextButton("STATS", textButtonStyle);
+        statsButton.setPosition(440, 75);
+        stage.addActor(statsButton);
+        statsButton.addListener(new ChangeListener() {
+            public void changed(ChangeEvent event, Actor actor) {
+                game.setScreen(game.screens.stats());
             }
         });
 
         final TextButton settingsButton = new TextButton("SETTINGS", textButtonStyle);
-        settingsButton.setPosition(550, 75);
+        settingsButton.setPosition(610, 75);
         stage.addActor(settingsButton);
         settingsButton.addListener(new ChangeListener() {
             public void changed(ChangeEvent event, Actor actor) {
-                if (settingsScreen == null)
-                    settingsScreen = new SettingsScreen(game);
-                game.setScreen(settingsScreen);
-                dispose();
+                game.setScreen(game.screens.settings());
             }
         });
 
         final TextButton exitButton = new TextButton("QUIT", textButtonStyle);
-        exitButton.setPosition(750, 75);
+        exitButton.setPosition(780, 75);
         stage.addActor(exitButton);
         exitButton.addListener(new ChangeListener() {
             public void changed(ChangeEvent event, Actor actor) {
                 Gdx.app.exit();
-                dispose();
             }
         });
     }
 
+    void startGame() {
+        GameScreen gameScreen = game.screens.match();
+        game.setScreen(gameScreen);
+        gameScreen.startNewGame();
+    }
+
     @Override
     public void render(float delta) {
         Gdx.gl.glClearColor(0.2f, 0.2f, 0.2f, 1);
@@ -132,15 +121,22 @@ public class MainMenuScreen implements Screen {
         game.batch.begin();
         backgroundSprite.draw(game.batch);
         game.batch.end();
+        game.profiler.lap(drawPhase);
 
         stage.act(Math.min(Gdx.graphics.getDeltaTime(), 1 / 30f));
         stage.draw();
+        game.profiler.lap(stagePhase);
     }
 
     @Override
     public void resize(int width, int height) {}
     @Override
-    public void show() {}
+    public void show() {
+        Gdx.input.setInputProcessor(stage);
+        // This screen is reused, so undo what the last click on PLAY did to the button
+        playButton.setText("PLAY");
+        playButton.setChecked(false);
+    }
     @Override
     public void hide() {}
     @Override
@@ -149,8 +145,8 @@ public class MainMenuScreen implements Screen {
     public void resume() {}
     @Override
     public void dispose() {
-        background.dispose();
+        // The background belongs to the asset manager
         stage.dispose();
-        skin.dispose();
+        game.resources.release(ResourceCache.MENU_SKIN);
     }
 }
\ No newline at end of file
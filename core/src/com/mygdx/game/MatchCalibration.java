@@ -0,0 +1,56 @@
+package com.mygdx.game;
+
+/**
+ * The tunable physics values of a match. The defaults are the hand-tuned values the game ships with;
+ * the batch runner builds other combinations of them to compare how matches play out.
+ */
+public class MatchCalibration {
+    // Hippo calibrations
+    public float hippoFriction = 50f; // Very little sliding on the ground
+    public float horizontalVelocity = 100f; // Velocity when pressing or holding Left/Right or A/D
+    public float maxHorizontalVelocity = 6.75f; // Max horizontal speed
+    public float jumpVelocity = 225f; // Initial velocity when pressing Up or W
+    public float jumpHoldVelocity = 75f; // Incremental velocity when holding Up or W
+    public float maxJumpHeight = 600f; // Constraint to prevent hippos from perpetually floating up
+
+    // Other calibrations
+    public float ballDensity = 1.5f; // Less density than the hippos
+    public float ballRestitution = 0.7f; // Unlike the hippos, the ball will bounce off everything
+    public float netRestitution = 0.75f; // Hippos and ball will retain most of their velocity upon collision with the net
+
+    // Party modes
+    public int hipposPerSide = 1; // Up to MatchSimulation.MAX_HIPPOS_PER_SIDE
+    public int ballCount = 1; // Up to MatchSimulation.MAX_BALLS
+
+    // Continuous collision, substeps and a bounded restitution for a fast ball; off only to play back replays
+    // recorded before the match had them
+    public boolean adaptiveStepping = true;
+
+    public MatchCalibration() {}
+
+    public MatchCalibration(MatchCalibration other) {
+        hippoFriction = other.hippoFriction;
+        horizontalVelocity = other.horizontalVelocity;
+        maxHorizontalVelocity = other.maxHorizontalVelocity;
+        jumpVelocity = other.jumpVelocity;
+        jumpHoldVelocity = other.jumpHoldVelocity;
+        maxJumpHeight = other.maxJumpHeight;
+        ballDensity = other.ballDensity;
+        ballRestitution = other.ballRestitution;
+        netRestitution = other.netRestitution;
+        hipposPerSide = other.hipposPerSide;
+        ballCount = other.ballCount;
+        adaptiveStepping = other.adaptiveStepping;
+    }
+
+    @Override
+    public String toString() {
+        return "hippoFriction=" + hippoFriction +
+                " jumpVelocity=" + jumpVelocity +
+                " maxHorizontalVelocity=" + maxHorizontalVelocity +
+                " ballRestitution=" + ballRestitution +
+                " netRestitution=" + netRestitution +
+                (hipposPerSide != 1 || ballCount != 1 ? " hipposPerSide=" + hipposPerSide + " ballCount=" + ballCount : "") +
+                (adaptiveStepping ? "" : " adaptiveStepping=false");
+    }
+}
@@ -0,0 +1,270 @@
+package com.mygdx.game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * A hash of the match after each of its last ticks, for telling where two simulations of the same match
+ * went apart: a replay played on two devices, or the two peers of an online match. Set on a match with
+ * MatchSimulation.setChecksums(), it is recorded at the end of every tick, keyed by the match's tick count,
+ * so a tick simulated again after a rollback replaces what was recorded for it.
+ *
+ * Each hippo and ball gets a hash of its position, angle and velocities, and the rules one of the scores,
+ * round and whether the ball has landed; the tick's hash combines them. Values are quantized first, so
+ * differences that can't change what happens next, like -0 against 0, don't count. compare() finds the
+ * first tick two of these disagree on, and which body it was.
+ *
+ * A checksum file is the header (magic, version, the layout) and then the hashes of every tick kept.
+ */
+public class MatchChecksums {
+    static final int MAGIC = 0x48564353; // "HVCS"
+    static final int VERSION = 1;
+
+    public static final float UNITS = 65536f; // Per meter, meter per second, radian and radian per second
+    public static final int RULES = -1; // compare()'s body when the rules differ
+    static final int COMBINED = 0, RULE_HASH = 1, FIRST_BODY = 2; // Each tick's hashes, in this order
+
+    final int capacity; // Ticks kept; a power of two
+    int hippoCount, ballCount;
+    int rightHippos; // Bit per hippo that plays on the right
+    int stride; // Hashes per tick
+    int[] hashes = new int[0]; // Tick t's start at (t & (capacity - 1)) * stride
+    long firstTick = 0, lastTick = -1; // Every tick in between is kept
+
+    public MatchChecksums(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        this.capacity = capacity;
+    }
+
+    // Forget everything, and take the layout of the match about to be recorded
+    public void reset(MatchSimulation match) {
+        MatchEntities entities = match.entities;
+        rightHippos = 0;
+        for (int i = 0; i < entities.hippoCount; i++)
+            if (entities.sides[entities.hippos[i]] == MatchInput.RIGHT_HIPPO)
+                rightHippos |= 1 << i;
+        setLayout(entities.hippoCount, entities.ballCount);
+    }
+
+    void setLayout(int hippoCount, int ballCount) {
+        this.hippoCount = hippoCount;
+        this.ballCount = ballCount;
+        stride = FIRST_BODY + hippoCount + ballCount;
+        if (hashes.length != capacity * stride)
+            hashes = new int[capacity * stride];
+        firstTick = 0;
+        lastTick = -1;
+    }
+
+    /** Hashes the match as it is after its latest tick and keeps it; returns the tick's hash. */
+    public int record(MatchSimulation match) {
+        long tick = match.tickCount;
+        if (tick > lastTick + 1 || tick < firstTick)
+            firstTick = tick; // Not following on from what is kept; start over from here
+        lastTick = tick; // Anything recorded after this tick was undone by a rollback
+        firstTick = Math.max(firstTick, tick - capacity + 1);
+
+        MatchEntities entities = match.entities;
+        int at = (int)(tick & (capacity - 1)) * stride;
+        int rules = mix(0, match.leftScore);
+        rules = mix(rules, match.rightScore);
+        rules = mix(rules, match.roundCount);
+        rules = mix(rules, match.hasBallLanded ? 1 : 0);
+        hashes[at + RULE_HASH] = rules;
+        int combined = mix(0, rules);
+        int body = at + FIRST_BODY;
+        for (int i = 0; i < entities.hippoCount; i++, body++) {
+            hashes[body] = hash(entities.bodies[entities.hippos[i]]);
+            combined = mix(combined, hashes[body]);
+        }
+        for (int i = 0; i < entities.ballCount; i++, body++) {
+            hashes[body] = hash(entities.bodies[entities.balls[i]]);
+            combined = mix(combined, hashes[body]);
+        }
+        hashes[at + COMBINED] = combined;
+        return combined;
+    }
+
+    static int hash(Body body) {
+        Vector2 position = body.getPosition();
+        Vector2 velocity = body.getLinearVelocity();
+        int hash = mix(0, quantize(position.x));
+        hash = mix(hash, quantize(position.y));
+        hash = mix(hash, quantize(body.getAngle()));
+        hash = mix(hash, quantize(velocity.x));
+        hash = mix(hash, quantize(velocity.y));
+        return mix(hash, quantize(body.getAngularVelocity()));
+    }
+
+    static int quantize(float value) {
+        return Math.round(value * UNITS);
+    }
+
+    // One step of MurmurHash3: cheap, and a change in any bit of the value changes about half the hash
+    static int mix(int hash, int value) {
+        value *= 0xcc9e2d51;
+        value = Integer.rotateLeft(value, 15);
+        value *= 0x1b873593;
+        hash ^= value;
+        hash = Integer.rotateLeft(hash, 13);
+        return hash * 5 + 0xe6546b64;
+    }
+
+    public boolean has(long tick) { return tick >= firstTick && tick <= lastTick; }
+    public long getFirstTick() { return firstTick; }
+    public long getLastTick() { return lastTick; }
+    public int getBodyCount() { return hippoCount + ballCount; }
+
+    public int get(long tick) { return hashes[index(tick) + COMBINED]; }
+    public int getRules(long tick) { return hashes[index(tick) + RULE_HASH]; }
+    public int getBody(long tick, int body) { return hashes[index(tick) + FIRST_BODY + body]; }
+
+    int index(long tick) {
+        if (!has(tick))
+            throw new IllegalArgumentException("Tick " + tick + " is not kept: " + firstTick + " to " + lastTick);
+        return (int)(tick & (capacity - 1)) * stride;
+    }
+
+    // The hippos by color, then the balls; each counted from 1 in the order the match keeps them
+    public String describeBody(int body) {
+        if (body == RULES)
+            return "the score or round";
+        if (body >= hippoCount)
+            return "ball " + (body - hippoCount + 1);
+        boolean isRight = (rightHippos & 1 << body) != 0;
+        int number = 1;
+        for (int i = 0; i < body; i++)
+            if (((rightHippos & 1 << i) != 0) == isRight)
+                number++;
+        return (isRight ? "blue" : "red") + " hippo " + number;
+    }
+
+    /** Where two recordings of the same match first disagree, among the ticks both kept. */
+    public static class Divergence {
+        public long tick; // The first tick after which the two differ
+        public int body; // The first body that differs then, or RULES
+        public int parts; // Everything that differs then: bit 0 for the rules, bit 1 + body for each body
+        public long firstCommonTick, lastCommonTick; // What was compared
+        public int ticksDiffering; // Of those; online, the host's corrections can bring the two back together
+
+        public String describe(MatchChecksums checksums) {
+            StringBuilder text = new StringBuilder("first diverged at tick ").append(tick).append(" in ");
+            for (int part = RULES; part < checksums.getBodyCount(); part++) {
+                if ((parts & 1 << (part + 1)) == 0)
+                    continue;
+                if (part != body)
+                    text.append(" and ");
+                text.append(checksums.describeBody(part));
+            }
+            return text.append(", ").append(ticksDiffering).append(" of ticks ").append(firstCommonTick).append(" to ")
+                    .append(lastCommonTick).append(" differ").toString();
+        }
+    }
+
+    /**
+     * Compares the ticks both have; null if they agree on every one. Recordings of matches with different
+     * layouts diverge at their first common tick.
+     */
+    public static Divergence compare(MatchChecksums a, MatchChecksums b) {
+        long first = Math.max(a.firstTick, b.firstTick), last = Math.min(a.lastTick, b.lastTick);
+        boolean isSameLayout = a.hippoCount == b.hippoCount && a.ballCount == b.ballCount
+                && a.rightHippos == b.rightHippos;
+        Divergence divergence = null;
+        for (long tick = first; tick <= last; tick++) {
+            if (isSameLayout && a.get(tick) == b.get(tick))
+                continue;
+            if (divergence == null) {
+                divergence = new Divergence();
+                divergence.tick = tick;
+                divergence.parts = isSameLayout ? differingParts(a, b, tick) : 1;
+                divergence.body = Integer.numberOfTrailingZeros(divergence.parts) - 1;
+                divergence.firstCommonTick = first;
+                divergence.lastCommonTick = last;
+            }
+            divergence.ticksDiffering++;
+        }
+        return divergence;
+    }
+
+    static int differingParts(MatchChecksums a, MatchChecksums b, long tick) {
+        int parts = a.getRules(tick) != b.getRules(tick) ? 1 : 0;
+        for (int body = 0; body < a.getBodyCount(); body++)
+            if (a.getBody(tick, body) != b.getBody(tick, body))
+                parts |= 1 << (body + 1);
+        return parts == 0 ? 1 : parts; // Only the parts' hashes colliding in the tick's leaves nothing
+    }
+
+    public void save(FileHandle file) {
+        OutputStream out = file.write(false);
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't write checksums " + file, e);
+        } finally {
+            try { out.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    public static MatchChecksums load(FileHandle file) {
+        InputStream in = file.read();
+        try {
+            return read(in);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't read checksums " + file, e);
+        } finally {
+            try { in.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(hippoCount);
+        out.writeByte(ballCount);
+        out.writeByte(rightHippos);
+        out.writeLong(firstTick);
+        out.writeLong(lastTick);
+        for (long tick = firstTick; tick <= lastTick; tick++) {
+            int at = index(tick);
+            for (int i = 0; i < stride; i++)
+                out.writeInt(hashes[at + i]);
+        }
+        out.flush();
+    }
+
+    // Sized to hold exactly the ticks in the file
+    public static MatchChecksums read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a checksum file");
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported checksum version " + version);
+        int hippoCount = in.readUnsignedByte(), ballCount = in.readUnsignedByte(), rightHippos = in.readUnsignedByte();
+        long firstTick = in.readLong(), lastTick = in.readLong();
+        int ticks = (int)Math.max(0, lastTick - firstTick + 1);
+        MatchChecksums checksums = new MatchChecksums(Math.max(1, Integer.highestOneBit(Math.max(1, ticks - 1)) << 1));
+        checksums.rightHippos = rightHippos;
+        checksums.setLayout(hippoCount, ballCount);
+        checksums.firstTick = firstTick;
+        checksums.lastTick = lastTick;
+        for (long tick = firstTick; tick <= lastTick; tick++) {
+            int at = checksums.index(tick);
+            for (int i = 0; i < checksums.stride; i++)
+                checksums.hashes[at + i] = in.readInt();
+        }
+        return checksums;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Fixture;
+
+/**
+ * The bodies of a match and the state the rules keep for each, stored as components: an entity is an index,
+ * and each component is an array indexed by it. MatchSimulation's systems (input, held forces, tunneling,
+ * round setup, saving state) are loops over the hippo or ball lists below, so adding a hippo or a ball adds
+ * an iteration, not another copy of the code, and a system only touches the arrays it needs.
+ *
+ * Entities are only added while the match is built, in a fixed order; Box2D steps its bodies in the order
+ * they were created, so the same layout always gives the same match.
+ */
+public class MatchEntities {
+    public static final int CAPACITY = 32; // Hippos, balls, the net and the four screen edges
+
+    // Kinds of entity; contacts are routed by the pair of kinds involved
+    public static final int BALL = 0;
+    public static final int HIPPO = 1;
+    public static final int GROUND = 2; // The bottom edge
+    public static final int WALL = 3; // The net and the other screen edges
+    public static final int KIND_COUNT = 4;
+
+    int count = 0;
+
+    // Every entity
+    final Body[] bodies = new Body[CAPACITY];
+    final int[] kinds = new int[CAPACITY];
+
+    // Hippos: the input slot that moves the hippo, the side of the net it plays on (MatchInput.LEFT_HIPPO or
+    // RIGHT_HIPPO), how much jump force it has had since leaving the ground, and the buttons it is holding
+    final int[] controllers = new int[CAPACITY];
+    final int[] sides = new int[CAPACITY];
+    final float[] jumpHeights = new float[CAPACITY];
+    final int[] heldButtons = new int[CAPACITY];
+    final boolean[] isAirborne = new boolean[CAPACITY];
+    final boolean[] isFlipped = new boolean[CAPACITY]; // Facing left
+
+    // Balls: where the ball was before the latest step, whether it is already outside the field or inside a
+    // hippo, and whether it is stepped with continuous collision against the hippos
+    final float[] lastX = new float[CAPACITY], lastY = new float[CAPACITY];
+    final boolean[] isOutOfField = new boolean[CAPACITY];
+    final boolean[] isInsideHippo = new boolean[CAPACITY];
+    final boolean[] isBullet = new boolean[CAPACITY];
+
+    // Hippos and balls: the entities after this one it was touching after the latest step, as bits. Only kept
+    // when MatchSimulation rebuilds its world every tick, as the events are found from these then.
+    final int[] touching = new int[CAPACITY];
+
+    // The entities that have each set of components, in the order they were added
+    final int[] hippos = new int[CAPACITY];
+    int hippoCount = 0;
+    final int[] balls = new int[CAPACITY];
+    int ballCount = 0;
+
+    // Adds an entity with no components beyond its body; the body's fixtures are tagged with the entity
+    public int add(Body body, int kind) {
+        if (count == CAPACITY)
+            throw new IllegalStateException("More than " + CAPACITY + " entities");
+        int entity = count++;
+        bodies[entity] = body;
+        kinds[entity] = kind;
+        for (Fixture fixture : body.getFixtureList())
+            fixture.setUserData(entity);
+        return entity;
+    }
+
+    // Swaps an entity's body for a copy of it, e.g. in a rebuilt world, and tags the copy's fixtures
+    void setBody(int entity, Body body) {
+        bodies[entity] = body;
+        for (Fixture fixture : body.getFixtureList())
+            fixture.setUserData(entity);
+    }
+
+    public int addHippo(Body body, int controller, int side) {
+        int entity = add(body, HIPPO);
+        controllers[entity] = controller;
+        sides[entity] = side;
+        isFlipped[entity] = side == MatchInput.RIGHT_HIPPO; // Each hippo starts out facing the net
+        hippos[hippoCount++] = entity;
+        return entity;
+    }
+
+    public int addBall(Body body) {
+        int entity = add(body, BALL);
+        balls[ballCount++] = entity;
+        return entity;
+    }
+
+    // The first hippo moved by the given input slot, or -1 if there is none
+    public int hippoOf(int controller) {
+        for (int i = 0; i < hippoCount; i++)
+            if (controllers[hippos[i]] == controller)
+                return hippos[i];
+        return -1;
+    }
+
+    // Accessors for drawing and for drivers outside this package
+    public int getCount() { return count; }
+    public int getKind(int entity) { return kinds[entity]; }
+    public Body getBody(int entity) { return bodies[entity]; }
+    public int getHippoCount() { return hippoCount; }
+    public int getHippo(int i) { return hippos[i]; }
+    public int getBallCount() { return ballCount; }
+    public int getBall(int i) { return balls[i]; }
+    public int getSide(int hippo) { return sides[hippo]; }
+    public boolean isFlipped(int hippo) { return isFlipped[hippo]; }
+}
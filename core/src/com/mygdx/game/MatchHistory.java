@@ -0,0 +1,369 @@
+package com.mygdx.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * The result of every match played on this device, kept across launches, and running totals over all of
+ * them for the stats screen.
+ *
+ * Results go into an append-only log of fixed-size records, after an 8 byte header:
+ *   int    MAGIC
+ *   short  VERSION
+ *   short  RECORD_SIZE
+ * and each record, big endian:
+ *   long   when the match ended, in milliseconds since the epoch
+ *   byte   flags: RIGHT_WON, ONLINE
+ *   byte   hippos per side
+ *   byte   balls
+ *   byte   opponent: 0 for a second player, else the computer's level + 1
+ *   short  left score, right score
+ *   int    hippo touches of the ball
+ *   int    ticks played
+ *   short  longest run of points in a row by the left side, then by the right side
+ *   int    unused, 0
+ *
+ * The totals are kept up to date one record at a time and saved next to the log with the number of records
+ * they cover, so opening the history reads a few dozen bytes however many matches were played. If the log
+ * has records the totals don't cover (the game was killed in between), or the totals are missing, only those
+ * records are read, through a memory-mapped view of the log. A record cut short by a crash is dropped.
+ *
+ * All file access happens on one background thread, in order. The render thread only hands over a result
+ * and reads the latest Totals, which are never changed once published.
+ */
+public class MatchHistory {
+    static final int MAGIC = 0x48564d48; // "HVMH"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 32;
+    static final int TOTALS_MAGIC = 0x48565453; // "HVTS"
+    static final int TOTALS_SIZE = 60;
+    public static final int RECENT_MATCHES = 8; // Kept in the totals for the stats screen to list
+    static final long CLOSE_TIMEOUT_SECONDS = 2; // How long closing waits for the last results to be written
+
+    // Flags of a record
+    static final int RIGHT_WON = 1;
+    static final int ONLINE = 2;
+
+    // One finished match
+    public static class Result {
+        public long endTime;
+        public boolean rightWon, isOnline;
+        public int hipposPerSide = 1, ballCount = 1;
+        public int opponent; // 0 for a second player, else the computer's level + 1
+        public int leftScore, rightScore;
+        public int hits;
+        public int ticks;
+        public int longestLeftStreak, longestRightStreak;
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(endTime);
+            buffer.put((byte)((rightWon ? RIGHT_WON : 0) | (isOnline ? ONLINE : 0)));
+            buffer.put((byte)hipposPerSide);
+            buffer.put((byte)ballCount);
+            buffer.put((byte)opponent);
+            buffer.putShort((short)leftScore);
+            buffer.putShort((short)rightScore);
+            buffer.putInt(hits);
+            buffer.putInt(ticks);
+            buffer.putShort((short)longestLeftStreak);
+            buffer.putShort((short)longestRightStreak);
+            buffer.putInt(0);
+        }
+
+        static Result read(ByteBuffer buffer, int at) {
+            Result result = new Result();
+            result.endTime = buffer.getLong(at);
+            int flags = buffer.get(at + 8);
+            result.rightWon = (flags & RIGHT_WON) != 0;
+            result.isOnline = (flags & ONLINE) != 0;
+            result.hipposPerSide = buffer.get(at + 9);
+            result.ballCount = buffer.get(at + 10);
+            result.opponent = buffer.get(at + 11);
+            result.leftScore = buffer.getShort(at + 12);
+            result.rightScore = buffer.getShort(at + 14);
+            result.hits = buffer.getInt(at + 16);
+            result.ticks = buffer.getInt(at + 20);
+            result.longestLeftStreak = buffer.getShort(at + 24);
+            result.longestRightStreak = buffer.getShort(at + 26);
+            return result;
+        }
+    }
+
+    // Totals over the first `matches` records of the log; a new instance is published for every result
+    public static class Totals {
+        public int matches;
+        public int leftWins, rightWins;
+        public long points, hits, ticks;
+        public int longestLeftStreak, longestRightStreak; // Points in a row, in any one match
+        public int winStreak; // Matches in a row won by the same side, up to the latest
+        public boolean isWinStreakRight;
+        public int longestWinStreak;
+        public final Result[] recent = new Result[RECENT_MATCHES]; // Newest first; null past the end
+        public int recentCount;
+
+        Totals copy() {
+            Totals totals = new Totals();
+            totals.matches = matches;
+            totals.leftWins = leftWins;
+            totals.rightWins = rightWins;
+            totals.points = points;
+            totals.hits = hits;
+            totals.ticks = ticks;
+            totals.longestLeftStreak = longestLeftStreak;
+            totals.longestRightStreak = longestRightStreak;
+            totals.winStreak = winStreak;
+            totals.isWinStreakRight = isWinStreakRight;
+            totals.longestWinStreak = longestWinStreak;
+            System.arraycopy(recent, 0, totals.recent, 0, RECENT_MATCHES);
+            totals.recentCount = recentCount;
+            return totals;
+        }
+
+        void add(Result result) {
+            matches++;
+            if (result.rightWon)
+                rightWins++;
+            else
+                leftWins++;
+            points += result.leftScore + result.rightScore;
+            hits += result.hits;
+            ticks += result.ticks;
+            longestLeftStreak = Math.max(longestLeftStreak, result.longestLeftStreak);
+            longestRightStreak = Math.max(longestRightStreak, result.longestRightStreak);
+            if (winStreak > 0 && isWinStreakRight == result.rightWon) {
+                winStreak++;
+            } else {
+                winStreak = 1;
+                isWinStreakRight = result.rightWon;
+            }
+            longestWinStreak = Math.max(longestWinStreak, winStreak);
+            System.arraycopy(recent, 0, recent, 1, RECENT_MATCHES - 1);
+            recent[0] = result;
+            recentCount = Math.min(recentCount + 1, RECENT_MATCHES);
+        }
+
+        // Hippo touches per point
+        public float averageRally() {
+            return points == 0 ? 0f : (float)hits / points;
+        }
+
+        public float averageMatchSeconds() {
+            return matches == 0 ? 0f : ticks * MatchSimulation.TIME_STEP / matches;
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putInt(TOTALS_MAGIC);
+            buffer.putInt(matches);
+            buffer.putInt(leftWins);
+            buffer.putInt(rightWins);
+            buffer.putLong(points);
+            buffer.putLong(hits);
+            buffer.putLong(ticks);
+            buffer.putInt(longestLeftStreak);
+            buffer.putInt(longestRightStreak);
+            buffer.putInt(winStreak);
+            buffer.putInt(isWinStreakRight ? 1 : 0);
+            buffer.putInt(longestWinStreak);
+        }
+
+        // Null if the buffer doesn't hold saved totals
+        static Totals read(ByteBuffer buffer) {
+            if (buffer.remaining() < TOTALS_SIZE || buffer.getInt() != TOTALS_MAGIC)
+                return null;
+            Totals totals = new Totals();
+            totals.matches = buffer.getInt();
+            totals.leftWins = buffer.getInt();
+            totals.rightWins = buffer.getInt();
+            totals.points = buffer.getLong();
+            totals.hits = buffer.getLong();
+            totals.ticks = buffer.getLong();
+            totals.longestLeftStreak = buffer.getInt();
+            totals.longestRightStreak = buffer.getInt();
+            totals.winStreak = buffer.getInt();
+            totals.isWinStreakRight = buffer.getInt() != 0;
+            totals.longestWinStreak = buffer.getInt();
+            return totals;
+        }
+    }
+
+    final FileHandle logFile, totalsFile;
+    final ExecutorService writer;
+    volatile Totals totals; // Null until the history has been opened
+    Totals working; // The writer thread's own copy
+
+    public MatchHistory(FileHandle logFile, FileHandle totalsFile) {
+        this.logFile = logFile;
+        this.totalsFile = totalsFile;
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MatchHistory");
+                thread.setDaemon(true); // Never keeps the game from exiting; close() waits for the last writes
+                return thread;
+            }
+        });
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                open();
+            }
+        });
+    }
+
+    // Queue a result to be appended; returns at once
+    public void add(final Result result) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(result);
+            }
+        });
+    }
+
+    // The totals as of the last result written, or null while the history is still being opened
+    public Totals getTotals() {
+        return totals;
+    }
+
+    // Write what is still queued and stop the writer thread
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // On the writer thread: check the log, and bring the saved totals up to date with it
+    void open() {
+        Totals loaded = null;
+        try {
+            int records = prepareLog();
+            loaded = readTotals(records);
+            if (loaded == null)
+                loaded = new Totals();
+            boolean isBehind = loaded.matches < records;
+            catchUp(loaded, records);
+            if (isBehind)
+                writeTotals(loaded);
+        } catch (IOException e) {
+            Gdx.app.error("MatchHistory", "Couldn't open the match history", e);
+            loaded = new Totals(); // The game goes on; this session's results are still counted
+        }
+        working = loaded;
+        totals = loaded.copy();
+    }
+
+    // On the writer thread
+    void append(Result result) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        result.write(record);
+        record.flip();
+        working.add(result);
+        try {
+            RandomAccessFile file = new RandomAccessFile(logFile.file(), "rw");
+            try {
+                FileChannel channel = file.getChannel();
+                channel.write(record, channel.size());
+            } finally {
+                file.close();
+            }
+            writeTotals(working);
+        } catch (IOException e) {
+            Gdx.app.error("MatchHistory", "Couldn't save the match result", e);
+        }
+        totals = working.copy();
+    }
+
+    // Creates the log if there is none, drops a partly written last record, and returns the number of records
+    int prepareLog() throws IOException {
+        File file = logFile.file();
+        if (file.getParentFile() != null)
+            file.getParentFile().mkdirs();
+        RandomAccessFile log = new RandomAccessFile(file, "rw");
+        try {
+            if (log.length() < HEADER_SIZE) {
+                log.setLength(0);
+                log.writeInt(MAGIC);
+                log.writeShort(VERSION);
+                log.writeShort(RECORD_SIZE);
+                return 0;
+            }
+            if (log.readInt() != MAGIC)
+                throw new IOException("Not a match history: " + logFile);
+            int version = log.readUnsignedShort();
+            int recordSize = log.readUnsignedShort();
+            if (version != VERSION || recordSize != RECORD_SIZE)
+                throw new IOException("Unsupported match history version " + version);
+            long records = (log.length() - HEADER_SIZE) / RECORD_SIZE;
+            long whole = HEADER_SIZE + records * RECORD_SIZE;
+            if (log.length() != whole)
+                log.setLength(whole);
+            return (int)records;
+        } finally {
+            log.close();
+        }
+    }
+
+    // Null if there are no saved totals, or they cover records the log doesn't have
+    Totals readTotals(int records) {
+        if (!totalsFile.exists())
+            return null;
+        try {
+            Totals saved = Totals.read(ByteBuffer.wrap(totalsFile.readBytes()));
+            return saved != null && saved.matches <= records ? saved : null;
+        } catch (GdxRuntimeException e) {
+            return null; // Counted again from the log
+        }
+    }
+
+    // Add the records the totals don't cover yet, and fill in the recent matches, reading the log in place
+    void catchUp(Totals totals, int records) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(logFile.file(), "r");
+        try {
+            MappedByteBuffer log = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_SIZE + (long)records * RECORD_SIZE);
+            for (int i = totals.matches; i < records; i++)
+                totals.add(Result.read(log, HEADER_SIZE + i * RECORD_SIZE));
+            // Saved totals don't keep the recent matches; they are the last few records
+            for (int i = 0; i < RECENT_MATCHES; i++)
+                totals.recent[i] = null;
+            totals.recentCount = 0;
+            for (int i = Math.max(0, records - RECENT_MATCHES); i < records; i++) {
+                System.arraycopy(totals.recent, 0, totals.recent, 1, RECENT_MATCHES - 1);
+                totals.recent[0] = Result.read(log, HEADER_SIZE + i * RECORD_SIZE);
+                totals.recentCount++;
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    // Written aside and moved over the old totals, so a crash leaves either the old or the new ones
+    void writeTotals(Totals totals) {
+        ByteBuffer buffer = ByteBuffer.allocate(TOTALS_SIZE);
+        totals.write(buffer);
+        FileHandle temporary = totalsFile.sibling(totalsFile.name() + ".tmp");
+        try {
+            temporary.writeBytes(buffer.array(), false);
+            temporary.moveTo(totalsFile);
+        } catch (GdxRuntimeException e) {
+            // The next launch counts the results again from the log
+            Gdx.app.error("MatchHistory", "Couldn't save the match totals", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.mygdx.game;
+
+/**
+ * The state of every player control for one physics tick, packed into an int.
+ * Each hippo gets BITS_PER_HIPPO bits, so the whole input fits in a few bits per tick.
+ *
+ * There are MAX_HIPPOS input slots. The first two are the one hippo on each side of a normal match; in
+ * two against two, slots 2 and 3 move the second red and blue hippo. The slot number's lowest bit is the
+ * side the hippo plays on.
+ */
+public class MatchInput {
+    // Which hippo the buttons belong to
+    public static final int LEFT_HIPPO = 0; // Red hippo, controlled with WASD
+    public static final int RIGHT_HIPPO = 1; // Blue hippo, controlled with the arrow keys
+    public static final int MAX_HIPPOS = 4; // Second red hippo with TFH, second blue hippo with IJL
+
+    // Buttons for each hippo
+    public static final int UP = 0x1;
+    public static final int LEFT = 0x1 << 1;
+    public static final int RIGHT = 0x1 << 2;
+    public static final int BITS_PER_HIPPO = 3;
+    public static final int HIPPO_MASK = (0x1 << BITS_PER_HIPPO) - 1;
+    public static final int BUTTON_MASK = (0x1 << (MAX_HIPPOS * BITS_PER_HIPPO)) - 1;
+
+    // Match commands, above the buttons. They are one-shot: set for the tick they apply to, then cleared.
+    public static final int COMMAND_SHIFT = MAX_HIPPOS * BITS_PER_HIPPO;
+    public static final int TOGGLE_PAUSE = 0x1 << COMMAND_SHIFT;
+    public static final int BALL_BOUNCIER = TOGGLE_PAUSE << 1;
+    public static final int BALL_LESS_BOUNCY = TOGGLE_PAUSE << 2;
+    public static final int COMMAND_MASK = TOGGLE_PAUSE | BALL_BOUNCIER | BALL_LESS_BOUNCY;
+    public static final int COMMAND_BITS = 3;
+
+    // The input slot of the given hippo (counting from 0) on the given side
+    public static int slot(int side, int index) {
+        return side + 2 * index;
+    }
+
+    // The buttons held for one slot, as UP, LEFT and RIGHT bits
+    public static int buttons(int bits, int slot) {
+        return bits >> (slot * BITS_PER_HIPPO) & HIPPO_MASK;
+    }
+
+    public int bits;
+
+    public boolean isHeld(int hippo, int button) {
+        return (bits & (button << (hippo * BITS_PER_HIPPO))) != 0;
+    }
+
+    public void set(int hippo, int button, boolean held) {
+        if (held)
+            bits |= button << (hippo * BITS_PER_HIPPO);
+        else
+            bits &= ~(button << (hippo * BITS_PER_HIPPO));
+    }
+
+    public void command(int command) {
+        bits |= command;
+    }
+
+    public boolean hasCommand(int command) {
+        return (bits & command) != 0;
+    }
+
+    // Called after every tick so a command only applies once
+    public void clearCommands() {
+        bits &= ~COMMAND_MASK;
+    }
+
+    public void set(MatchInput other) {
+        bits = other.bits;
+    }
+
+    public void clear() {
+        bits = 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mygdx.game;
+
+/**
+ * Receives the events of a MatchSimulation, so the screen can play sounds and show messages
+ * without the simulation knowing anything about rendering or audio.
+ */
+public interface MatchListener {
+    // A hippo touched the ball
+    void ballHitHippo(boolean rightHippo);
+
+    // The ball landed; rightHippo is true if the right (blue) hippo won the point
+    void pointScored(boolean rightHippo);
+
+    // A hippo reached the winning score with a sufficient margin
+    void gameWon(boolean rightHippo);
+
+    // Bodies were moved back to their starting positions for a new round
+    void roundStarted(int roundCount);
+}
@@ -0,0 +1,935 @@
+package com.mygdx.game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+
+/**
+ * The rules and physics of a hippo volleyball match, with no rendering, audio or input device code.
+ * GameScreen drives it with one MatchInput per tick and draws the bodies; it can just as well be stepped
+ * without a window.
+ *
+ * The hippos and balls are entities in a MatchEntities, as many of each as the calibration asks for: one
+ * hippo a side and one ball normally, two a side or several balls in the party modes. A point is scored by
+ * whichever ball lands first; every ball is served again at the start of the next round.
+ */
+public class MatchSimulation {
+    // Implement pause/resume
+    State state = State.RUN;
+
+    World world;
+    final MatchEntities entities = new MatchEntities();
+    final int hipposPerSide, ballCount;
+    MatchListener listener;
+    ContactListener contactListener;
+    final float fieldWidth, fieldHeight; // Size of the playing field in pixels
+    final RandomXS128 random = new RandomXS128(); // Coin flips; seed it to make a match reproducible
+
+    // Variables for handling hippo movement; what each hippo is doing is in its components
+    boolean isMovementAllowed = true; // Enable/disable player control for hippos
+    int previousInput = 0; // Input bits of the previous tick, used to detect presses and releases
+
+    // Variables for score handling and round transition
+    int leftScore = 0, rightScore = 0; // Tracking score for both players
+    int roundCount = 0; // Tracking number of rounds
+    boolean hasBallLanded = false; // If the ball has already landed once for the round, disregard any other times
+    boolean scoringHippo; // Which hippo will serve next round? False = leftHippo, true = rightHippo
+    boolean isNextRoundStarting; // Do not allow players to pause/resume the game while this is true
+    boolean rightWin = false, leftWin = false; // Which hippo has won the game?
+    float timeSinceLanding = 0f; // Timer until game state is paused and round transitions (players cannot pause/resume during this time)
+    float timeUntilStart; // Timer until the new round starts and game state is resumed (players cannot pause/resume during this time)
+    int scoreToWin = VolleyBall.scoreToWin;
+    int scoreMargin = VolleyBall.scoreMargin;
+    long tickCount = 0; // Number of ticks simulated since the simulation was created
+    MatchChecksums checksums; // Hashed after every tick when set
+    boolean servingHippo; // Which hippo served the current round? False = leftHippo, true = rightHippo
+
+    // Online play rebuilds the world before every tick; see setRebuildingWorld()
+    boolean isRebuildingWorld = false;
+    final int[] previousTouching = new int[MatchEntities.CAPACITY]; // MatchEntities.touching before the step
+    final BodyDef copyBodyDef = new BodyDef();
+    final FixtureDef copyFixtureDef = new FixtureDef();
+
+    // Ball tunneling detection
+    int tunnelingCount = 0; // Number of times a ball passed through the net or left the field
+
+    // Sizes of the sprites in pixels; the bodies are built to match them
+    public static final float HIPPO_WIDTH = 100f, HIPPO_HEIGHT = 124f;
+    public static final float BALL_DIAMETER = 50f;
+    public static final float NET_WIDTH = 28f, NET_HEIGHT = 355f;
+    public static final float NET_Y = -525f; // Bottom edge of the net sprite
+
+    // Hippo calibrations; the tunable ones come from the MatchCalibration the simulation was built with
+    public static final float HIPPO_SCALE = 1.25f; // Decides the size of the hippo; density and velocity variables are scaled by this value
+    final float HIPPO_DENSITY = 0f; // Do not use density for hippos; libgdx will assign a mass value which will remain constant when scaling the hippo size up or down
+    final float HIPPO_RESTITUTION = 0.0f; // No bounce on collision with the ground
+    final float HIPPO_FRICTION;
+    final float HORIZONTAL_VELOCITY;
+    final float MAX_HORIZONTAL_VELOCITY;
+    final float JUMP_VELOCITY;
+    final float JUMP_HOLD_VELOCITY;
+    final float MAX_JUMP_HEIGHT;
+
+    // Other calibrations
+    final float BALL_DENSITY;
+    final float BALL_RESTITUTION;
+    final float NET_RESTITUTION;
+    public static final float NET_SCALE = 1f;
+    final float TIME_TO_NEXT_ROUND = 2f; // Wait 2 seconds after scoring to start next round
+    public static final float PIXELS_TO_METERS = 100f;
+
+    // Physics timestep calibrations
+    public static final float TIME_STEP = 1f/60f; // The simulation always advances in steps of this size
+    final int VELOCITY_ITERATIONS = 6;
+    final int POSITION_ITERATIONS = 2;
+
+    // Adaptive stepping. A step may move a ball at most its radius towards anything it can hit; closer than
+    // that, Box2D's discrete contacts still catch it. The net and edges are static, so Box2D already sweeps
+    // the ball against them, but not against the hippos: a ball closing in on a hippo faster than half that is
+    // made a bullet, which is swept against them too. A tick in which a ball would go further still is split
+    // into substeps, solved with more iterations, as it holds the contacts with the most energy in them.
+    // A ball that is slow next to everything it can hit is stepped exactly as before.
+    final boolean isAdaptiveStepping;
+    final float BALL_RADIUS = BALL_DIAMETER / 2 / PIXELS_TO_METERS;
+    final float MAX_STEP_TRAVEL = BALL_RADIUS;
+    final float BULLET_STEP_TRAVEL = MAX_STEP_TRAVEL / 2;
+    final int MAX_SUBSTEPS = 8; // Past this the ball is capped by Box2D's own limit on travel per step anyway
+    final int FAST_VELOCITY_ITERATIONS = 10;
+    final int FAST_POSITION_ITERATIONS = 4;
+    public static final float MAX_BALL_RESTITUTION = 1f; // Any bouncier and the ball gains speed on every bounce
+
+    // Entity definitions
+    final short HIPPO_ENTITY = 0x1; // Hippos will not collide with each other
+    final short BALL_ENTITY = 0x1 << 1; // The ball collides with hippos and the world
+    final short WORLD_ENTITY = 0x1 << 2;
+
+    // What a contact between two kinds of entity means
+    static final int NO_ACTION = 0;
+    static final int BALL_LANDED = 1;
+    static final int HIPPO_HIT_BALL = 2;
+    static final int HIPPO_LANDED = 3;
+    static final int HIPPO_LEFT_GROUND = 4;
+
+    // Action for every pair of entity kinds, indexed by kindA * KIND_COUNT + kindB
+    final int[] beginActions = new int[MatchEntities.KIND_COUNT * MatchEntities.KIND_COUNT];
+    final int[] endActions = new int[MatchEntities.KIND_COUNT * MatchEntities.KIND_COUNT];
+
+    // Party modes; the input has a slot for each hippo, and the entities room for a few balls
+    public static final int MAX_HIPPOS_PER_SIDE = MatchInput.MAX_HIPPOS / 2;
+    public static final int MAX_BALLS = 8;
+
+    /**
+     * @param fieldWidth width of the playing field in pixels
+     * @param fieldHeight height of the playing field in pixels
+     */
+    public MatchSimulation(float fieldWidth, float fieldHeight, MatchListener listener) {
+        this(fieldWidth, fieldHeight, new MatchCalibration(), listener);
+    }
+
+    public MatchSimulation(float fieldWidth, float fieldHeight, MatchCalibration calibration, MatchListener listener) {
+        this.listener = listener;
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+
+        HIPPO_FRICTION = calibration.hippoFriction;
+        HORIZONTAL_VELOCITY = calibration.horizontalVelocity;
+        MAX_HORIZONTAL_VELOCITY = calibration.maxHorizontalVelocity;
+        JUMP_VELOCITY = calibration.jumpVelocity;
+        JUMP_HOLD_VELOCITY = calibration.jumpHoldVelocity;
+        MAX_JUMP_HEIGHT = calibration.maxJumpHeight;
+        BALL_DENSITY = calibration.ballDensity;
+        NET_RESTITUTION = calibration.netRestitution;
+        hipposPerSide = calibration.hipposPerSide;
+        ballCount = calibration.ballCount;
+        isAdaptiveStepping = calibration.adaptiveStepping;
+        // A bouncier calibration would build a ball that gains speed until it is trapped against the ceiling
+        BALL_RESTITUTION = isAdaptiveStepping ? boundRestitution(calibration.ballRestitution) : calibration.ballRestitution;
+        if (hipposPerSide < 1 || hipposPerSide > MAX_HIPPOS_PER_SIDE || ballCount < 1 || ballCount > MAX_BALLS)
+            throw new IllegalArgumentException("Unsupported layout: " + hipposPerSide + " hippos a side, " + ballCount + " balls");
+
+        world = new World(new Vector2(0, -15f),true);
+        world.setAutoClearForces(false); // Cleared once the whole tick is stepped; see step()
+
+        /*
+        // BEGIN BODY DEFINITIONS
+        */
+        // The right hippo first on each pair, as the bodies have always been created in this order
+        for (int i = 0; i < hipposPerSide; i++) {
+            entities.addHippo(createHippo(0f, 0f, HIPPO_WIDTH, HIPPO_HEIGHT),
+                    MatchInput.slot(MatchInput.RIGHT_HIPPO, i), MatchInput.RIGHT_HIPPO);
+            entities.addHippo(createHippo(0f, 0f, HIPPO_WIDTH, HIPPO_HEIGHT),
+                    MatchInput.slot(MatchInput.LEFT_HIPPO, i), MatchInput.LEFT_HIPPO);
+        }
+        for (int i = 0; i < ballCount; i++)
+            entities.addBall(createBall(0f, 0f, BALL_DIAMETER));
+        entities.add(createNet(-NET_WIDTH/2, NET_Y, NET_WIDTH, NET_HEIGHT), MatchEntities.WALL);
+        // End body definitions
+
+        /*
+        // BEGIN EDGE DEFINITIONS
+        */
+        // Set the height to just 50 pixels above the bottom of the screen so we have a place to
+        // display the score counters
+        float w = fieldWidth/PIXELS_TO_METERS;
+        float h = fieldHeight/PIXELS_TO_METERS - 50/PIXELS_TO_METERS;
+
+        entities.add(createScreenEdge(-w/2, -h/2, w/2, -h/2), MatchEntities.GROUND);
+
+        // We don't want the 50 pixel padding for the other edges, so set height to screen height
+        h = fieldHeight/PIXELS_TO_METERS;
+
+        entities.add(createScreenEdge(w/2, h/2, -w/2, h/2, 0f), MatchEntities.WALL); // Top
+        entities.add(createScreenEdge(-w/2, -h/2, -w/2, h/2, 0f), MatchEntities.WALL); // Left
+        entities.add(createScreenEdge(w/2, h/2, w/2, -h/2, 0f), MatchEntities.WALL); // Right
+        // End edge definitions
+
+        /*
+        //  CONTACT ROUTING
+        */
+        // Since we don't know if A/B will be which body, every pair is registered both ways
+        route(beginActions, MatchEntities.BALL, MatchEntities.GROUND, BALL_LANDED); // Listen for when a ball lands on the ground
+        route(beginActions, MatchEntities.BALL, MatchEntities.HIPPO, HIPPO_HIT_BALL); // Hippo contact with ball
+        // This controls jumping; when a hippo touches the ground, mark it as NOT airborne,
+        // and when it leaves the ground, mark it as airborne
+        route(beginActions, MatchEntities.HIPPO, MatchEntities.GROUND, HIPPO_LANDED);
+        route(endActions, MatchEntities.HIPPO, MatchEntities.GROUND, HIPPO_LEFT_GROUND);
+
+        contactListener = new ContactListener() {
+            @Override
+            public void beginContact(Contact contact) {
+                int a = entityOf(contact.getFixtureA()), b = entityOf(contact.getFixtureB());
+                if (isRebuildingWorld)
+                    entities.touching[Math.min(a, b)] |= 1 << Math.max(a, b);
+                else
+                    dispatch(beginActions[pairIndex(a, b)], a, b);
+            }
+
+            @Override
+            public void endContact(Contact contact) {
+                int a = entityOf(contact.getFixtureA()), b = entityOf(contact.getFixtureB());
+                if (isRebuildingWorld)
+                    entities.touching[Math.min(a, b)] &= ~(1 << Math.max(a, b));
+                else
+                    dispatch(endActions[pairIndex(a, b)], a, b);
+            }
+
+            // Ignore the rest of this
+            @Override
+            public void preSolve(Contact contact, Manifold oldManifold) {}
+            @Override
+            public void postSolve(Contact contact, ContactImpulse impulse) {}
+        };
+        world.setContactListener(contactListener);
+    }
+
+    static void route(int[] actions, int kindA, int kindB, int action) {
+        actions[kindA * MatchEntities.KIND_COUNT + kindB] = action;
+        actions[kindB * MatchEntities.KIND_COUNT + kindA] = action;
+    }
+
+    // Every fixture is tagged with its entity when the entity is added
+    static int entityOf(Fixture fixture) {
+        return (Integer)fixture.getUserData();
+    }
+
+    // Index of a pair of entities' kinds in the action tables
+    int pairIndex(int a, int b) {
+        return entities.kinds[a] * MatchEntities.KIND_COUNT + entities.kinds[b];
+    }
+
+    void dispatch(int action, int a, int b) {
+        switch (action) {
+            case BALL_LANDED:
+                ballLanded(entities.kinds[a] == MatchEntities.BALL ? a : b);
+                break;
+            case HIPPO_HIT_BALL:
+                listener.ballHitHippo(entities.sides[hippoOf(a, b)] == MatchInput.RIGHT_HIPPO);
+                break;
+            case HIPPO_LANDED:
+                entities.isAirborne[hippoOf(a, b)] = false;
+                break;
+            case HIPPO_LEFT_GROUND:
+                entities.isAirborne[hippoOf(a, b)] = true;
+                break;
+        }
+    }
+
+    // The hippo of a pair the action tables routed as having one
+    int hippoOf(int a, int b) {
+        return entities.kinds[a] == MatchEntities.HIPPO ? a : b;
+    }
+
+    void ballLanded(int ball) {
+        // If no ball has landed in the current round, increment score
+        if (hasBallLanded)
+            return;
+        Vector2 ballPos = entities.bodies[ball].getPosition();
+        if (ballPos.x < 0) {
+            rightScore++;
+            scoringHippo = true; // scoringHippo means the right hippo has won the round
+        } else if (ballPos.x > 0) {
+            leftScore++;
+            scoringHippo = false; // !scoringHippo means the left hippo has won the round
+        }
+        // If one of the players has scored enough points to win, and they have a sufficient margin lead
+        if (rightScore >= scoreToWin && rightScore - leftScore >= scoreMargin) {
+            rightWin = true;
+        }
+        else if (leftScore >= scoreToWin && leftScore - rightScore >= scoreMargin) {
+            leftWin = true;
+        }
+
+        // Ball has landed; the round transition happens in tick()
+        hasBallLanded = true;
+        listener.pointScored(scoringHippo);
+    }
+
+    /**
+     * Advances the match by one TIME_STEP: applies the input, steps the world if the game is running,
+     * and runs the round transition timers.
+     */
+    public void tick(MatchInput input) {
+        tickCount++;
+        if (isRebuildingWorld)
+            rebuildWorld();
+        handleCommands(input);
+        handleInput(input.bits & MatchInput.BUTTON_MASK);
+
+        if (state == State.RUN) {
+            applyHeldForces();
+            saveBallPositions();
+            step();
+            checkTunneling();
+        }
+
+        // If the ball has landed, prepare to start next round or end the game
+        if (hasBallLanded && state != State.FINISHED) {
+            if (rightWin || leftWin) {
+                state = State.FINISHED;
+                isMovementAllowed = false;
+                listener.gameWon(rightWin);
+            }
+            else {
+                // Wait one second before pausing and resetting the game state
+                timeSinceLanding += TIME_STEP;
+                if (timeSinceLanding >= TIME_TO_NEXT_ROUND / 2) {
+                    pause();
+                    startNewRound(scoringHippo);
+                }
+            }
+        }
+
+        // If we are preparing to start the next round, count down from 1 second to resume the game state
+        if (isNextRoundStarting) {
+            timeUntilStart -= TIME_STEP;
+            if (timeUntilStart <= 0) {
+                isNextRoundStarting = false;
+                resume();
+            }
+        }
+
+        if (checksums != null)
+            checksums.record(this);
+    }
+
+    // Steps the world by one TIME_STEP, in substeps if a ball is too fast for one
+    void step() {
+        if (isRebuildingWorld) {
+            // The rebuilt world has no contacts yet, so it reports every one that touches during the step
+            System.arraycopy(entities.touching, 0, previousTouching, 0, entities.count);
+            Arrays.fill(entities.touching, 0, entities.count, 0);
+        }
+        int substeps = isAdaptiveStepping ? prepareBalls() : 1;
+        if (substeps == 1) {
+            world.step(TIME_STEP, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+        } else {
+            for (int i = 0; i < substeps; i++)
+                world.step(TIME_STEP / substeps, FAST_VELOCITY_ITERATIONS, FAST_POSITION_ITERATIONS);
+        }
+        // The forces applied this tick act on every substep, so the hippos move the same however it is split
+        world.clearForces();
+        if (isRebuildingWorld)
+            dispatchTouching();
+    }
+
+    /**
+     * Makes every tick depend on the saved state alone, as rollback netcode needs: before each tick the
+     * world is built again, its bodies created in the same order and placed where the old ones were.
+     * Box2D otherwise keeps its contacts from step to step, with their cached impulses, in the order they
+     * happened to be made in; after restoreState() those would still be the contacts of the ticks that were
+     * undone. Warm starting and sleeping are off in the rebuilt worlds, as they carry impulses and timers
+     * from one step to the next. Contact events come from comparing what touches after each step with the
+     * step before, which is saved with the rest of the state.
+     *
+     * The match plays very slightly differently this way, so both peers have to use it from the start.
+     */
+    public void setRebuildingWorld(boolean isRebuildingWorld) {
+        this.isRebuildingWorld = isRebuildingWorld;
+    }
+
+    // Replaces the world with a new one holding a copy of every body, created in entity order
+    void rebuildWorld() {
+        World rebuilt = new World(world.getGravity(), false);
+        rebuilt.setAutoClearForces(false);
+        rebuilt.setWarmStarting(false);
+        rebuilt.setContactListener(contactListener);
+        for (int entity = 0; entity < entities.count; entity++)
+            entities.setBody(entity, copyBody(entities.bodies[entity], rebuilt));
+        world.dispose();
+        world = rebuilt;
+    }
+
+    Body copyBody(Body body, World into) {
+        BodyDef bodyDef = copyBodyDef;
+        bodyDef.type = body.getType();
+        bodyDef.position.set(body.getPosition());
+        bodyDef.angle = body.getAngle();
+        bodyDef.linearVelocity.set(body.getLinearVelocity());
+        bodyDef.angularVelocity = body.getAngularVelocity();
+        bodyDef.fixedRotation = body.isFixedRotation();
+        bodyDef.bullet = body.isBullet();
+        Body copy = into.createBody(bodyDef);
+        FixtureDef fixtureDef = copyFixtureDef;
+        for (Fixture fixture : body.getFixtureList()) {
+            fixtureDef.shape = fixture.getShape(); // Box2D copies the shape
+            fixtureDef.density = fixture.getDensity();
+            fixtureDef.friction = fixture.getFriction();
+            fixtureDef.restitution = fixture.getRestitution();
+            Filter filter = fixture.getFilterData();
+            fixtureDef.filter.categoryBits = filter.categoryBits;
+            fixtureDef.filter.maskBits = filter.maskBits;
+            fixtureDef.filter.groupIndex = filter.groupIndex;
+            copy.createFixture(fixtureDef);
+        }
+        return copy;
+    }
+
+    // The begin and end events of a rebuilt world's step, pair by pair in entity order
+    void dispatchTouching() {
+        for (int a = 0; a < entities.count; a++) {
+            int changed = entities.touching[a] ^ previousTouching[a];
+            while (changed != 0) {
+                int b = Integer.numberOfTrailingZeros(changed);
+                changed &= changed - 1;
+                boolean isTouching = (entities.touching[a] & 1 << b) != 0;
+                dispatch((isTouching ? beginActions : endActions)[pairIndex(a, b)], a, b);
+            }
+        }
+    }
+
+    // Makes each ball a bullet or not by how fast it closes in on the hippos, and returns how many substeps
+    // keep every ball within MAX_STEP_TRAVEL a step
+    int prepareBalls() {
+        float maxTravel = 0f;
+        for (int i = 0; i < entities.ballCount; i++) {
+            int ball = entities.balls[i];
+            Body body = entities.bodies[ball];
+            Vector2 velocity = body.getLinearVelocity();
+            float vx = velocity.x, vy = velocity.y;
+            float closingSpeed2 = vx * vx + vy * vy; // Towards the static bodies
+            for (int j = 0; j < entities.hippoCount; j++) {
+                Vector2 hippoVelocity = entities.bodies[entities.hippos[j]].getLinearVelocity();
+                float dx = vx - hippoVelocity.x, dy = vy - hippoVelocity.y;
+                closingSpeed2 = Math.max(closingSpeed2, dx * dx + dy * dy);
+            }
+            float travel = (float)Math.sqrt(closingSpeed2) * TIME_STEP;
+            boolean isBullet = travel > BULLET_STEP_TRAVEL;
+            if (isBullet != entities.isBullet[ball]) {
+                body.setBullet(isBullet);
+                entities.isBullet[ball] = isBullet;
+            }
+            maxTravel = Math.max(maxTravel, travel);
+        }
+        return Math.max(1, Math.min(MAX_SUBSTEPS, (int)Math.ceil(maxTravel / MAX_STEP_TRAVEL)));
+    }
+
+    void saveBallPositions() {
+        for (int i = 0; i < entities.ballCount; i++) {
+            int ball = entities.balls[i];
+            Vector2 ballPos = entities.bodies[ball].getPosition();
+            entities.lastX[ball] = ballPos.x;
+            entities.lastY[ball] = ballPos.y;
+        }
+    }
+
+    // Count the steps in which a ball went through the net, into a hippo or out of the field instead of bouncing off
+    void checkTunneling() {
+        float netTop = (NET_Y + NET_HEIGHT*NET_SCALE) / PIXELS_TO_METERS;
+        float w = fieldWidth / PIXELS_TO_METERS / 2;
+        float h = fieldHeight / PIXELS_TO_METERS / 2;
+        float hippoW = HIPPO_WIDTH*HIPPO_SCALE / 2 / PIXELS_TO_METERS;
+        float hippoH = HIPPO_HEIGHT*HIPPO_SCALE / 2 / PIXELS_TO_METERS;
+        for (int i = 0; i < entities.ballCount; i++) {
+            int ball = entities.balls[i];
+            Vector2 ballPos = entities.bodies[ball].getPosition();
+            float lastX = entities.lastX[ball], lastY = entities.lastY[ball];
+
+            // The ball crossed the middle of the field while below the top of the net
+            if ((lastX < 0) != (ballPos.x < 0) && lastY < netTop && ballPos.y < netTop)
+                tunnelingCount++;
+
+            // The ball center is past one of the screen edges
+            boolean isOut = ballPos.x < -w || ballPos.x > w || ballPos.y < -h || ballPos.y > h;
+            if (isOut && !entities.isOutOfField[ball])
+                tunnelingCount++;
+            entities.isOutOfField[ball] = isOut;
+
+            // The ball center is inside a hippo; the hippos never turn, so their boxes stay axis-aligned
+            boolean isInside = false;
+            for (int j = 0; j < entities.hippoCount; j++) {
+                Vector2 hippoPos = entities.bodies[entities.hippos[j]].getPosition();
+                if (Math.abs(ballPos.x - hippoPos.x) < hippoW && Math.abs(ballPos.y - hippoPos.y) < hippoH)
+                    isInside = true;
+            }
+            if (isInside && !entities.isInsideHippo[ball])
+                tunnelingCount++;
+            entities.isInsideHippo[ball] = isInside;
+        }
+    }
+
+    // Commands go through the tick like the buttons do, so a replay of the inputs reproduces them
+    void handleCommands(MatchInput input) {
+        if (input.hasCommand(MatchInput.TOGGLE_PAUSE))
+            togglePause();
+        if (input.hasCommand(MatchInput.BALL_BOUNCIER))
+            adjustBallRestitution(0.1f);
+        if (input.hasCommand(MatchInput.BALL_LESS_BOUNCY))
+            adjustBallRestitution(-0.1f);
+    }
+
+    // Turn presses and releases since the previous tick into hippo movement
+    void handleInput(int bits) {
+        int pressed = bits & ~previousInput;
+        int released = previousInput & ~bits;
+        previousInput = bits;
+
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            int controller = entities.controllers[hippo];
+
+            // When the user releases a key, disable force during the step
+            entities.heldButtons[hippo] &= ~MatchInput.buttons(released, controller);
+
+            // Only acknowledge key usage when player movement is enabled
+            int hippoPressed = MatchInput.buttons(pressed, controller);
+            if (!isMovementAllowed || hippoPressed == 0)
+                continue;
+
+            // When the user presses a key, apply an initial force and enable additional
+            // force to be added during the following steps
+            Body body = entities.bodies[hippo];
+            if ((hippoPressed & MatchInput.RIGHT) != 0) {
+                body.applyForceToCenter(HORIZONTAL_VELOCITY, 0f, true);
+                entities.isFlipped[hippo] = false;
+                entities.heldButtons[hippo] |= MatchInput.RIGHT;
+            }
+            if ((hippoPressed & MatchInput.LEFT) != 0) {
+                body.applyForceToCenter(-HORIZONTAL_VELOCITY, 0f, true);
+                entities.isFlipped[hippo] = true;
+                entities.heldButtons[hippo] |= MatchInput.LEFT;
+            }
+            // Only allow jumping if the hippo is actually touching the ground
+            if ((hippoPressed & MatchInput.UP) != 0 && !entities.isAirborne[hippo]) {
+                body.applyForceToCenter(0f, JUMP_VELOCITY, true);
+                entities.jumpHeights[hippo] = JUMP_VELOCITY;
+                entities.heldButtons[hippo] |= MatchInput.UP;
+            }
+        }
+    }
+
+    // Check if any of the keys are being held, then apply force accordingly; called once per physics step
+    void applyHeldForces() {
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            int held = entities.heldButtons[hippo];
+            if (held == 0)
+                continue;
+            Body body = entities.bodies[hippo];
+            if ((held & MatchInput.RIGHT) != 0 && body.getLinearVelocity().x <= MAX_HORIZONTAL_VELOCITY)
+                body.applyForceToCenter(HORIZONTAL_VELOCITY, 0f, true);
+            if ((held & MatchInput.LEFT) != 0 && body.getLinearVelocity().x >= -MAX_HORIZONTAL_VELOCITY)
+                body.applyForceToCenter(-HORIZONTAL_VELOCITY, 0f, true);
+            if ((held & MatchInput.UP) != 0 && entities.jumpHeights[hippo] < MAX_JUMP_HEIGHT) {
+                body.applyForceToCenter(0f, JUMP_HOLD_VELOCITY, true);
+                entities.jumpHeights[hippo] = entities.jumpHeights[hippo] + JUMP_HOLD_VELOCITY;
+            }
+        }
+    }
+
+    // Allow the ball restitution to be tuned during a match, up to MAX_BALL_RESTITUTION
+    public void adjustBallRestitution(float amount) {
+        for (int i = 0; i < entities.ballCount; i++) {
+            Fixture ballFixture = entities.bodies[entities.balls[i]].getFixtureList().first();
+            float restitution = ballFixture.getRestitution() + amount;
+            if (isAdaptiveStepping)
+                restitution = boundRestitution(restitution);
+            ballFixture.setRestitution(restitution);
+        }
+    }
+
+    static float boundRestitution(float restitution) {
+        return Math.max(0f, Math.min(MAX_BALL_RESTITUTION, restitution));
+    }
+
+    // Pause or resume on player request; returns false if the game is transitioning between rounds
+    public boolean togglePause() {
+        // Do not allow the players to pause or resume the game while it's transitioning between rounds
+        if (state == State.RUN && !hasBallLanded && !isNextRoundStarting)
+            pause();
+        else if (state == State.PAUSE && !hasBallLanded && !isNextRoundStarting)
+            resume();
+        else
+            return false;
+        return true;
+    }
+
+    // The players may leave the match once it is finished, or while it is paused between points
+    public boolean canLeave() {
+        return state == State.FINISHED || (state == State.PAUSE && !hasBallLanded && !isNextRoundStarting);
+    }
+
+    public Body createHippo (float x, float y, float width, float height) {
+        BodyDef hippoBodyDef = new BodyDef();
+        hippoBodyDef.type = BodyDef.BodyType.DynamicBody;
+        hippoBodyDef.position.set((x + width/2) / PIXELS_TO_METERS,
+                (y + height/2) / PIXELS_TO_METERS);
+
+        Body hippoBody = world.createBody(hippoBodyDef);
+
+        // Prevent the hippo's angular facing from changing
+        hippoBody.setFixedRotation(true);
+
+        PolygonShape hippoShape = new PolygonShape();
+        hippoShape.setAsBox(width*HIPPO_SCALE / 2 / PIXELS_TO_METERS,
+                height*HIPPO_SCALE / 2 / PIXELS_TO_METERS);
+
+        FixtureDef hippoFixtureDef = new FixtureDef();
+        hippoFixtureDef.shape = hippoShape;
+        hippoFixtureDef.density = HIPPO_DENSITY;
+        hippoFixtureDef.friction = HIPPO_FRICTION;
+        hippoFixtureDef.restitution = HIPPO_RESTITUTION;
+        hippoFixtureDef.filter.categoryBits = HIPPO_ENTITY;
+        hippoFixtureDef.filter.maskBits = BALL_ENTITY|WORLD_ENTITY;
+
+        hippoBody.createFixture(hippoFixtureDef);
+        hippoShape.dispose();
+
+        return hippoBody;
+    }
+
+    public Body createBall (float x, float y, float diameter) {
+        BodyDef ballBodyDef = new BodyDef();
+        ballBodyDef.type = BodyDef.BodyType.DynamicBody;
+        ballBodyDef.position.set((x + diameter/2) / PIXELS_TO_METERS,
+                (y + diameter/2) / PIXELS_TO_METERS);
+
+        Body ballBody = world.createBody(ballBodyDef);
+
+        CircleShape ballShape = new CircleShape();
+        ballShape.setRadius((diameter / 2) / PIXELS_TO_METERS);
+
+        FixtureDef ballFixtureDef = new FixtureDef();
+        ballFixtureDef.shape = ballShape;
+        ballFixtureDef.density = BALL_DENSITY;
+        ballFixtureDef.restitution = BALL_RESTITUTION;
+        ballFixtureDef.filter.categoryBits = BALL_ENTITY;
+        ballFixtureDef.filter.maskBits = HIPPO_ENTITY|WORLD_ENTITY;
+
+        ballBody.createFixture(ballFixtureDef);
+        ballShape.dispose();
+
+        return ballBody;
+    }
+
+    public Body createNet (float x, float y, float width, float height) {
+        BodyDef netBodyDef = new BodyDef();
+        netBodyDef.type = BodyDef.BodyType.StaticBody;
+        netBodyDef.position.set((x + width/2) / PIXELS_TO_METERS,
+                (y + height/2) / PIXELS_TO_METERS);
+
+        Body netBody = world.createBody(netBodyDef);
+
+        PolygonShape netShape = new PolygonShape();
+        netShape.setAsBox(width*NET_SCALE / 2 / PIXELS_TO_METERS,
+                height*NET_SCALE / 2 / PIXELS_TO_METERS);
+
+        FixtureDef netFixtureDef = new FixtureDef();
+        netFixtureDef.shape = netShape;
+        netFixtureDef.restitution = NET_RESTITUTION;
+        netFixtureDef.friction = 0f;
+        netFixtureDef.filter.categoryBits = WORLD_ENTITY;
+        netFixtureDef.filter.maskBits = BALL_ENTITY|HIPPO_ENTITY;
+
+        netBody.createFixture(netFixtureDef);
+        netShape.dispose();
+
+        return netBody;
+    }
+
+    public Body createScreenEdge (float v1X, float v1Y, float v2X, float v2Y) {
+        BodyDef edgeBodyDef = new BodyDef();
+        edgeBodyDef.type = BodyDef.BodyType.StaticBody;
+        edgeBodyDef.position.set(0,0);
+        FixtureDef edgeFixtureDef = new FixtureDef();
+        edgeFixtureDef.filter.categoryBits = WORLD_ENTITY;
+
+        EdgeShape edgeShape = new EdgeShape();
+        edgeFixtureDef.shape = edgeShape;
+        edgeShape.set(v1X, v1Y, v2X, v2Y);
+
+        Body screenEdgeBody = world.createBody(edgeBodyDef);
+        screenEdgeBody.createFixture(edgeFixtureDef);
+        edgeShape.dispose();
+
+        return screenEdgeBody;
+    }
+
+    public Body createScreenEdge (float v1X, float v1Y, float v2X, float v2Y, float friction) {
+        BodyDef edgeBodyDef = new BodyDef();
+        edgeBodyDef.type = BodyDef.BodyType.StaticBody;
+        edgeBodyDef.position.set(0,0);
+        FixtureDef edgeFixtureDef = new FixtureDef();
+        edgeFixtureDef.friction = friction;
+        edgeFixtureDef.filter.categoryBits = WORLD_ENTITY;
+
+        EdgeShape edgeShape = new EdgeShape();
+        edgeFixtureDef.shape = edgeShape;
+        edgeShape.set(v1X, v1Y, v2X, v2Y);
+
+        Body screenEdgeBody = world.createBody(edgeBodyDef);
+        screenEdgeBody.createFixture(edgeFixtureDef);
+        edgeShape.dispose();
+
+        return screenEdgeBody;
+    }
+
+    public void startNewRound(boolean rightServes) {
+        // Starting next round
+        timeUntilStart = TIME_TO_NEXT_ROUND/2;
+        isNextRoundStarting = true;
+        roundCount++;
+
+        // Move hippos back to their starting positions, the second hippo of a side nearer the net. If the
+        // game is paused, reset key states to avoid weird bugs.
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            float x = HIPPO_WIDTH*(4f - 2f*(entities.controllers[hippo] / 2))/PIXELS_TO_METERS;
+            Body body = entities.bodies[hippo];
+            body.setLinearVelocity(0f, 0f);
+            body.setAngularVelocity(0f);
+            body.setTransform(entities.sides[hippo] == MatchInput.RIGHT_HIPPO ? x : -x,
+                    -VolleyBall.SCREEN_HEIGHT/PIXELS_TO_METERS/2 + HIPPO_HEIGHT/PIXELS_TO_METERS - 0.2f, 0f);
+            entities.heldButtons[hippo] = 0;
+        }
+
+        // Reset the balls back to non-landed state and place each above a hippo of the serving side,
+        // stacked up if there are more balls than hippos
+        servingHippo = rightServes;
+        int side = rightServes ? MatchInput.RIGHT_HIPPO : MatchInput.LEFT_HIPPO;
+        hasBallLanded = false;
+        timeSinceLanding = 0f;
+        for (int i = 0; i < entities.ballCount; i++) {
+            int ball = entities.balls[i];
+            Vector2 serverPos = entities.bodies[entities.hippoOf(MatchInput.slot(side, i % hipposPerSide))].getPosition();
+            Body body = entities.bodies[ball];
+            entities.isOutOfField[ball] = false;
+            entities.isInsideHippo[ball] = false;
+            body.setLinearVelocity(0f, 0f);
+            body.setAngularVelocity(1f);
+            body.setTransform(serverPos.x, serverPos.y*5f/PIXELS_TO_METERS + (i / hipposPerSide)*BALL_DIAMETER*2f/PIXELS_TO_METERS, 0f);
+        }
+
+        listener.roundStarted(roundCount);
+    }
+
+    public void startNewGame(boolean rightServes) {
+        pause();
+        leftScore = 0;
+        rightScore = 0;
+        leftWin = false;
+        rightWin = false;
+        roundCount = 0;
+        startNewRound(rightServes);
+    }
+
+    public void startNewGame() {
+        // Coin flip; which hippo will have the first serve at start of the game
+        startNewGame(random.nextBoolean());
+    }
+
+    public void pause() {
+        this.state = State.PAUSE;
+        // Disable player movement inputs while game is paused
+        isMovementAllowed = false;
+    }
+
+    public void resume() {
+        this.state = State.RUN;
+        isMovementAllowed = true;
+    }
+
+    public void dispose() {
+        world.dispose();
+    }
+
+    // Bytes taken by saveState(): each hippo and ball, the rule and movement state, and the coin flip generator
+    static final int BODY_STATE_SIZE = 6 * 4 + 1;
+    static final int HIPPO_STATE_SIZE = BODY_STATE_SIZE + 4 + 4 + 4;
+    static final int BALL_STATE_SIZE = BODY_STATE_SIZE + 4 + 2 * 4 + 1 + 4;
+    static final int RULES_STATE_SIZE = 4 + 4 + 4 + 3 * 4 + 2 * 4 + 3 * 4 + 8 + 2 * 8;
+
+    public static int getStateSize(int hipposPerSide, int ballCount) {
+        return 2 * hipposPerSide * HIPPO_STATE_SIZE + ballCount * BALL_STATE_SIZE + RULES_STATE_SIZE;
+    }
+
+    public int getStateSize() {
+        return getStateSize(hipposPerSide, ballCount);
+    }
+
+    /**
+     * Writes everything that decides how the match continues into the buffer, from its position on:
+     * the moving bodies, the rules and movement state, and the coin flip generator. restoreState() puts
+     * the match back exactly there, which is what rollback netcode needs.
+     */
+    public void saveState(ByteBuffer out) {
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            saveBody(entities.bodies[hippo], out);
+            out.putFloat(entities.jumpHeights[hippo]);
+            out.putInt(entities.heldButtons[hippo] | (entities.isAirborne[hippo] ? 1 << 3 : 0)
+                    | (entities.isFlipped[hippo] ? 1 << 4 : 0));
+            out.putInt(entities.touching[hippo]);
+        }
+        for (int i = 0; i < entities.ballCount; i++) {
+            int ball = entities.balls[i];
+            Body body = entities.bodies[ball];
+            saveBody(body, out);
+            out.putFloat(body.getFixtureList().first().getRestitution());
+            out.putFloat(entities.lastX[ball]);
+            out.putFloat(entities.lastY[ball]);
+            out.put((byte)((entities.isOutOfField[ball] ? 1 : 0) | (entities.isInsideHippo[ball] ? 2 : 0)));
+            out.putInt(entities.touching[ball]);
+        }
+
+        out.putInt(state.ordinal());
+        out.putInt(flags(isMovementAllowed, hasBallLanded, scoringHippo, isNextRoundStarting, rightWin, leftWin,
+                servingHippo, false));
+        out.putInt(previousInput);
+        out.putInt(leftScore);
+        out.putInt(rightScore);
+        out.putInt(roundCount);
+        out.putFloat(timeSinceLanding);
+        out.putFloat(timeUntilStart);
+        out.putInt(scoreToWin);
+        out.putInt(scoreMargin);
+        out.putInt(tunnelingCount);
+        out.putLong(tickCount);
+        out.putLong(random.getState(0));
+        out.putLong(random.getState(1));
+    }
+
+    public void restoreState(ByteBuffer in) {
+        // Box2D keeps its contacts from wherever the bodies were; the next step updates them from the restored
+        // positions and fires begin/end events for any that changed, which agree with the restored flags.
+        // Their order and cached impulses do carry over, so a restored match only steps exactly like one that
+        // was never rolled back when the world is rebuilt every tick; see setRebuildingWorld().
+        for (int i = 0; i < entities.hippoCount; i++) {
+            int hippo = entities.hippos[i];
+            restoreBody(entities.bodies[hippo], in);
+            entities.jumpHeights[hippo] = in.getFloat();
+            int flags = in.getInt();
+            entities.heldButtons[hippo] = flags & MatchInput.HIPPO_MASK;
+            entities.isAirborne[hippo] = (flags & 1 << 3) != 0;
+            entities.isFlipped[hippo] = (flags & 1 << 4) != 0;
+            entities.touching[hippo] = in.getInt();
+        }
+        for (int i = 0; i < entities.ballCount; i++) {
+            int ball = entities.balls[i];
+            Body body = entities.bodies[ball];
+            restoreBody(body, in);
+            body.getFixtureList().first().setRestitution(in.getFloat());
+            entities.lastX[ball] = in.getFloat();
+            entities.lastY[ball] = in.getFloat();
+            int flags = in.get();
+            entities.isOutOfField[ball] = (flags & 1) != 0;
+            entities.isInsideHippo[ball] = (flags & 2) != 0;
+            entities.touching[ball] = in.getInt();
+        }
+
+        state = State.values()[in.getInt()];
+        int flags = in.getInt();
+        isMovementAllowed = (flags & 1) != 0;
+        hasBallLanded = (flags & 1 << 1) != 0;
+        scoringHippo = (flags & 1 << 2) != 0;
+        isNextRoundStarting = (flags & 1 << 3) != 0;
+        rightWin = (flags & 1 << 4) != 0;
+        leftWin = (flags & 1 << 5) != 0;
+        servingHippo = (flags & 1 << 6) != 0;
+        previousInput = in.getInt();
+        leftScore = in.getInt();
+        rightScore = in.getInt();
+        roundCount = in.getInt();
+        timeSinceLanding = in.getFloat();
+        timeUntilStart = in.getFloat();
+        scoreToWin = in.getInt();
+        scoreMargin = in.getInt();
+        tunnelingCount = in.getInt();
+        tickCount = in.getLong();
+        long seed0 = in.getLong();
+        random.setState(seed0, in.getLong());
+    }
+
+    static void saveBody(Body body, ByteBuffer out) {
+        Vector2 position = body.getPosition();
+        Vector2 velocity = body.getLinearVelocity();
+        out.putFloat(position.x);
+        out.putFloat(position.y);
+        out.putFloat(body.getAngle());
+        out.putFloat(velocity.x);
+        out.putFloat(velocity.y);
+        out.putFloat(body.getAngularVelocity());
+        out.put((byte)(body.isAwake() ? 1 : 0));
+    }
+
+    static void restoreBody(Body body, ByteBuffer in) {
+        float x = in.getFloat(), y = in.getFloat(), angle = in.getFloat();
+        body.setTransform(x, y, angle);
+        float vx = in.getFloat(), vy = in.getFloat();
+        body.setLinearVelocity(vx, vy);
+        body.setAngularVelocity(in.getFloat());
+        body.setAwake(in.get() != 0);
+    }
+
+    static int flags(boolean b0, boolean b1, boolean b2, boolean b3, boolean b4, boolean b5, boolean b6, boolean b7) {
+        return (b0 ? 1 : 0) | (b1 ? 1 << 1 : 0) | (b2 ? 1 << 2 : 0) | (b3 ? 1 << 3 : 0) |
+                (b4 ? 1 << 4 : 0) | (b5 ? 1 << 5 : 0) | (b6 ? 1 << 6 : 0) | (b7 ? 1 << 7 : 0);
+    }
+
+    // Accessors for drivers outside this package, such as the headless tools
+    public void setSeed(long seed) { random.setSeed(seed); }
+    public void setRules(int scoreToWin, int scoreMargin) {
+        this.scoreToWin = scoreToWin;
+        this.scoreMargin = scoreMargin;
+    }
+    // Start hashing the match after every tick into the given checksums, which forget what they had
+    public void setChecksums(MatchChecksums checksums) {
+        this.checksums = checksums;
+        if (checksums != null)
+            checksums.reset(this);
+    }
+    public State getState() { return state; }
+    public MatchEntities getEntities() { return entities; }
+    public Body getBall() { return entities.bodies[entities.balls[0]]; } // The first ball, the only one outside the party modes
+    public Body getHippo(int hippo) { return entities.bodies[entities.hippoOf(hippo)]; } // By input slot
+    public int getLeftScore() { return leftScore; }
+    public int getRightScore() { return rightScore; }
+    public int getRoundCount() { return roundCount; }
+    public boolean isBallInPlay() { return state == State.RUN && !hasBallLanded; }
+    public boolean isRightHippoServing() { return servingHippo; }
+    public boolean hasRightHippoWon() { return rightWin; }
+    public long getTickCount() { return tickCount; }
+    public int getTunnelingCount() { return tunnelingCount; }
+}
@@ -0,0 +1,167 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Plays the background music across screens. play() crossfades from whatever is playing to the given track
+ * (or to silence), and update() moves the volumes along once per frame.
+ *
+ * The backends stream music on their own: Android decodes on MediaPlayer's thread, and the desktop refills
+ * a few OpenAL buffers on each frame. What used to stall the render thread was stopping a track, which throws
+ * the stream away, so the next play() had to reopen the file (and prepare it again on Android) and decode its
+ * first buffers before returning. A faded-out track is paused instead, and resumes from its buffers; prime()
+ * gets that first decode out of the way while the menus are up, so a match never waits for it.
+ *
+ * To confirm that it never stalls, the service compares how far each playing track has got against the
+ * clock, and counts every time one fell behind as an underrun. It also keeps the slowest play or pause call.
+ */
+public class MusicService {
+    static final float FADE_SECONDS = 1f; // From silence to full volume, or back
+    static final float CHECK_SECONDS = 0.5f; // How often the playback positions are checked; it's not free on Android
+    static final float UNDERRUN_SECONDS = 0.1f; // How far a track may fall behind the clock between checks
+
+    static class Track {
+        final Music music;
+        float volume = 0f;
+        float target = 0f;
+        boolean isPlaying = false;
+        // Where the track was at the last check, and how much time has passed since
+        float checkedPosition;
+        float sinceCheck;
+
+        Track(Music music) {
+            this.music = music;
+        }
+    }
+
+    final Array<Track> tracks = new Array<Track>(false, 2); // Every track ever played, kept to be resumed
+
+    int underruns = 0;
+    float longestUnderrun = 0f; // Seconds of playback lost to the worst one
+    long slowestCallNanos = 0;
+
+    // Fades every other track out and the given one in; null fades to silence
+    public void play(Music music) {
+        for (Track track : tracks)
+            track.target = 0f;
+        if (music == null)
+            return;
+        Track track = trackOf(music);
+        track.target = 1f;
+        if (!track.isPlaying)
+            resume(track);
+    }
+
+    // Opens the track and decodes its first buffers now, so that play() only has to resume it
+    public void prime(Music music) {
+        Track track = trackOf(music);
+        if (track.isPlaying)
+            return;
+        long start = TimeUtils.nanoTime();
+        music.setVolume(0f);
+        music.play();
+        music.pause();
+        slowestCallNanos = Math.max(slowestCallNanos, TimeUtils.nanoTime() - start);
+    }
+
+    public void update(float delta) {
+        float step = delta / FADE_SECONDS;
+        for (Track track : tracks) {
+            if (!track.isPlaying)
+                continue;
+            if (track.volume != track.target) {
+                track.volume = track.volume < track.target ? Math.min(track.target, track.volume + step)
+                        : Math.max(track.target, track.volume - step);
+                track.music.setVolume(track.volume);
+            }
+            if (track.volume == 0f && track.target == 0f) {
+                pause(track);
+                continue;
+            }
+            checkPosition(track, delta);
+        }
+    }
+
+    void checkPosition(Track track, float delta) {
+        track.sinceCheck += delta;
+        if (track.sinceCheck < CHECK_SECONDS)
+            return;
+        float position = track.music.getPosition();
+        float lag = track.sinceCheck - (position - track.checkedPosition);
+        // A position before the last one means the track looped
+        if (position >= track.checkedPosition && lag > UNDERRUN_SECONDS) {
+            underruns++;
+            longestUnderrun = Math.max(longestUnderrun, lag);
+        }
+        track.checkedPosition = position;
+        track.sinceCheck = 0f;
+    }
+
+    // Whether update() still has volumes to move; the frames have to keep coming until they are done
+    public boolean isFading() {
+        for (Track track : tracks)
+            if (track.isPlaying && (track.volume != track.target || track.target == 0f))
+                return true;
+        return false;
+    }
+
+    // Start the clock again, e.g. after the application was paused and the backend paused the music with it
+    public void resync() {
+        for (Track track : tracks) {
+            if (track.isPlaying) {
+                track.checkedPosition = track.music.getPosition();
+                track.sinceCheck = 0f;
+            }
+        }
+    }
+
+    void resume(Track track) {
+        long start = TimeUtils.nanoTime();
+        track.music.setVolume(track.volume);
+        track.music.play();
+        slowestCallNanos = Math.max(slowestCallNanos, TimeUtils.nanoTime() - start);
+        track.isPlaying = true;
+        track.checkedPosition = track.music.getPosition();
+        track.sinceCheck = 0f;
+    }
+
+    void pause(Track track) {
+        long start = TimeUtils.nanoTime();
+        track.music.pause();
+        slowestCallNanos = Math.max(slowestCallNanos, TimeUtils.nanoTime() - start);
+        track.isPlaying = false;
+    }
+
+    Track trackOf(Music music) {
+        for (Track track : tracks)
+            if (track.music == music)
+                return track;
+        Track track = new Track(music);
+        music.setLooping(true);
+        tracks.add(track);
+        return track;
+    }
+
+    // Silences everything at once, for when the application closes
+    public void stopAll() {
+        for (Track track : tracks) {
+            track.music.stop();
+            track.isPlaying = false;
+            track.volume = track.target = 0f;
+        }
+    }
+
+    public int getUnderruns() {
+        return underruns;
+    }
+
+    public float getLongestUnderrun() {
+        return longestUnderrun;
+    }
+
+    public long getSlowestCallNanos() {
+        return slowestCallNanos;
+    }
+}
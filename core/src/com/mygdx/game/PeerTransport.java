@@ -0,0 +1,17 @@
+package com.mygdx.game;
+
+/**
+ * Unreliable, unordered packet delivery to the one other player of an online match. Packets may be lost,
+ * duplicated or reordered; RollbackSession copes with all three.
+ */
+public interface PeerTransport {
+    // Largest packet the session will send or expects to receive
+    int MAX_PACKET_SIZE = 512;
+
+    void send(byte[] data, int length);
+
+    // Copies the next packet that has arrived into buffer and returns its length, or -1 if there is none
+    int receive(byte[] buffer);
+
+    void close();
+}
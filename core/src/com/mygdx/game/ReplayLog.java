@@ -0,0 +1,288 @@
+package com.mygdx.game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Everything needed to play a match again tick for tick: the seed, rules and calibration it started with,
+ * and the MatchInput bits of every tick. Starting a fresh MatchSimulation from the same seed, rules and
+ * calibration and feeding it the same inputs reproduces the match exactly.
+ *
+ * The inputs are stored as runs of identical ticks, bit-packed. Each run is:
+ *   6 bits   the held buttons of both hippos (12 in two against two)
+ *   1 bit    whether a command was given; if so, 3 more bits with the commands
+ *   4+ bits  run length - 1, 3 bits at a time, low bits first, each group followed by a "more" bit
+ * Players change their keys a few times a second, so this comes to a few bytes per second of play.
+ *
+ * The tick each round starts on is kept too, so a player can seek to a round without decoding anything.
+ *
+ * Version 2 added the party mode layout to the calibration. A version 1 file is read as one hippo a side
+ * and one ball, which it was, and its runs are laid out the same way.
+ *
+ * Version 3 added adaptive stepping to the calibration. Older files are played back without it, which is how
+ * they were recorded; their matches are only the same step for step that way.
+ */
+public class ReplayLog {
+    static final int MAGIC = 0x48565250; // "HVRP"
+    static final int VERSION = 3;
+
+    static final int RUN_LENGTH_GROUP_BITS = 3;
+
+    // Room for a long match up front, so recording doesn't have to grow its arrays while the match is on
+    static final int INITIAL_DATA_BYTES = 16 * 1024;
+    static final int INITIAL_ROUNDS = 128;
+
+    // How the match started
+    public long seed;
+    public int scoreToWin = VolleyBall.scoreToWin;
+    public int scoreMargin = VolleyBall.scoreMargin;
+    public MatchCalibration calibration = new MatchCalibration();
+    public float fieldWidth = VolleyBall.SCREEN_WIDTH, fieldHeight = VolleyBall.SCREEN_HEIGHT;
+
+    int tickCount = 0;
+    final IntArray roundStartTicks = new IntArray(INITIAL_ROUNDS); // Ticks already played when each round started, round 1 first
+
+    // The packed runs
+    byte[] data = new byte[INITIAL_DATA_BYTES];
+    int bitLength = 0;
+
+    // The run being recorded
+    int runValue = 0;
+    int runLength = 0;
+
+    public ReplayLog() {}
+
+    // Describe a match that is about to start
+    public ReplayLog(MatchSimulation match, long seed, MatchCalibration calibration) {
+        this.seed = seed;
+        this.scoreToWin = match.scoreToWin;
+        this.scoreMargin = match.scoreMargin;
+        this.calibration = new MatchCalibration(calibration);
+        this.fieldWidth = match.fieldWidth;
+        this.fieldHeight = match.fieldHeight;
+    }
+
+    // Add the input of the next tick
+    public void record(int inputBits) {
+        if (runLength > 0 && inputBits != runValue) {
+            writeRun(runValue, runLength);
+            runLength = 0;
+        }
+        runValue = inputBits;
+        runLength++;
+        tickCount++;
+    }
+
+    public void roundStarted(int roundCount) {
+        // Rounds are numbered from 1; a round should only be reported once
+        if (roundCount == roundStartTicks.size + 1)
+            roundStartTicks.add(tickCount);
+    }
+
+    // Write out the run in progress, e.g. before saving. Recording can carry on afterwards.
+    public void finish() {
+        if (runLength > 0)
+            writeRun(runValue, runLength);
+        runLength = 0;
+    }
+
+    public int getTickCount() { return tickCount; }
+    public int getRoundCount() { return roundStartTicks.size; }
+
+    // Ticks already played when the given round (1 = first) started
+    public int getRoundStartTick(int round) {
+        return roundStartTicks.get(round - 1);
+    }
+
+    // Size of the packed inputs in bytes
+    public int getDataSize() {
+        return (bitLength + 7) / 8;
+    }
+
+    public Reader reader() {
+        return new Reader();
+    }
+
+    // Only the input slots of hippos in the match are stored
+    int getButtonBits() {
+        return 2 * calibration.hipposPerSide * MatchInput.BITS_PER_HIPPO;
+    }
+
+    void writeRun(int value, int length) {
+        writeBits(value & MatchInput.BUTTON_MASK, getButtonBits());
+        int commands = (value & MatchInput.COMMAND_MASK) >>> MatchInput.COMMAND_SHIFT;
+        writeBits(commands != 0 ? 1 : 0, 1);
+        if (commands != 0)
+            writeBits(commands, MatchInput.COMMAND_BITS);
+        int remaining = length - 1;
+        do {
+            writeBits(remaining & ((1 << RUN_LENGTH_GROUP_BITS) - 1), RUN_LENGTH_GROUP_BITS);
+            remaining >>>= RUN_LENGTH_GROUP_BITS;
+            writeBits(remaining != 0 ? 1 : 0, 1);
+        } while (remaining != 0);
+    }
+
+    void writeBits(int value, int count) {
+        for (int i = 0; i < count; i++) {
+            if ((bitLength >> 3) == data.length) {
+                byte[] grown = new byte[data.length * 2];
+                System.arraycopy(data, 0, grown, 0, data.length);
+                data = grown;
+            }
+            if (((value >>> i) & 1) != 0)
+                data[bitLength >> 3] |= 1 << (bitLength & 7);
+            bitLength++;
+        }
+    }
+
+    /** Hands out the recorded input one tick at a time, from the start of the match. */
+    public class Reader {
+        int bitPosition = 0;
+        int value = 0;
+        int remaining = 0; // Ticks left in the current run
+        int position = 0; // Ticks handed out so far
+
+        public boolean hasNext() {
+            return position < tickCount;
+        }
+
+        public int next() {
+            if (remaining == 0)
+                readRun();
+            remaining--;
+            position++;
+            return value;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        void readRun() {
+            value = readBits(getButtonBits());
+            if (readBits(1) != 0)
+                value |= readBits(MatchInput.COMMAND_BITS) << MatchInput.COMMAND_SHIFT;
+            int length = 0, shift = 0;
+            boolean more;
+            do {
+                length |= readBits(RUN_LENGTH_GROUP_BITS) << shift;
+                shift += RUN_LENGTH_GROUP_BITS;
+                more = readBits(1) != 0;
+            } while (more);
+            remaining = length + 1;
+        }
+
+        int readBits(int count) {
+            if (bitPosition + count > bitLength)
+                throw new GdxRuntimeException("Replay log ends in the middle of a run");
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                if ((data[bitPosition >> 3] & (1 << (bitPosition & 7))) != 0)
+                    value |= 1 << i;
+                bitPosition++;
+            }
+            return value;
+        }
+    }
+
+    public void save(FileHandle file) {
+        OutputStream out = file.write(false);
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't write replay " + file, e);
+        } finally {
+            try { out.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    public static ReplayLog load(FileHandle file) {
+        InputStream in = file.read();
+        try {
+            return read(in);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't read replay " + file, e);
+        } finally {
+            try { in.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        finish();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(scoreToWin);
+        out.writeInt(scoreMargin);
+        out.writeFloat(fieldWidth);
+        out.writeFloat(fieldHeight);
+        out.writeFloat(calibration.hippoFriction);
+        out.writeFloat(calibration.horizontalVelocity);
+        out.writeFloat(calibration.maxHorizontalVelocity);
+        out.writeFloat(calibration.jumpVelocity);
+        out.writeFloat(calibration.jumpHoldVelocity);
+        out.writeFloat(calibration.maxJumpHeight);
+        out.writeFloat(calibration.ballDensity);
+        out.writeFloat(calibration.ballRestitution);
+        out.writeFloat(calibration.netRestitution);
+        out.writeByte(calibration.hipposPerSide);
+        out.writeByte(calibration.ballCount);
+        out.writeBoolean(calibration.adaptiveStepping);
+        out.writeInt(tickCount);
+        out.writeInt(roundStartTicks.size);
+        for (int i = 0; i < roundStartTicks.size; i++)
+            out.writeInt(roundStartTicks.get(i));
+        out.writeInt(bitLength);
+        out.write(data, 0, getDataSize());
+        out.flush();
+    }
+
+    public static ReplayLog read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a replay file");
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported replay version " + version);
+        ReplayLog log = new ReplayLog();
+        log.seed = in.readLong();
+        log.scoreToWin = in.readInt();
+        log.scoreMargin = in.readInt();
+        log.fieldWidth = in.readFloat();
+        log.fieldHeight = in.readFloat();
+        log.calibration.hippoFriction = in.readFloat();
+        log.calibration.horizontalVelocity = in.readFloat();
+        log.calibration.maxHorizontalVelocity = in.readFloat();
+        log.calibration.jumpVelocity = in.readFloat();
+        log.calibration.jumpHoldVelocity = in.readFloat();
+        log.calibration.maxJumpHeight = in.readFloat();
+        log.calibration.ballDensity = in.readFloat();
+        log.calibration.ballRestitution = in.readFloat();
+        log.calibration.netRestitution = in.readFloat();
+        if (version >= 2) {
+            log.calibration.hipposPerSide = in.readUnsignedByte();
+            log.calibration.ballCount = in.readUnsignedByte();
+        }
+        log.calibration.adaptiveStepping = version >= 3 && in.readBoolean();
+        if (log.calibration.adaptiveStepping) // As the match it was recorded from had it
+            log.calibration.ballRestitution = MatchSimulation.boundRestitution(log.calibration.ballRestitution);
+        log.tickCount = in.readInt();
+        int rounds = in.readInt();
+        for (int i = 0; i < rounds; i++)
+            log.roundStartTicks.add(in.readInt());
+        log.bitLength = in.readInt();
+        log.data = new byte[Math.max(1, log.getDataSize())];
+        in.readFully(log.data, 0, log.getDataSize());
+        return log;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mygdx.game;
+
+/**
+ * Plays a ReplayLog back through a fresh MatchSimulation, one tick per call or as fast as possible.
+ * Seeking forward fast-forwards the current match; seeking backward starts a new one from the beginning,
+ * since a match can only be reproduced by replaying it from its first tick.
+ *
+ * The player creates the matches it plays. It disposes the ones it replaces; the current one, from
+ * getMatch(), is left to the caller.
+ */
+public class ReplayPlayer {
+    final ReplayLog log;
+    final MatchListener listener;
+    final MatchInput input = new MatchInput();
+
+    MatchSimulation match;
+    ReplayLog.Reader reader;
+    boolean isSeeking = false; // Events are not passed on while fast-forwarding to a seek target
+
+    public ReplayPlayer(ReplayLog log, MatchListener listener) {
+        this.log = log;
+        this.listener = listener;
+        log.finish();
+        restart();
+    }
+
+    // Start over from the first tick with a new match set up exactly like the recorded one
+    public void restart() {
+        if (match != null)
+            match.dispose();
+        match = new MatchSimulation(log.fieldWidth, log.fieldHeight, log.calibration, new MatchListener() {
+            @Override
+            public void ballHitHippo(boolean rightHippo) {
+                if (!isSeeking)
+                    listener.ballHitHippo(rightHippo);
+            }
+
+            @Override
+            public void pointScored(boolean rightHippo) {
+                if (!isSeeking)
+                    listener.pointScored(rightHippo);
+            }
+
+            @Override
+            public void gameWon(boolean rightHippo) {
+                if (!isSeeking)
+                    listener.gameWon(rightHippo);
+            }
+
+            @Override
+            public void roundStarted(int roundCount) {
+                listener.roundStarted(roundCount);
+            }
+        });
+        match.setSeed(log.seed);
+        match.setRules(log.scoreToWin, log.scoreMargin);
+        reader = log.reader();
+        match.startNewGame();
+    }
+
+    // Play the next recorded tick; returns false once the recording has run out
+    public boolean tick() {
+        if (!reader.hasNext())
+            return false;
+        input.bits = reader.next();
+        match.tick(input);
+        return true;
+    }
+
+    // Play ticks without stopping until the given number of ticks has been played
+    public void fastForward(int toTick) {
+        isSeeking = true;
+        while (reader.getPosition() < toTick && tick()) {}
+        isSeeking = false;
+    }
+
+    public void runToEnd() {
+        fastForward(log.getTickCount());
+    }
+
+    // Jump to the start of the given round (1 = first); past the last round goes to the end of the recording
+    public void seekToRound(int round) {
+        round = Math.max(1, round);
+        int target = round <= log.getRoundCount() ? log.getRoundStartTick(round) : log.getTickCount();
+        if (target < reader.getPosition())
+            restart();
+        fastForward(target);
+    }
+
+    public MatchSimulation getMatch() { return match; }
+    public ReplayLog getLog() { return log; }
+    public int getTick() { return reader.getPosition(); }
+    public boolean isFinished() { return !reader.hasNext(); }
+}
@@ -0,0 +1,119 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Fonts and skins shared by the screens, the way the AssetManager shares textures and sounds: each is built
+ * the first time it is asked for, every get counts as one more user, and it is only disposed once every user
+ * has released it. Textures loaded from files stay with the AssetManager, which already counts its users by
+ * path.
+ */
+public class ResourceCache {
+    public static final String DEFAULT_FONT = "font/default"; // libGDX's built in Arial
+    public static final String MENU_SKIN = "skin/menu"; // Button styles of the menu screens
+
+    // Button styles in MENU_SKIN
+    public static final String BUTTON = "default";
+    public static final String TOGGLE_BUTTON = "toggle"; // Stays highlighted once clicked
+
+    final ObjectMap<String, Disposable> resources = new ObjectMap<String, Disposable>();
+    final ObjectIntMap<String> references = new ObjectIntMap<String>();
+
+    public BitmapFont getFont(String name) {
+        BitmapFont font = (BitmapFont)acquire(name);
+        if (font == null) {
+            if (!name.equals(DEFAULT_FONT))
+                throw new IllegalArgumentException("Unknown font: " + name);
+            font = new BitmapFont();
+            put(name, font);
+        }
+        return font;
+    }
+
+    public Skin getSkin(String name) {
+        Skin skin = (Skin)acquire(name);
+        if (skin == null) {
+            if (!name.equals(MENU_SKIN))
+                throw new IllegalArgumentException("Unknown skin: " + name);
+            skin = createMenuSkin();
+            put(name, skin);
+        }
+        return skin;
+    }
+
+    // One user is done with the resource; the last one to release it disposes it
+    public void release(String name) {
+        int count = references.get(name, 0);
+        if (count == 0)
+            throw new IllegalStateException("Released more often than it was got: " + name);
+        if (count > 1) {
+            references.put(name, count - 1);
+            return;
+        }
+        references.remove(name, 0);
+        resources.remove(name).dispose();
+        // The menu skin draws its text with the shared font, which it got when it was built
+        if (name.equals(MENU_SKIN))
+            release(DEFAULT_FONT);
+    }
+
+    public int getReferenceCount(String name) {
+        return references.get(name, 0);
+    }
+
+    Disposable acquire(String name) {
+        Disposable resource = resources.get(name);
+        if (resource != null)
+            references.getAndIncrement(name, 0, 1);
+        return resource;
+    }
+
+    void put(String name, Disposable resource) {
+        resources.put(name, resource);
+        references.put(name, 1);
+    }
+
+    Skin createMenuSkin() {
+        Skin skin = new Skin();
+        // A single green pixel, tinted by the drawables below. The pixmap is only needed until it is on the GPU.
+        Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        pixmap.setColor(Color.GREEN);
+        pixmap.fill();
+        skin.add("green", new Texture(pixmap));
+        pixmap.dispose();
+
+        // The font is not added to the skin, which would dispose it along with itself
+        BitmapFont font = getFont(DEFAULT_FONT);
+
+        TextButton.TextButtonStyle button = new TextButton.TextButtonStyle();
+        button.up = skin.newDrawable("green", Color.DARK_GRAY);
+        button.down = skin.newDrawable("green", Color.DARK_GRAY);
+        button.over = skin.newDrawable("green", Color.LIGHT_GRAY);
+        button.font = font;
+        skin.add(BUTTON, button);
+
+        TextButton.TextButtonStyle toggleButton = new TextButton.TextButtonStyle(button);
+        toggleButton.checked = skin.newDrawable("green", Color.BLUE);
+        skin.add(TOGGLE_BUTTON, toggleButton);
+        return skin;
+    }
+
+    // Disposes whatever is left when the game closes; anything still here is a screen that didn't release it
+    public void dispose() {
+        for (ObjectMap.Entry<String, Disposable> entry : resources) {
+            Gdx.app.log("ResourceCache", entry.key + " still has " + references.get(entry.key, 0) + " users");
+            entry.value.dispose();
+        }
+        resources.clear();
+        references.clear();
+    }
+}
@@ -0,0 +1,451 @@
+package com.mygdx.game;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * One side of an online match. Each peer simulates the whole match itself and sends the other only its own
+ * input bits for every tick. The remote hippo's input for ticks it hasn't heard about yet is predicted (the
+ * last known buttons stay held); when the real input arrives and differs, the match is restored to the
+ * tick before and simulated forward again with the real input. The local hippo responds immediately; the
+ * remote one jumps to where it really is whenever a prediction was wrong, which gets more noticeable the
+ * longer the link.
+ *
+ * The match rebuilds its Box2D world every tick (see MatchSimulation.setRebuildingWorld), so restoring a
+ * saved state is exact and both peers go through the same states. The host still sends its state every
+ * SYNC_INTERVAL_TICKS for a tick both inputs are known for, and the other peer rolls back onto it if its
+ * own state at that tick differs, which now only happens if the peers' floating point differs.
+ *
+ * A rollback that takes longer than ROLLBACK_BUDGET_NANOS narrows the prediction window, so a slow machine
+ * stalls the match a little instead of missing frames re-simulating it.
+ *
+ * The host plays the left hippo and decides the seed and rules; the joining player plays the right hippo.
+ */
+public class RollbackSession {
+    // Packet types; every packet starts with its type and the match id
+    static final byte HELLO = 1; // Host to joining player: seed and rules
+    static final byte INPUT = 2; // Ack of the remote input, then a run of the sender's input bits
+    static final byte SYNC = 3; // Host to joining player: a tick and the host's match state after it
+    static final byte JOIN = 4; // Joining player to host until the HELLO arrives, so the host knows where to send it
+
+    public static final int MAX_PREDICTION_TICKS = 15; // Stall instead of predicting further ahead than this (250 ms)
+    static final int MIN_PREDICTION_TICKS = 4; // However slow the rollbacks, this much of a link is still hidden
+    // How far back the host's state can still be rolled back onto. A sync is for a tick both inputs are known
+    // for, so it is about a round trip old when it arrives; this covers round trips of up to a second.
+    static final int MAX_CORRECTION_TICKS = 60;
+    static final int STATE_RING = MAX_CORRECTION_TICKS + 2;
+    static final int INPUT_RING = 128; // Power of two, more than the correction and prediction windows together
+    static final int MAX_INPUTS_PER_PACKET = 32;
+    static final int SYNC_INTERVAL_TICKS = 30;
+    static final int DISCONNECT_TICKS = (int)(5 / MatchSimulation.TIME_STEP); // Silence before giving up on the peer
+    static final int NONE = Integer.MAX_VALUE;
+    static final int STATE_SIZE = MatchSimulation.getStateSize(1, 1); // Online matches are always one against one
+
+    // A rollback of the whole prediction window has to fit in this; a rollback that doesn't shrinks the window
+    public static final long ROLLBACK_BUDGET_NANOS = 4000000L;
+
+    final PeerTransport transport;
+    final boolean isHost;
+    final int localHippo;
+    final int localMask, remoteMask; // Which input bits each peer owns; both may send commands
+    final float fieldWidth, fieldHeight;
+    final MatchListener listener;
+    final MatchInput input = new MatchInput();
+
+    MatchSimulation match;
+    MatchChecksums checksums; // Follows the match from the HELLO on, when set
+    boolean isStarted = false; // The joining player is waiting for the host's HELLO until this is set
+    boolean hasPeer = false; // Heard from the other player in this match
+    int matchId;
+    long seed;
+    int scoreToWin, scoreMargin;
+
+    int currentTick = 0; // Ticks simulated so far
+    int confirmedRemoteTick = 0; // The remote input is known for every tick up to this one
+    int remoteAckTick = 0; // The remote has our input for every tick up to this one
+    int rollbackTick = NONE; // Earliest tick that was simulated with the wrong remote input
+    int correctedTick = NONE; // Tick the host's state in syncState is for, until it has been applied
+    int lastSyncTick = 0;
+    int ticksSinceReceive = 0;
+    int predictionTicks = MAX_PREDICTION_TICKS; // How far ahead to predict; see fitPredictionWindow()
+    boolean isResimulating = false;
+
+    final ByteBuffer[] states = new ByteBuffer[STATE_RING]; // states[t % STATE_RING] is the match after t ticks
+    final int[] localInputs = new int[INPUT_RING];
+    final int[] remoteInputs = new int[INPUT_RING];
+    final int[] usedRemoteInputs = new int[INPUT_RING]; // What each tick was simulated with, predicted or not
+    final ByteBuffer syncState = ByteBuffer.allocate(STATE_SIZE);
+    final ByteBuffer scratchState = ByteBuffer.allocate(STATE_SIZE);
+    final byte[] inPacket = new byte[PeerTransport.MAX_PACKET_SIZE];
+    final byte[] outPacket = new byte[PeerTransport.MAX_PACKET_SIZE];
+    final ByteBuffer in = ByteBuffer.wrap(inPacket);
+    final ByteBuffer out = ByteBuffer.wrap(outPacket);
+
+    public final Stats stats = new Stats();
+
+    /** Hosts a match with the given seed and rules, playing the left hippo. */
+    public RollbackSession(PeerTransport transport, long seed, int scoreToWin, int scoreMargin,
+                           float fieldWidth, float fieldHeight, MatchListener listener) {
+        this(transport, true, fieldWidth, fieldHeight, listener);
+        matchId = (int)(seed ^ (seed >>> 32));
+        start(seed, scoreToWin, scoreMargin);
+    }
+
+    /** Joins the match hosted at the other end of the transport, playing the right hippo. */
+    public RollbackSession(PeerTransport transport, float fieldWidth, float fieldHeight, MatchListener listener) {
+        this(transport, false, fieldWidth, fieldHeight, listener);
+        // Something to draw until the host's HELLO arrives
+        match = createMatch();
+    }
+
+    RollbackSession(PeerTransport transport, boolean isHost, float fieldWidth, float fieldHeight,
+                    MatchListener listener) {
+        this.transport = transport;
+        this.isHost = isHost;
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+        this.listener = listener;
+        localHippo = isHost ? MatchInput.LEFT_HIPPO : MatchInput.RIGHT_HIPPO;
+        localMask = hippoMask(localHippo);
+        remoteMask = hippoMask(isHost ? MatchInput.RIGHT_HIPPO : MatchInput.LEFT_HIPPO);
+        for (int i = 0; i < STATE_RING; i++)
+            states[i] = ByteBuffer.allocate(STATE_SIZE);
+    }
+
+    static int hippoMask(int hippo) {
+        return MatchInput.HIPPO_MASK << (hippo * MatchInput.BITS_PER_HIPPO);
+    }
+
+    // The match is set up the same way on both peers. The placeholder it replaces is disposed only once the
+    // new match has started, as the listener may still look at it until then.
+    void start(long seed, int scoreToWin, int scoreMargin) {
+        this.seed = seed;
+        this.scoreToWin = scoreToWin;
+        this.scoreMargin = scoreMargin;
+        MatchSimulation placeholder = match;
+        match = createMatch();
+        match.setSeed(seed);
+        match.setRules(scoreToWin, scoreMargin);
+        match.setChecksums(checksums);
+        match.startNewGame();
+        if (placeholder != null)
+            placeholder.dispose();
+        isStarted = true;
+    }
+
+    MatchSimulation createMatch() {
+        MatchSimulation match = new MatchSimulation(fieldWidth, fieldHeight, new MatchListener() {
+            // Events from re-simulated ticks already happened once, or were never seen; either way stay quiet
+            @Override
+            public void ballHitHippo(boolean rightHippo) {
+                if (!isResimulating)
+                    listener.ballHitHippo(rightHippo);
+            }
+
+            @Override
+            public void pointScored(boolean rightHippo) {
+                if (!isResimulating)
+                    listener.pointScored(rightHippo);
+            }
+
+            @Override
+            public void gameWon(boolean rightHippo) {
+                if (!isResimulating)
+                    listener.gameWon(rightHippo);
+            }
+
+            @Override
+            public void roundStarted(int roundCount) {
+                listener.roundStarted(roundCount);
+            }
+        });
+        match.setRebuildingWorld(true); // So that restoring a saved state is exact
+        return match;
+    }
+
+    /**
+     * Called once per physics tick. Handles whatever arrived from the other player, rolls back if a
+     * prediction turned out wrong, and simulates the next tick with the given local input unless that
+     * would predict too far ahead of the remote input, in which case the match waits.
+     */
+    public void update(int localBits) {
+        receivePackets();
+        ticksSinceReceive++;
+        if (!isStarted) {
+            startPacket(JOIN);
+            transport.send(outPacket, out.position());
+            return;
+        }
+        if (isHost && !hasPeer)
+            sendHello();
+
+        if (rollbackTick != NONE)
+            rollback();
+
+        if (currentTick - confirmedRemoteTick < predictionTicks) {
+            int tick = currentTick + 1;
+            localInputs[tick & (INPUT_RING - 1)] = localBits & (localMask | MatchInput.COMMAND_MASK);
+            simulate(tick);
+            currentTick = tick;
+        }
+        else {
+            stats.stalledTicks++;
+        }
+
+        sendInputs();
+        if (isHost)
+            sendSync();
+    }
+
+    // Simulate the given tick from the state after the tick before it, saving that state first
+    void simulate(int tick) {
+        save(states[(tick - 1) % STATE_RING]);
+        int remote;
+        if (tick <= confirmedRemoteTick) {
+            remote = remoteInputs[tick & (INPUT_RING - 1)];
+        }
+        else {
+            // Predict that the remote buttons stay as they were last heard; commands are never predicted
+            remote = confirmedRemoteTick > 0 ? remoteInputs[confirmedRemoteTick & (INPUT_RING - 1)] & remoteMask : 0;
+            if (!isResimulating)
+                stats.predictedTicks++;
+        }
+        usedRemoteInputs[tick & (INPUT_RING - 1)] = remote;
+        input.bits = localInputs[tick & (INPUT_RING - 1)] | remote;
+        match.tick(input);
+    }
+
+    // Go back to the state before the earliest mispredicted tick (or onto the host's state) and simulate forward
+    void rollback() {
+        int from = rollbackTick;
+        rollbackTick = NONE;
+        long start = TimeUtils.nanoTime();
+        isResimulating = true;
+        if (from <= currentTick)
+            restore(states[(from - 1) % STATE_RING]);
+        for (int tick = from; ; tick++) {
+            if (tick - 1 == correctedTick) {
+                restore(syncState);
+                correctedTick = NONE;
+            }
+            if (tick > currentTick)
+                break;
+            simulate(tick);
+        }
+        isResimulating = false;
+
+        long nanos = TimeUtils.nanoTime() - start;
+        int ticks = Math.max(0, currentTick - from + 1);
+        stats.rollbacks++;
+        stats.resimulatedTicks += ticks;
+        stats.maxResimulatedTicks = Math.max(stats.maxResimulatedTicks, ticks);
+        stats.rollbackNanos += nanos;
+        stats.maxRollbackNanos = Math.max(stats.maxRollbackNanos, nanos);
+        if (nanos > ROLLBACK_BUDGET_NANOS)
+            stats.overBudget++;
+        fitPredictionWindow(nanos, ticks);
+    }
+
+    // A rollback over the budget narrows the prediction window by a tick, so the next ones re-simulate less and
+    // the match stalls a little sooner instead. It widens again a tick at a time while the latest rollback's
+    // cost per tick says a rollback of the wider window would still fit.
+    void fitPredictionWindow(long nanos, int ticks) {
+        if (nanos > ROLLBACK_BUDGET_NANOS)
+            predictionTicks = Math.max(MIN_PREDICTION_TICKS, predictionTicks - 1);
+        else if (ticks > 0 && predictionTicks < MAX_PREDICTION_TICKS
+                && nanos / ticks * (predictionTicks + 1) <= ROLLBACK_BUDGET_NANOS)
+            predictionTicks++;
+        stats.minPredictionTicks = Math.min(stats.minPredictionTicks, predictionTicks);
+    }
+
+    void save(ByteBuffer state) {
+        state.clear();
+        match.saveState(state);
+    }
+
+    void restore(ByteBuffer state) {
+        state.rewind();
+        match.restoreState(state);
+    }
+
+    void receivePackets() {
+        int length;
+        while ((length = transport.receive(inPacket)) >= 0) {
+            in.clear();
+            in.limit(length);
+            try {
+                byte type = in.get();
+                int id = in.getInt();
+                if (type == HELLO)
+                    receiveHello(id);
+                else if (isStarted && id == matchId && type == INPUT)
+                    receiveInputs();
+                else if (isStarted && id == matchId && type == SYNC && !isHost)
+                    receiveSync();
+                else
+                    continue; // Not for this match
+                hasPeer = true;
+                ticksSinceReceive = 0;
+            } catch (BufferUnderflowException e) {
+                stats.badPackets++;
+            }
+        }
+    }
+
+    void receiveHello(int id) {
+        long seed = in.getLong();
+        int scoreToWin = in.getInt();
+        int scoreMargin = in.getInt();
+        // The host repeats its HELLO until it hears back; only the first one counts
+        if (isHost || isStarted)
+            return;
+        matchId = id;
+        start(seed, scoreToWin, scoreMargin);
+    }
+
+    void receiveInputs() {
+        remoteAckTick = Math.max(remoteAckTick, in.getInt());
+        int firstTick = in.getInt();
+        int count = in.get() & 0xff;
+        for (int i = 0; i < count; i++) {
+            int tick = firstTick + i;
+            int bits = (in.getShort() & 0xffff) & (remoteMask | MatchInput.COMMAND_MASK);
+            // Take inputs strictly in order; anything else was either seen before or will be sent again
+            if (tick != confirmedRemoteTick + 1)
+                continue;
+            remoteInputs[tick & (INPUT_RING - 1)] = bits;
+            confirmedRemoteTick = tick;
+            if (tick <= currentTick && usedRemoteInputs[tick & (INPUT_RING - 1)] != bits)
+                rollbackTick = Math.min(rollbackTick, tick);
+        }
+    }
+
+    void receiveSync() {
+        int tick = in.getInt();
+        // Too old to roll back to, or a tick not simulated yet
+        if (tick > currentTick || tick < currentTick - MAX_CORRECTION_TICKS) {
+            stats.skippedSyncs++;
+            return;
+        }
+        syncState.clear();
+        syncState.put(inPacket, in.position(), STATE_SIZE);
+        stats.syncs++;
+
+        ByteBuffer own;
+        if (tick == currentTick) {
+            save(scratchState);
+            own = scratchState;
+        }
+        else {
+            own = states[tick % STATE_RING];
+        }
+        if (sameState(own, syncState))
+            return;
+        stats.syncCorrections++;
+        correctedTick = tick;
+        rollbackTick = Math.min(rollbackTick, tick + 1);
+    }
+
+    static boolean sameState(ByteBuffer a, ByteBuffer b) {
+        byte[] x = a.array(), y = b.array();
+        for (int i = 0; i < STATE_SIZE; i++)
+            if (x[i] != y[i])
+                return false;
+        return true;
+    }
+
+    void startPacket(byte type) {
+        out.clear();
+        out.put(type);
+        out.putInt(matchId);
+    }
+
+    void sendHello() {
+        startPacket(HELLO);
+        out.putLong(seed);
+        out.putInt(scoreToWin);
+        out.putInt(scoreMargin);
+        transport.send(outPacket, out.position());
+    }
+
+    // Every input the remote hasn't acknowledged yet, oldest first, so lost packets are made up for
+    void sendInputs() {
+        int count = Math.min(currentTick - remoteAckTick, MAX_INPUTS_PER_PACKET);
+        int firstTick = remoteAckTick + 1;
+        startPacket(INPUT);
+        out.putInt(confirmedRemoteTick);
+        out.putInt(firstTick);
+        out.put((byte)count);
+        for (int i = 0; i < count; i++)
+            out.putShort((short)localInputs[(firstTick + i) & (INPUT_RING - 1)]);
+        transport.send(outPacket, out.position());
+    }
+
+    // The host's state after the latest tick both inputs are known for
+    void sendSync() {
+        int tick = Math.min(confirmedRemoteTick, currentTick);
+        if (tick - lastSyncTick < SYNC_INTERVAL_TICKS)
+            return;
+        lastSyncTick = tick;
+        ByteBuffer state;
+        if (tick == currentTick) {
+            save(scratchState);
+            state = scratchState;
+        }
+        else {
+            state = states[tick % STATE_RING];
+        }
+        startPacket(SYNC);
+        out.putInt(tick);
+        out.put(state.array(), 0, STATE_SIZE);
+        transport.send(outPacket, out.position());
+    }
+
+    // Hash every tick of the match into the given checksums, to compare with the other peer's afterwards.
+    // Ticks simulated again after a rollback replace what was recorded for them.
+    public void setChecksums(MatchChecksums checksums) {
+        this.checksums = checksums;
+        if (isStarted)
+            match.setChecksums(checksums);
+    }
+
+    public MatchSimulation getMatch() { return match; }
+    public boolean isHost() { return isHost; }
+    public boolean isStarted() { return isStarted; }
+    public boolean hasPeer() { return hasPeer; }
+    public boolean isConnected() { return hasPeer && ticksSinceReceive < DISCONNECT_TICKS; }
+    public boolean hasLostPeer() { return hasPeer && ticksSinceReceive >= DISCONNECT_TICKS; }
+    public int getCurrentTick() { return currentTick; }
+    public int getConfirmedRemoteTick() { return confirmedRemoteTick; }
+    public int getPredictionTicks() { return predictionTicks; }
+    public int getLocalHippo() { return localHippo; }
+
+    /** What the rollbacks cost, to check against ROLLBACK_BUDGET_NANOS, and how far the window had to shrink for it. */
+    public static class Stats {
+        public int rollbacks, resimulatedTicks, maxResimulatedTicks, overBudget;
+        public int minPredictionTicks = MAX_PREDICTION_TICKS;
+        public long rollbackNanos, maxRollbackNanos;
+        public int predictedTicks, stalledTicks;
+        public int syncs, syncCorrections, skippedSyncs, badPackets;
+
+        public float averageRollbackMicros() {
+            return rollbacks == 0 ? 0 : rollbackNanos / 1000f / rollbacks;
+        }
+
+        public float microsPerResimulatedTick() {
+            return resimulatedTicks == 0 ? 0 : rollbackNanos / 1000f / resimulatedTicks;
+        }
+
+        @Override
+        public String toString() {
+            return rollbacks + " rollbacks (" + resimulatedTicks + " ticks re-simulated, max " + maxResimulatedTicks +
+                    "), " + averageRollbackMicros() + " us average, " + maxRollbackNanos / 1000 + " us max, " +
+                    microsPerResimulatedTick() + " us/tick, " + overBudget + " over budget (window down to " +
+                    minPredictionTicks + " ticks); " +
+                    predictedTicks + " predicted, " + stalledTicks + " stalled; " +
+                    syncs + " syncs, " + syncCorrections + " corrections, " + skippedSyncs + " skipped";
+        }
+    }
+}
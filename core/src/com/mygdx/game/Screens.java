@@ -0,0 +1,79 @@
+package com.mygdx.game;
+
+/**
+ * Creates each screen the first time it is asked for and hands out the same instance after that, so moving
+ * between the menus and a match never rebuilds a screen. Screens reset themselves in show() and hide(), and
+ * are only disposed when the game exits.
+ */
+public class Screens {
+    final VolleyBall game;
+    MainMenuScreen mainMenu;
+    GameScreen match;
+    SettingsScreen settings;
+    InstructionScreen instructions;
+    StatsScreen stats;
+    SpectatorScreen spectator;
+
+    public Screens(VolleyBall game) {
+        this.game = game;
+    }
+
+    public MainMenuScreen mainMenu() {
+        if (mainMenu == null)
+            mainMenu = new MainMenuScreen(game);
+        return mainMenu;
+    }
+
+    // Needs the game assets to be loaded
+    public GameScreen match() {
+        if (match == null)
+            match = new GameScreen(game);
+        return match;
+    }
+
+    public SettingsScreen settings() {
+        if (settings == null)
+            settings = new SettingsScreen(game);
+        return settings;
+    }
+
+    public InstructionScreen instructions() {
+        if (instructions == null)
+            instructions = new InstructionScreen(game);
+        return instructions;
+    }
+
+    public StatsScreen stats() {
+        if (stats == null)
+            stats = new StatsScreen(game);
+        return stats;
+    }
+
+    // Needs the game assets to be loaded, and game.spectatorClient to be set
+    public SpectatorScreen spectator() {
+        if (spectator == null)
+            spectator = new SpectatorScreen(game);
+        return spectator;
+    }
+
+    public void dispose() {
+        if (mainMenu != null)
+            mainMenu.dispose();
+        if (match != null)
+            match.dispose();
+        if (settings != null)
+            settings.dispose();
+        if (instructions != null)
+            instructions.dispose();
+        if (stats != null)
+            stats.dispose();
+        if (spectator != null)
+            spectator.dispose();
+        mainMenu = null;
+        match = null;
+        settings = null;
+        instructions = null;
+        stats = null;
+        spectator = null;
+    }
+}
@@ -4,9 +4,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
@@ -18,51 +16,37 @@ import com.badlogic.gdx.utils.Align;
 public class SettingsScreen implements Screen {
 
     final VolleyBall game;
+    final int drawPhase, stagePhase; // Timed by the frame profiler
     Texture background;
     Sprite backgroundSprite;
 
     Skin skin;
     Stage stage;
+    HudText scoreText;
 
     public SettingsScreen (final VolleyBall game) {
-        create();
         this.game = game;
+        drawPhase = game.profiler.phase("menu draw");
+        stagePhase = game.profiler.phase("menu stage");
+        create();
     }
 
     public void create() {
-        background = new Texture("mainscreen.jpg");
+        background = Assets.getBackground(game.assets, Assets.MENU_BACKGROUND);
         backgroundSprite = new Sprite(background);
         backgroundSprite.setBounds(0f, 0f, 950f, 768f);
         backgroundSprite.setAlpha(200f);
 
-        stage = new Stage();
-        Gdx.input.setInputProcessor(stage);
-
-        // A skin can be loaded via JSON or defined programmatically, either is fine. Using a skin is optional but strongly
-        // recommended solely for the convenience of getting a texture, region, etc as a drawable, tinted drawable, etc.
-        skin = new Skin();
-        // Generate a 1x1 white texture and store it in the skin named "white".
-        Pixmap pixmap = new Pixmap(100, 100, Pixmap.Format.RGBA8888);
-        pixmap.setColor(Color.GREEN);
-        pixmap.fill();
-
-        skin.add("white", new Texture(pixmap));
-
-        // Store the default libgdx font under the name "default".
-        BitmapFont bfont = new BitmapFont();
-        bfont.getData().setScale(1, 1);
-        skin.add("default", bfont);
-
-        // Configure a TextButtonStyle and name it "default". Skin resources are stored by type, so this doesn't overwrite the font.
-        TextButton.TextButtonStyle textButtonStyle = new TextButton.TextButtonStyle();
-        textButtonStyle.up = skin.newDrawable("white", Color.DARK_GRAY);
-        textButtonStyle.down = skin.newDrawable("white", Color.DARK_GRAY);
-        //textButtonStyle.checked = skin.newDrawable("white", Color.BLUE);
-        textButtonStyle.over = skin.newDrawable("white", Color.LIGHT_GRAY);
+        // Double the default font size, in bright green
+        scoreText = new HudText(game.font, Color.GREEN)
+                .setScale(2f)
+                .setPosition(0f, VolleyBall.SCREEN_HEIGHT/2 + 50f, VolleyBall.SCREEN_WIDTH, Align.center);
 
-        textButtonStyle.font = skin.getFont("default");
+        stage = new Stage();
 
-        skin.add("default", textButtonStyle);
+        // The button styles are shared with the other menu screens
+        skin = game.resources.getSkin(ResourceCache.MENU_SKIN);
+        TextButton.TextButtonStyle textButtonStyle = skin.get(ResourceCache.BUTTON, TextButton.TextButtonStyle.class);
 
         final TextButton scoreTotalDecreaseButton = new TextButton("<", textButtonStyle);
         scoreTotalDecreaseButton.setBounds(0f,0f, 50f, 100f);
@@ -84,18 +68,64 @@ public class SettingsScreen implements Screen {
             }
         });
 
+        final TextButton opponentButton = new TextButton(opponentLabel(), textButtonStyle);
+        opponentButton.setBounds(0f,0f, 250f, 50f);
+        opponentButton.setPosition(VolleyBall.SCREEN_WIDTH/2, VolleyBall.SCREEN_HEIGHT/2 - 120f, Align.center);
+        stage.addActor(opponentButton);
+        opponentButton.addListener(new ChangeListener() {
+            public void changed(ChangeEvent event, Actor actor) {
+                game.nextOpponent();
+                opponentButton.setText(opponentLabel());
+            }
+        });
+
+        final TextButton modeButton = new TextButton(modeLabel(), textButtonStyle);
+        modeButton.setBounds(0f,0f, 250f, 50f);
+        modeButton.setPosition(VolleyBall.SCREEN_WIDTH/2, VolleyBall.SCREEN_HEIGHT/2 - 180f, Align.center);
+        stage.addActor(modeButton);
+        modeButton.addListener(new ChangeListener() {
+            public void changed(ChangeEvent event, Actor actor) {
+                game.nextMode();
+                modeButton.setText(modeLabel());
+            }
+        });
+
+        final TextButton frameRateButton = new TextButton(frameRateLabel(), textButtonStyle);
+        frameRateButton.setBounds(0f,0f, 250f, 50f);
+        frameRateButton.setPosition(VolleyBall.SCREEN_WIDTH/2, VolleyBall.SCREEN_HEIGHT/2 - 240f, Align.center);
+        stage.addActor(frameRateButton);
+        frameRateButton.addListener(new ChangeListener() {
+            public void changed(ChangeEvent event, Actor actor) {
+                game.pacer.nextTargetFps();
+                frameRateButton.setText(frameRateLabel());
+            }
+        });
+
         final TextButton toMainMenu = new TextButton("RETURN TO MAIN MENU", textButtonStyle);
         toMainMenu.setBounds(0f,0f, 200f, 50f);
-        toMainMenu.setPosition(VolleyBall.SCREEN_WIDTH/2, VolleyBall.SCREEN_HEIGHT/2 - 200f, Align.center);
+        toMainMenu.setPosition(VolleyBall.SCREEN_WIDTH/2, VolleyBall.SCREEN_HEIGHT/2 - 320f, Align.center);
         stage.addActor(toMainMenu);
         toMainMenu.addListener(new ChangeListener() {
             public void changed(ChangeEvent event, Actor actor) {
-                game.setScreen(new MainMenuScreen(game));
-                dispose();
+                game.setScreen(game.screens.mainMenu());
             }
         });
     }
 
+    static String opponentLabel() {
+        return VolleyBall.cpuLevel == null ? "BLUE: SECOND PLAYER" : "BLUE: COMPUTER (" + VolleyBall.cpuLevel + ")";
+    }
+
+    static String modeLabel() {
+        String teams = VolleyBall.hipposPerSide + " VS " + VolleyBall.hipposPerSide;
+        return VolleyBall.ballCount == 1 ? "MODE: " + teams : "MODE: " + teams + ", " + VolleyBall.ballCount + " BALLS";
+    }
+
+    String frameRateLabel() {
+        int fps = game.pacer.targetFps;
+        return fps < FramePacer.VSYNC_FPS ? "FRAME RATE: " + fps + " (SAVES BATTERY)" : "FRAME RATE: " + fps;
+    }
+
     @Override
     public void render(float delta) {
         Gdx.gl.glClearColor(0, 0, 0.2f, 1);
@@ -104,42 +134,36 @@ public class SettingsScreen implements Screen {
         game.batch.begin();
         backgroundSprite.draw(game.batch);
 
-        // Before changing the font scale, grab the previous scale values
-        float scaleX = game.font.getData().scaleX;
-        float scaleY = game.font.getData().scaleY;
-        // Set the scale of the font to double the default
-        game.font.getData().setScale(2f);
-        // First print the message in pure black; this will provide a drop shadow effect that improves readability
-        game.font.setColor(0f, 0f, 0f, 255f);
-        game.font.draw(game.batch, "Score\n" +
-                "to win:\n" + VolleyBall.scoreToWin, 0f, VolleyBall.SCREEN_HEIGHT/2 + 50f, VolleyBall.SCREEN_WIDTH, Align.center, false);
-        // Print the message again in bright green
-        game.font.setColor(0f, 100f, 0f, 255f);
-        game.font.draw(game.batch, "Score\n" +
-                "to win:\n" + VolleyBall.scoreToWin, 0f, VolleyBall.SCREEN_HEIGHT/2 + 50f, VolleyBall.SCREEN_WIDTH, Align.center, false);
-        // Set the game font scale back to its previous values
-        game.font.getData().setScale(scaleX, scaleY);
+        // Laid out again only when the score to win changes
+        scoreText.set("Score\nto win:\n", VolleyBall.scoreToWin);
+        scoreText.draw(game.batch);
 
         game.batch.end();
+        game.profiler.lap(drawPhase);
 
         stage.act(Math.min(Gdx.graphics.getDeltaTime(), 1 / 30f));
         stage.draw();
+        game.profiler.lap(stagePhase);
     }
 
     @Override
     public void resize(int width, int height) {}
     @Override
-    public void show() {}
+    public void show() {
+        Gdx.input.setInputProcessor(stage);
+    }
     @Override
-    public void hide() {}
+    public void hide() {
+        game.saveSettings();
+    }
     @Override
     public void pause() {}
     @Override
     public void resume() {}
     @Override
     public void dispose() {
-        background.dispose();
+        // The background belongs to the asset manager
         stage.dispose();
-        skin.dispose();
+        game.resources.release(ResourceCache.MENU_SKIN);
     }
 }
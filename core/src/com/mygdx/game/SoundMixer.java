@@ -0,0 +1,171 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays the sound effects through a fixed number of voices. The match asks for effects from inside its
+ * physics callbacks with request(), which only puts the effect's number on a queue; update() plays what was
+ * asked for once per frame, after the physics has run.
+ *
+ * An effect asked for several times in one frame is played once, and not again until its cooldown has
+ * passed, so a ball bouncing on a hippo's head doesn't pile up dozens of overlapping copies of the same
+ * grunt. When every voice is busy, a new effect takes over the voice playing the least important (and then
+ * the oldest) effect, unless that one is more important than the new one; then the new one is dropped.
+ *
+ * The queue is lock-free for one thread asking and one thread playing, so request() never waits on the
+ * audio backend, even if the match runs on a thread of its own.
+ */
+public class SoundMixer {
+    public static final int MAX_VOICES = 4; // Well below what SoundPool or OpenAL give a whole application
+    static final int QUEUE_SIZE = 64; // Power of two; requests beyond this in one frame are dropped
+
+    // An effect: one or more variants, one of which is picked at random each time it plays
+    static class Effect {
+        final Sound[] variants;
+        final float[] seconds; // How long each variant keeps its voice busy
+        final int priority;
+        final long cooldownNanos;
+        final float volume;
+        boolean hasPlayed = false;
+        long lastPlayed;
+        boolean isRequested = false; // Already seen in this frame's requests
+
+        Effect(Sound[] variants, float[] seconds, int priority, float cooldown, float volume) {
+            this.variants = variants;
+            this.seconds = seconds;
+            this.priority = priority;
+            this.cooldownNanos = (long)(cooldown * 1e9);
+            this.volume = volume;
+        }
+    }
+
+    final Effect[] effects;
+    int effectCount = 0;
+
+    // What each voice is playing: the effect (null if idle), the backend's id for it, and when it started and ends
+    final Effect[] voiceEffect = new Effect[MAX_VOICES];
+    final Sound[] voiceSound = new Sound[MAX_VOICES];
+    final long[] voiceId = new long[MAX_VOICES];
+    final long[] voiceStart = new long[MAX_VOICES], voiceEnd = new long[MAX_VOICES];
+
+    // Single producer, single consumer ring of effect numbers
+    final int[] queue = new int[QUEUE_SIZE];
+    final AtomicInteger head = new AtomicInteger(); // Next slot to read, written only by update()
+    final AtomicInteger tail = new AtomicInteger(); // Next slot to write, written only by request()
+
+    // Counters, for tuning the cooldowns and the number of voices
+    int played, coalesced, cooledDown, stolen, dropped;
+    int queueOverflows; // Kept apart from the rest, since request() may run on another thread
+
+    public SoundMixer(int maxEffects) {
+        effects = new Effect[maxEffects];
+    }
+
+    /**
+     * Adds an effect and returns the number to request it by. Higher priorities win voices from lower ones;
+     * seconds gives how long each variant plays for, since the backends don't say when a sound has ended.
+     */
+    public int add(int priority, float cooldown, float volume, Sound[] variants, float[] seconds) {
+        if (variants.length == 0 || variants.length != seconds.length)
+            throw new IllegalArgumentException("Every variant needs its length");
+        effects[effectCount] = new Effect(variants, seconds, priority, cooldown, volume);
+        return effectCount++;
+    }
+
+    public int add(int priority, float cooldown, Sound sound, float seconds) {
+        return add(priority, cooldown, 1f, new Sound[] { sound }, new float[] { seconds });
+    }
+
+    // Asks for the effect to be played at the next update(); returns false if the queue is full
+    public boolean request(int effect) {
+        int t = tail.get();
+        if (t - head.get() == QUEUE_SIZE) {
+            queueOverflows++;
+            return false;
+        }
+        queue[t & (QUEUE_SIZE - 1)] = effect;
+        tail.lazySet(t + 1); // Publishes the slot; the reader sees the effect number before the new tail
+        return true;
+    }
+
+    // Plays everything requested since the last call
+    public void update() {
+        long now = TimeUtils.nanoTime();
+        int h = head.get();
+        int t = tail.get();
+        for (; h != t; h++) {
+            Effect effect = effects[queue[h & (QUEUE_SIZE - 1)]];
+            if (effect.isRequested) {
+                coalesced++;
+                continue;
+            }
+            effect.isRequested = true;
+            if (effect.hasPlayed && now - effect.lastPlayed < effect.cooldownNanos) {
+                cooledDown++;
+                continue;
+            }
+            play(effect, now);
+        }
+        head.lazySet(h);
+        for (int i = 0; i < effectCount; i++)
+            effects[i].isRequested = false;
+    }
+
+    void play(Effect effect, long now) {
+        int voice = pickVoice(effect, now);
+        if (voice < 0) {
+            dropped++;
+            return;
+        }
+        if (voiceEffect[voice] != null && voiceEnd[voice] > now) {
+            voiceSound[voice].stop(voiceId[voice]);
+            stolen++;
+        }
+        int variant = effect.variants.length == 1 ? 0 : MathUtils.random(effect.variants.length - 1);
+        Sound sound = effect.variants[variant];
+        long id = sound.play(effect.volume);
+        effect.hasPlayed = true;
+        effect.lastPlayed = now;
+        if (id == -1) {
+            // The backend had no voice to give; don't hold one of ours for it
+            voiceEffect[voice] = null;
+            dropped++;
+            return;
+        }
+        voiceEffect[voice] = effect;
+        voiceSound[voice] = sound;
+        voiceId[voice] = id;
+        voiceStart[voice] = now;
+        voiceEnd[voice] = now + (long)(effect.seconds[variant] * 1e9);
+        played++;
+    }
+
+    // An idle voice if there is one; otherwise the least important, oldest voice the effect may take over
+    int pickVoice(Effect effect, long now) {
+        int best = -1;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voiceEffect[i] == null || voiceEnd[i] <= now)
+                return i;
+            if (voiceEffect[i].priority > effect.priority)
+                continue;
+            if (best < 0 || voiceEffect[i].priority < voiceEffect[best].priority
+                    || (voiceEffect[i].priority == voiceEffect[best].priority && voiceStart[i] < voiceStart[best]))
+                best = i;
+        }
+        return best;
+    }
+
+    // Silences every voice and forgets any requests not played yet
+    public void stopAll() {
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voiceEffect[i] != null)
+                voiceSound[i].stop(voiceId[i]);
+            voiceEffect[i] = null;
+        }
+        head.lazySet(tail.get());
+    }
+}
@@ -0,0 +1,164 @@
+package com.mygdx.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Watches a match a SpectatorServer is sending. update() is polled every frame: it reads whatever has
+ * arrived without blocking and decodes it into the latest snapshots. The last HISTORY_FRAMES are kept, so
+ * the screen can draw the match a few frames behind the newest one and blend between the two snapshots
+ * around that point, which hides the jitter in when frames arrive.
+ *
+ * The playback point follows the newest frame at DELAY_FRAMES behind, running a little faster or slower to
+ * stay there, and jumps if it gets far off, e.g. after the host was held up.
+ */
+public class SpectatorClient {
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    public static final int HISTORY_FRAMES = 32; // Power of two
+    static final float DELAY_FRAMES = 4f; // How far behind the newest frame the match is drawn, about 67 ms
+    static final float MAX_DRIFT_FRAMES = 20f; // Further off than this, the playback point jumps
+    static final float CATCH_UP_RATE = 0.05f; // Of the distance to the delay, made up every frame
+
+    final SocketChannel channel;
+    final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    boolean hasHeader = false;
+    boolean isClosed = false;
+
+    final SpectatorStream.Snapshot latest = new SpectatorStream.Snapshot(); // Every frame is decoded into this
+    final SpectatorStream.Snapshot[] history = new SpectatorStream.Snapshot[HISTORY_FRAMES]; // By sequence
+    int newestSequence = -1;
+    int rallyHits = 0; // Since the last round started, counted frame by frame so none are merged
+    long bytesReceived = 0;
+    int framesReceived = 0;
+
+    // Playback, in frames
+    float playhead = -1f;
+    SpectatorStream.Snapshot shown, next; // The frames the playback point is between
+    float alpha; // 0 is shown, 1 is next
+
+    SpectatorClient(InetSocketAddress address) {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.connect(address);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't connect to " + address, e);
+        }
+        for (int i = 0; i < HISTORY_FRAMES; i++)
+            history[i] = new SpectatorStream.Snapshot();
+    }
+
+    public static SpectatorClient connect(String host, int port) {
+        return new SpectatorClient(new InetSocketAddress(host, port));
+    }
+
+    // Read and decode everything that has arrived
+    public void update() {
+        if (isClosed)
+            return;
+        try {
+            if (channel.isConnectionPending() && !channel.finishConnect())
+                return;
+            int read;
+            while ((read = channel.read(readBuffer)) > 0)
+                bytesReceived += read;
+            decode();
+            if (read < 0)
+                close();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    void decode() throws IOException {
+        readBuffer.flip();
+        if (!hasHeader) {
+            if (readBuffer.remaining() < SpectatorStream.HEADER_SIZE) {
+                readBuffer.compact();
+                return;
+            }
+            if (!SpectatorStream.readHeader(readBuffer))
+                throw new IOException("Not a spectator stream");
+            hasHeader = true;
+        }
+        int size;
+        while ((size = SpectatorStream.peekFrameSize(readBuffer)) >= 0 && readBuffer.remaining() >= size) {
+            if (SpectatorStream.read(readBuffer, latest) == 0)
+                continue;
+            framesReceived++;
+            if ((latest.events & SpectatorStream.ROUND) != 0)
+                rallyHits = 0;
+            if ((latest.events & SpectatorStream.HIT) != 0)
+                rallyHits++;
+            newestSequence = latest.sequence;
+            history[newestSequence & (HISTORY_FRAMES - 1)].set(latest);
+        }
+        readBuffer.compact();
+    }
+
+    // Move the playback point on by the frame's time; false until there is something to show
+    public boolean advance(float delta) {
+        if (newestSequence < 0)
+            return false;
+        float target = newestSequence - DELAY_FRAMES;
+        if (playhead < 0 || Math.abs(target - playhead) > MAX_DRIFT_FRAMES)
+            playhead = target;
+        else
+            playhead += delta / MatchSimulation.TIME_STEP + (target - playhead) * CATCH_UP_RATE;
+        playhead = Math.max(newestSequence - HISTORY_FRAMES + 2, Math.min(newestSequence, playhead));
+
+        int frame = Math.max(0, (int)playhead);
+        shown = getFrame(frame);
+        while (shown == null && frame < newestSequence)
+            shown = getFrame(++frame); // Right after a keyframe, the frames before it are not there
+        next = getFrame(frame + 1);
+        if (next == null || !next.hasLayoutOf(shown)) {
+            next = shown;
+            alpha = 0f;
+        } else {
+            alpha = Math.max(0f, playhead - frame);
+        }
+        return true;
+    }
+
+    SpectatorStream.Snapshot getFrame(int sequence) {
+        if (sequence < 0 || sequence > newestSequence)
+            return null;
+        SpectatorStream.Snapshot frame = history[sequence & (HISTORY_FRAMES - 1)];
+        return frame.sequence == sequence ? frame : null;
+    }
+
+    // The frame drawn; its layout, score and state hold until the next one
+    public SpectatorStream.Snapshot getShown() { return shown; }
+
+    // A body's position and angle at the playback point, blended between the frames around it
+    public float getX(int body) { return shown.getX(body) + (next.getX(body) - shown.getX(body)) * alpha; }
+    public float getY(int body) { return shown.getY(body) + (next.getY(body) - shown.getY(body)) * alpha; }
+
+    // In radians, turning the short way round
+    public float getAngle(int body) {
+        int from = shown.getAngleUnits(body);
+        int turn = SpectatorStream.turn(from, next.getAngleUnits(body));
+        return (from + turn * alpha) * SpectatorStream.RADIANS_PER_ANGLE_UNIT;
+    }
+
+    public SpectatorStream.Snapshot getNewest() { return newestSequence < 0 ? null : history[newestSequence & (HISTORY_FRAMES - 1)]; }
+    public int getNewestSequence() { return newestSequence; }
+    public int getRallyHits() { return rallyHits; }
+    public long getBytesReceived() { return bytesReceived; }
+    public int getFramesReceived() { return framesReceived; }
+    public boolean isConnected() { return !isClosed && channel.isConnected(); }
+    public boolean isClosed() { return isClosed; }
+
+    public void close() {
+        isClosed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+}
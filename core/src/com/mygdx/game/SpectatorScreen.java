@@ -0,0 +1,190 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.viewport.FitViewport;
+import com.badlogic.gdx.utils.viewport.Viewport;
+
+/**
+ * Draws a match another game is sending, from game.spectatorClient. There is no simulation here: the bodies
+ * are drawn where the stream says, blended between the frames around the playback point, and the HUD comes
+ * from the scores and status sent with them.
+ */
+public class SpectatorScreen implements Screen {
+
+    final VolleyBall game;
+    final SpectatorClient client;
+    final int drawPhase; // Timed by the frame profiler
+
+    SpriteBatch batch;
+    TextureAtlas atlas;
+    final Sprite[] sprites = new Sprite[SpectatorStream.MAX_BODIES]; // By body in the stream
+    final SpectatorStream.Snapshot layout = new SpectatorStream.Snapshot(); // The bodies the sprites were made for
+    Sprite netSprite;
+    Texture background;
+    Sprite backgroundSprite;
+    OrthographicCamera camera;
+    Viewport viewport;
+    HudText announcementText, statusText, leftScoreText, rightScoreText, rallyText;
+
+    static final int MAX_HUD_GLYPHS = 100;
+
+    public SpectatorScreen(final VolleyBall game) {
+        this.game = game;
+        client = game.spectatorClient;
+        drawPhase = game.profiler.phase("spectator draw");
+
+        batch = game.batch;
+        atlas = game.assets.get(Assets.SPRITES, TextureAtlas.class);
+        netSprite = atlas.createSprite(Assets.NET);
+        netSprite.setPosition(-netSprite.getWidth()/2, MatchSimulation.NET_Y);
+        netSprite.setScale(MatchSimulation.NET_SCALE);
+        background = Assets.getBackground(game.assets, Assets.BEACH_BACKGROUND);
+        backgroundSprite = new Sprite(background);
+        backgroundSprite.setBounds(0f, 0f, VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT);
+        backgroundSprite.setCenter(0, 0);
+
+        // Laid out like the game screen's HUD, with the rally's touches where the replay status goes
+        BitmapFont font = game.font;
+        announcementText = new HudText(font, Color.BLACK).setPosition(0f, 0f).reserve(MAX_HUD_GLYPHS);
+        statusText = new HudText(font, Color.BLACK).setPosition(0f, 0f).reserve(MAX_HUD_GLYPHS);
+        leftScoreText = new HudText(font, Color.BLACK)
+                .setPosition(-VolleyBall.SCREEN_WIDTH / 2 + 2.5f, -VolleyBall.SCREEN_HEIGHT / 2 + 20)
+                .reserve(MAX_HUD_GLYPHS);
+        rightScoreText = new HudText(font, Color.BLACK)
+                .setPosition(VolleyBall.SCREEN_WIDTH / 2 - 145, -VolleyBall.SCREEN_HEIGHT / 2 + 20)
+                .reserve(MAX_HUD_GLYPHS);
+        rallyText = new HudText(font, Color.BLACK)
+                .setPosition(-VolleyBall.SCREEN_WIDTH / 2 + 2.5f, VolleyBall.SCREEN_HEIGHT / 2 - 5)
+                .reserve(MAX_HUD_GLYPHS);
+
+        camera = new OrthographicCamera(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT);
+        viewport = new FitViewport(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, camera);
+        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+    }
+
+    @Override
+    public void render(float delta) {
+        // Frames keep arriving while the stream is up, whether or not anything on the field moves
+        client.update();
+        if (!client.isClosed())
+            game.pacer.animate();
+        boolean hasFrame = client.advance(delta);
+        SpectatorStream.Snapshot shown = client.getShown();
+        if (hasFrame && !shown.hasLayoutOf(layout))
+            createSprites(shown);
+
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        viewport.apply();
+        camera.update();
+        batch.setProjectionMatrix(camera.combined);
+        batch.begin();
+        backgroundSprite.draw(batch);
+        if (hasFrame) {
+            for (int body = 0; body < shown.getBodyCount(); body++) {
+                Sprite sprite = sprites[body];
+                if (sprite.isFlipX() != shown.isFlipped(body))
+                    sprite.flip(true, false);
+                sprite.setPosition(client.getX(body) * MatchSimulation.PIXELS_TO_METERS - sprite.getWidth()/2,
+                        client.getY(body) * MatchSimulation.PIXELS_TO_METERS - sprite.getHeight()/2);
+                sprite.setRotation(client.getAngle(body) * MathUtils.radiansToDegrees);
+                sprite.draw(batch);
+            }
+        }
+        netSprite.draw(batch);
+
+        updateHud(hasFrame ? shown : null);
+        announcementText.draw(batch);
+        statusText.draw(batch);
+        leftScoreText.draw(batch);
+        rightScoreText.draw(batch);
+        rallyText.draw(batch);
+        batch.end();
+        game.profiler.lap(drawPhase);
+
+        if (client.isClosed() && Gdx.input.justTouched())
+            game.setScreen(game.screens.mainMenu());
+    }
+
+    // One sprite for each body the stream has, made again whenever a new match changes them
+    void createSprites(SpectatorStream.Snapshot shown) {
+        for (int body = 0; body < shown.getBodyCount(); body++) {
+            if (shown.getKind(body) == MatchEntities.HIPPO) {
+                sprites[body] = atlas.createSprite(shown.getSide(body) == MatchInput.RIGHT_HIPPO ? Assets.HIPPO_BLUE : Assets.HIPPO_RED);
+                sprites[body].setScale(MatchSimulation.HIPPO_SCALE);
+            } else {
+                sprites[body] = atlas.createSprite(Assets.BALL);
+            }
+        }
+        layout.set(shown);
+    }
+
+    // The same messages the players see, from the status sent with the frame; null before the first one
+    void updateHud(SpectatorStream.Snapshot shown) {
+        if (shown != null && shown.hasStatus(SpectatorStream.BALL_LANDED)) {
+            if (shown.hasStatus(SpectatorStream.RIGHT_WON))
+                announcementText.set("Blue player wins the game!");
+            else if (shown.hasStatus(SpectatorStream.LEFT_WON))
+                announcementText.set("Red player wins the game!");
+            else if (shown.hasStatus(SpectatorStream.RIGHT_SCORED))
+                announcementText.set("Blue player scores!");
+            else
+                announcementText.set("Red player scores!");
+        } else {
+            announcementText.clear();
+        }
+
+        if (client.isClosed())
+            statusText.set("Connection lost \n" +
+                    "(Click anywhere to return to main menu)");
+        else if (shown == null)
+            statusText.set("Waiting for the match...");
+        else if (shown.hasStatus(SpectatorStream.NEXT_ROUND_STARTING))
+            statusText.set("Round ", shown.getRoundCount());
+        else if (shown.getState() == State.PAUSE)
+            statusText.set("Paused");
+        else
+            statusText.clear();
+
+        if (shown == null) {
+            leftScoreText.clear();
+            rightScoreText.clear();
+            rallyText.clear();
+            return;
+        }
+        leftScoreText.set("Red player score: ", shown.getLeftScore());
+        rightScoreText.set("Blue player score: ", shown.getRightScore());
+        rallyText.set("Touches this rally: ", client.getRallyHits());
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        viewport.update(width, height);
+    }
+
+    @Override
+    public void show() {
+        Gdx.input.setInputProcessor(null);
+    }
+
+    @Override
+    public void hide() {}
+    @Override
+    public void pause() {}
+    @Override
+    public void resume() {}
+
+    // The batch, font and textures belong to the game and the asset manager
+    @Override
+    public void dispose() {}
+}
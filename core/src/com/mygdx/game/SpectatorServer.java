@@ -0,0 +1,275 @@
+package com.mygdx.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Sends the match on this screen to any number of viewers over TCP, for tournaments that show one match on
+ * many screens. After every tick the game calls publish(), which quantizes the match and encodes it once, as
+ * a SpectatorStream delta against the tick before, into a ring of frames; that is all the render thread does.
+ * A network thread hands each frame to every viewer that is following the stream, and writes without
+ * blocking, so a slow viewer only holds up itself.
+ *
+ * A viewer that connects, or falls more than a buffer behind, waits for the next keyframe and picks up the
+ * deltas from there. Keyframes go out every KEYFRAME_INTERVAL frames, and on the next tick whenever a
+ * viewer is waiting for one, so joining takes a frame rather than seconds.
+ */
+public class SpectatorServer {
+    public static final int KEYFRAME_INTERVAL = 120; // Frames; the deltas are exact, so this is only a backstop
+    static final int FRAME_RING = 256; // Frames the network thread can fall behind by, about 4 seconds
+    static final int MAX_FRAME_LAG = FRAME_RING / 2; // Further behind than this, the oldest frames may be reused under it
+    static final int VIEWER_BUFFER_SIZE = 16 * 1024; // Bytes queued for one viewer, several seconds of frames
+    static final int STOP_TIMEOUT_MILLIS = 1000;
+
+    // One connected viewer; only touched by the network thread
+    static class Viewer {
+        final SocketChannel channel;
+        final ByteBuffer pending = ByteBuffer.allocate(VIEWER_BUFFER_SIZE); // Filled by frames, drained by writes
+        boolean isFollowing = false; // Has the stream from a keyframe on
+
+        Viewer(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    final ServerSocketChannel serverChannel;
+    final Selector selector;
+    final Thread thread;
+    volatile boolean isRunning = true;
+
+    // The render thread's side
+    final SpectatorStream.Snapshot snapshot = new SpectatorStream.Snapshot();
+    final SpectatorStream.Snapshot previous = new SpectatorStream.Snapshot();
+    int pendingEvents = 0;
+    int sequence = 0;
+    int keyframes = 0;
+    long keyframeBytes = 0, deltaBytes = 0;
+
+    // Frames handed over: slot sequence % FRAME_RING holds frame sequence until it is reused
+    final byte[][] frames = new byte[FRAME_RING][SpectatorStream.MAX_FRAME_SIZE];
+    final ByteBuffer[] frameBuffers = new ByteBuffer[FRAME_RING];
+    final int[] frameLengths = new int[FRAME_RING];
+    final boolean[] isKeyframe = new boolean[FRAME_RING];
+    volatile int published = 0; // Frames up to this one are complete
+    volatile boolean isKeyframeWanted = false; // A viewer is waiting for one
+
+    // The network thread's side
+    final ArrayList<Viewer> viewers = new ArrayList<Viewer>();
+    final ByteBuffer discard = ByteBuffer.allocate(256); // Viewers don't send anything that matters
+    int nextFrame = 0;
+    volatile int viewerCount = 0;
+    volatile long bytesSent = 0;
+    volatile int resyncs = 0; // Times a viewer fell behind and had to wait for a keyframe
+
+    SpectatorServer(int port) {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.socket().bind(new InetSocketAddress(port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't open spectator port " + port, e);
+        }
+        for (int i = 0; i < FRAME_RING; i++)
+            frameBuffers[i] = ByteBuffer.wrap(frames[i]);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "Spectator server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Listens on the given port; 0 picks a free one, see getPort()
+    public static SpectatorServer open(int port) {
+        return new SpectatorServer(port);
+    }
+
+    // Something happened in the current tick; sent with its frame
+    public void event(int event) {
+        pendingEvents |= event;
+    }
+
+    // Called after every tick of the match on screen, from the render thread; doesn't allocate or block
+    public void publish(MatchSimulation match) {
+        snapshot.capture(match);
+        snapshot.sequence = sequence;
+        snapshot.events = pendingEvents;
+        pendingEvents = 0;
+
+        int slot = sequence % FRAME_RING;
+        ByteBuffer out = frameBuffers[slot];
+        out.clear();
+        boolean keyframe = sequence % KEYFRAME_INTERVAL == 0 || isKeyframeWanted || !snapshot.hasLayoutOf(previous);
+        if (keyframe) {
+            isKeyframeWanted = false;
+            SpectatorStream.writeKeyframe(snapshot, out);
+            keyframes++;
+            keyframeBytes += out.position();
+        } else {
+            SpectatorStream.writeDelta(previous, snapshot, out);
+            deltaBytes += out.position();
+        }
+        frameLengths[slot] = out.position();
+        isKeyframe[slot] = keyframe;
+        previous.set(snapshot);
+        sequence++;
+        published = sequence; // Hands the slot over
+        selector.wakeup();
+    }
+
+    void serve() {
+        try {
+            while (isRunning) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else if (key.isReadable())
+                        read((Viewer)key.attachment());
+                }
+                queueFrames();
+                for (int i = viewers.size() - 1; i >= 0; i--)
+                    write(viewers.get(i));
+            }
+        } catch (IOException e) {
+            // The selector itself failed; nobody can be served any more
+        } catch (ClosedSelectorException e) {
+            // Closed under us
+        }
+        for (int i = viewers.size() - 1; i >= 0; i--)
+            drop(viewers.get(i));
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ignored) {}
+    }
+
+    void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true); // A frame a tick; don't hold them back to fill packets
+            Viewer viewer = new Viewer(channel);
+            SpectatorStream.writeHeader(viewer.pending);
+            channel.register(selector, SelectionKey.OP_READ, viewer);
+            viewers.add(viewer);
+            isKeyframeWanted = true;
+        }
+        viewerCount = viewers.size();
+    }
+
+    // A viewer only ever sends its end of stream, when it goes away
+    void read(Viewer viewer) {
+        try {
+            int read;
+            do {
+                discard.clear();
+                read = viewer.channel.read(discard);
+            } while (read > 0);
+            if (read < 0)
+                drop(viewer);
+        } catch (IOException e) {
+            drop(viewer);
+        }
+    }
+
+    // Copy the frames published since the last time to every viewer following the stream
+    void queueFrames() {
+        int end = published;
+        if (end - nextFrame > MAX_FRAME_LAG) {
+            // This thread was held up for seconds; start everyone over from the next keyframe
+            nextFrame = end;
+            for (int i = 0; i < viewers.size(); i++)
+                viewers.get(i).isFollowing = false;
+            isKeyframeWanted = true;
+        }
+        for (; nextFrame < end; nextFrame++) {
+            int slot = nextFrame % FRAME_RING;
+            int length = frameLengths[slot];
+            boolean keyframe = isKeyframe[slot];
+            for (int i = 0; i < viewers.size(); i++) {
+                Viewer viewer = viewers.get(i);
+                if (!viewer.isFollowing && !keyframe)
+                    continue;
+                if (viewer.pending.remaining() < length) {
+                    // Too far behind: let it catch up on what it has, then start again at a keyframe
+                    if (viewer.isFollowing)
+                        resyncs++;
+                    viewer.isFollowing = false;
+                    isKeyframeWanted = true;
+                    continue;
+                }
+                viewer.pending.put(frames[slot], 0, length);
+                viewer.isFollowing = true;
+            }
+        }
+    }
+
+    // Send as much as the socket takes, and wait for it to take more if it is full
+    void write(Viewer viewer) {
+        if (viewer.pending.position() == 0)
+            return;
+        viewer.pending.flip();
+        try {
+            bytesSent += viewer.channel.write(viewer.pending);
+        } catch (IOException e) {
+            drop(viewer);
+            return;
+        }
+        boolean isBlocked = viewer.pending.hasRemaining();
+        viewer.pending.compact();
+        SelectionKey key = viewer.channel.keyFor(selector);
+        if (key != null && key.isValid())
+            key.interestOps(isBlocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    void drop(Viewer viewer) {
+        viewers.remove(viewer);
+        viewerCount = viewers.size();
+        try {
+            viewer.channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getViewerCount() { return viewerCount; }
+    public long getBytesSent() { return bytesSent; }
+    public int getResyncs() { return resyncs; }
+    public int getFrameCount() { return sequence; }
+    public int getKeyframeCount() { return keyframes; }
+    public long getKeyframeBytes() { return keyframeBytes; }
+    public long getDeltaBytes() { return deltaBytes; }
+
+    // Disconnects every viewer; waits a moment for the network thread to finish
+    public void close() {
+        isRunning = false;
+        selector.wakeup();
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
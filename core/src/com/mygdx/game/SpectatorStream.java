@@ -0,0 +1,314 @@
+package com.mygdx.game;
+
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * What a SpectatorServer sends its viewers: where every hippo and ball is, the score, and what happened,
+ * for every tick of the match on the host's screen.
+ *
+ * A Snapshot is a list of integer fields: the rule state first, then the position, angle and facing of each
+ * hippo and ball. Positions are quantized to 1/512 m (a fifth of a pixel) and angles to 1/1024 of a turn,
+ * finer than anything a viewer can see. Frames on the wire, big endian:
+ *   short   length of the rest of the frame
+ *   byte    KEYFRAME or DELTA
+ *   byte    events since the frame before: HIT, POINT, ROUND, GAME_OVER
+ *   keyframe:
+ *     varint  sequence number of the frame
+ *     byte    body count, then a byte per body: its kind, and its side if it is a hippo
+ *     every field, as a zigzag varint
+ *   delta, for the frame right after the one before:
+ *     varint  mask of the fields that changed
+ *     each of those as the zigzag varint difference from the frame before
+ *
+ * A hippo standing still costs nothing in a delta and a flying ball a byte or two per field, so a tick comes
+ * to around 15 bytes and a viewer to about 1 KB/s. A viewer can only start at a keyframe, which has the
+ * layout of the bodies; after that it needs every delta, which TCP delivers in order.
+ */
+public class SpectatorStream {
+    static final int MAGIC = 0x48565350; // "HVSP", sent once when a viewer connects
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 5;
+
+    // Frame types
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+
+    // Events, or'ed together over the ticks a frame covers
+    public static final int HIT = 1;
+    public static final int POINT = 1 << 1;
+    public static final int ROUND = 1 << 2;
+    public static final int GAME_OVER = 1 << 3;
+
+    public static final float POSITION_UNITS = 512f; // Per meter
+    public static final int ANGLE_UNITS = 1024; // Per turn; a power of two, so angles wrap with a mask
+    public static final float RADIANS_PER_ANGLE_UNIT = MathUtils.PI2 / ANGLE_UNITS;
+
+    // Rule fields, then BODY_FIELDS for each body
+    static final int LEFT_SCORE = 0;
+    static final int RIGHT_SCORE = 1;
+    static final int ROUND_COUNT = 2;
+    static final int STATUS = 3;
+    static final int RULE_FIELDS = 4;
+    static final int X = 0, Y = 1, ANGLE = 2, BODY_FLAGS = 3;
+    static final int BODY_FIELDS = 4;
+
+    public static final int MAX_BODIES = 2 * MatchSimulation.MAX_HIPPOS_PER_SIDE + MatchSimulation.MAX_BALLS;
+    static final int MAX_FIELDS = RULE_FIELDS + MAX_BODIES * BODY_FIELDS; // At most 64, for the delta mask
+    static final int MAX_FRAME_SIZE = 3 + 1 + 5 + 1 + MAX_BODIES + MAX_FIELDS * 5;
+
+    // Bits of the STATUS field, over the state's ordinal
+    public static final int BALL_LANDED = 1 << 2;
+    public static final int RIGHT_SCORED = 1 << 3; // Which side took the last point
+    public static final int NEXT_ROUND_STARTING = 1 << 4;
+    public static final int RIGHT_WON = 1 << 5;
+    public static final int LEFT_WON = 1 << 6;
+    static final int STATE_MASK = 3;
+
+    static final State[] STATES = State.values();
+
+    // The body flags
+    static final int FLIPPED = 1;
+
+    /** One tick of a match as the viewers see it. */
+    public static class Snapshot {
+        public int sequence = -1; // Frames are numbered from the first one the server sent
+        public int events;
+        int bodyCount;
+        final int[] kinds = new int[MAX_BODIES]; // MatchEntities.HIPPO or BALL
+        final int[] sides = new int[MAX_BODIES]; // MatchInput.LEFT_HIPPO or RIGHT_HIPPO, for a hippo
+        final int[] fields = new int[MAX_FIELDS];
+
+        // Quantizes the match as it is now: its hippos, then its balls
+        public void capture(MatchSimulation match) {
+            MatchEntities entities = match.entities;
+            fields[LEFT_SCORE] = match.leftScore;
+            fields[RIGHT_SCORE] = match.rightScore;
+            fields[ROUND_COUNT] = match.roundCount;
+            fields[STATUS] = match.state.ordinal() | (match.hasBallLanded ? BALL_LANDED : 0)
+                    | (match.scoringHippo ? RIGHT_SCORED : 0) | (match.isNextRoundStarting ? NEXT_ROUND_STARTING : 0)
+                    | (match.rightWin ? RIGHT_WON : 0) | (match.leftWin ? LEFT_WON : 0);
+            bodyCount = 0;
+            for (int i = 0; i < entities.hippoCount; i++) {
+                int hippo = entities.hippos[i];
+                captureBody(MatchEntities.HIPPO, entities.sides[hippo], entities.bodies[hippo], entities.isFlipped[hippo]);
+            }
+            for (int i = 0; i < entities.ballCount; i++)
+                captureBody(MatchEntities.BALL, 0, entities.bodies[entities.balls[i]], false);
+        }
+
+        void captureBody(int kind, int side, Body body, boolean isFlipped) {
+            int field = RULE_FIELDS + bodyCount * BODY_FIELDS;
+            Vector2 position = body.getPosition();
+            kinds[bodyCount] = kind;
+            sides[bodyCount] = side;
+            fields[field + X] = Math.round(position.x * POSITION_UNITS);
+            fields[field + Y] = Math.round(position.y * POSITION_UNITS);
+            fields[field + ANGLE] = Math.round(body.getAngle() / MathUtils.PI2 * ANGLE_UNITS) & (ANGLE_UNITS - 1);
+            fields[field + BODY_FLAGS] = isFlipped ? FLIPPED : 0;
+            bodyCount++;
+        }
+
+        public void set(Snapshot other) {
+            sequence = other.sequence;
+            events = other.events;
+            bodyCount = other.bodyCount;
+            System.arraycopy(other.kinds, 0, kinds, 0, bodyCount);
+            System.arraycopy(other.sides, 0, sides, 0, bodyCount);
+            System.arraycopy(other.fields, 0, fields, 0, getFieldCount());
+        }
+
+        // Whether both have the same bodies, so one can follow the other in a delta or be blended into it
+        public boolean hasLayoutOf(Snapshot other) {
+            if (bodyCount != other.bodyCount)
+                return false;
+            for (int i = 0; i < bodyCount; i++)
+                if (kinds[i] != other.kinds[i] || sides[i] != other.sides[i])
+                    return false;
+            return true;
+        }
+
+        // Same layout and fields; the sequence and events are not compared
+        public boolean isSameAs(Snapshot other) {
+            if (!hasLayoutOf(other))
+                return false;
+            for (int i = 0; i < getFieldCount(); i++)
+                if (fields[i] != other.fields[i])
+                    return false;
+            return true;
+        }
+
+        int getFieldCount() {
+            return RULE_FIELDS + bodyCount * BODY_FIELDS;
+        }
+
+        public int getBodyCount() { return bodyCount; }
+        public int getKind(int body) { return kinds[body]; }
+        public int getSide(int body) { return sides[body]; }
+        public int getLeftScore() { return fields[LEFT_SCORE]; }
+        public int getRightScore() { return fields[RIGHT_SCORE]; }
+        public int getRoundCount() { return fields[ROUND_COUNT]; }
+        public State getState() { return STATES[fields[STATUS] & STATE_MASK]; }
+        public boolean hasStatus(int bit) { return (fields[STATUS] & bit) != 0; }
+        public float getX(int body) { return fields[RULE_FIELDS + body * BODY_FIELDS + X] / POSITION_UNITS; }
+        public float getY(int body) { return fields[RULE_FIELDS + body * BODY_FIELDS + Y] / POSITION_UNITS; }
+        public int getAngleUnits(int body) { return fields[RULE_FIELDS + body * BODY_FIELDS + ANGLE]; }
+        public boolean isFlipped(int body) { return (fields[RULE_FIELDS + body * BODY_FIELDS + BODY_FLAGS] & FLIPPED) != 0; }
+    }
+
+    public static void writeHeader(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.put((byte)VERSION);
+    }
+
+    public static boolean readHeader(ByteBuffer in) {
+        return in.getInt() == MAGIC && in.get() == VERSION;
+    }
+
+    public static void writeKeyframe(Snapshot snapshot, ByteBuffer out) {
+        int start = startFrame(KEYFRAME, snapshot.events, out);
+        putVarint(out, snapshot.sequence);
+        out.put((byte)snapshot.bodyCount);
+        for (int i = 0; i < snapshot.bodyCount; i++)
+            out.put((byte)(snapshot.kinds[i] << 1 | snapshot.sides[i]));
+        for (int i = 0; i < snapshot.getFieldCount(); i++)
+            putVarint(out, zigzag(snapshot.fields[i]));
+        endFrame(start, out);
+    }
+
+    // The snapshot must directly follow previous and have its layout
+    public static void writeDelta(Snapshot previous, Snapshot snapshot, ByteBuffer out) {
+        int start = startFrame(DELTA, snapshot.events, out);
+        int count = snapshot.getFieldCount();
+        long mask = 0;
+        for (int i = 0; i < count; i++)
+            if (snapshot.fields[i] != previous.fields[i])
+                mask |= 1L << i;
+        putVarlong(out, mask);
+        for (int i = 0; i < count; i++)
+            if ((mask & 1L << i) != 0)
+                putVarint(out, zigzag(difference(i, snapshot.fields[i], previous.fields[i])));
+        endFrame(start, out);
+    }
+
+    static int startFrame(byte type, int events, ByteBuffer out) {
+        int start = out.position();
+        out.putShort((short)0); // The length, once it is known
+        out.put(type);
+        out.put((byte)events);
+        return start;
+    }
+
+    static void endFrame(int start, ByteBuffer out) {
+        out.putShort(start, (short)(out.position() - start - 2));
+    }
+
+    // Length of the whole frame at the buffer's position, or -1 if not even its length is in yet
+    public static int peekFrameSize(ByteBuffer in) {
+        if (in.remaining() < 2)
+            return -1;
+        return 2 + (in.getShort(in.position()) & 0xffff);
+    }
+
+    /**
+     * Reads one whole frame into the snapshot, which must hold the frame before it if this is a delta.
+     * Returns the frame's type, or 0 for a delta with nothing to apply it to, which is skipped.
+     */
+    public static int read(ByteBuffer in, Snapshot snapshot) {
+        int end = in.position() + peekFrameSize(in);
+        in.getShort();
+        byte type = in.get();
+        int events = in.get() & 0xff;
+        if (type == KEYFRAME) {
+            snapshot.sequence = getVarint(in);
+            snapshot.bodyCount = in.get();
+            for (int i = 0; i < snapshot.bodyCount; i++) {
+                int body = in.get();
+                snapshot.kinds[i] = body >> 1;
+                snapshot.sides[i] = body & 1;
+            }
+            for (int i = 0; i < snapshot.getFieldCount(); i++)
+                snapshot.fields[i] = unzigzag(getVarint(in));
+        } else if (snapshot.sequence >= 0) {
+            long mask = getVarlong(in);
+            for (int i = 0; i < snapshot.getFieldCount(); i++)
+                if ((mask & 1L << i) != 0)
+                    snapshot.fields[i] = sum(i, snapshot.fields[i], unzigzag(getVarint(in)));
+            snapshot.sequence++;
+        } else {
+            type = 0;
+        }
+        snapshot.events = events;
+        in.position(end);
+        return type;
+    }
+
+    // Angles wrap around, so the shorter way from one to the other is sent
+    static boolean isAngle(int field) {
+        return field >= RULE_FIELDS && (field - RULE_FIELDS) % BODY_FIELDS == ANGLE;
+    }
+
+    static int difference(int field, int value, int previous) {
+        return isAngle(field) ? turn(previous, value) : value - previous;
+    }
+
+    // From one angle to another the shorter way round, in angle units
+    public static int turn(int from, int to) {
+        return ((to - from + ANGLE_UNITS / 2) & (ANGLE_UNITS - 1)) - ANGLE_UNITS / 2;
+    }
+
+    static int sum(int field, int previous, int difference) {
+        if (!isAngle(field))
+            return previous + difference;
+        return (previous + difference) & (ANGLE_UNITS - 1);
+    }
+
+    // Small numbers of either sign become small unsigned ones
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Seven bits a byte, low bits first, with the top bit set on every byte but the last
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte)(value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static void putVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.put((byte)(value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long)(b & 0x7f) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+}
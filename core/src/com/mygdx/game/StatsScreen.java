@@ -0,0 +1,130 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.utils.Align;
+
+/**
+ * Totals over every match played on this device, and the last few results. Everything shown comes from the
+ * history's latest totals, so opening the screen never touches the disk.
+ */
+public class StatsScreen implements Screen {
+
+    final VolleyBall game;
+    final int drawPhase; // Timed by the frame profiler
+    Texture background;
+    Sprite backgroundSprite;
+    HudText statsText;
+    MatchHistory.Totals shownTotals; // What the text was last built from
+    boolean isTextBuilt = false;
+
+    public StatsScreen(final VolleyBall game) {
+        this.game = game;
+        drawPhase = game.profiler.phase("menu draw");
+        create();
+    }
+
+    public void create() {
+        background = Assets.getBackground(game.assets, Assets.MENU_BACKGROUND);
+        backgroundSprite = new Sprite(background);
+        backgroundSprite.setBounds(0f, 0f, VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT);
+        backgroundSprite.setAlpha(200f);
+
+        // Same look as the help text
+        statsText = new HudText(game.font, Color.GREEN)
+                .setScale(1.5f)
+                .setShadow(Color.BLACK, 0f, -2.5f)
+                .setPosition(0, VolleyBall.SCREEN_HEIGHT - 60, VolleyBall.SCREEN_WIDTH, Align.center);
+    }
+
+    @Override
+    public void show() {
+        isTextBuilt = false;
+        updateText();
+    }
+
+    // Rebuilt whenever the history publishes new totals, e.g. once it has finished opening
+    void updateText() {
+        MatchHistory.Totals totals = game.history == null ? null : game.history.getTotals();
+        if (isTextBuilt && totals == shownTotals)
+            return;
+        shownTotals = totals;
+        isTextBuilt = true;
+        if (game.history == null)
+            statsText.set("There is nowhere to keep the match history on this device. \n\n" +
+                    "Click anywhere to return to main menu.");
+        else if (totals == null)
+            statsText.set("Loading the match history...");
+        else
+            statsText.set(describe(totals));
+        game.pacer.invalidate();
+    }
+
+    static String describe(MatchHistory.Totals totals) {
+        if (totals.matches == 0)
+            return "No matches played yet. \n\nClick anywhere to return to main menu.";
+        StringBuilder text = new StringBuilder();
+        text.append("Matches played: ").append(totals.matches).append(" \n");
+        text.append("Red wins: ").append(totals.leftWins).append("   Blue wins: ").append(totals.rightWins).append(" \n");
+        text.append("Average rally: ").append(Math.round(totals.averageRally() * 10) / 10f).append(" touches \n");
+        int seconds = Math.round(totals.averageMatchSeconds());
+        text.append("Average match: ").append(seconds / 60).append(seconds % 60 < 10 ? ":0" : ":").append(seconds % 60).append(" \n");
+        text.append("Most points in a row: red ").append(totals.longestLeftStreak)
+                .append(", blue ").append(totals.longestRightStreak).append(" \n");
+        text.append(totals.isWinStreakRight ? "Blue" : "Red").append(" has won the last ").append(totals.winStreak)
+                .append(totals.winStreak == 1 ? " match" : " matches").append(" (longest run: ").append(totals.longestWinStreak)
+                .append(") \n\n");
+        text.append("Latest matches: \n");
+        for (int i = 0; i < totals.recentCount; i++) {
+            MatchHistory.Result result = totals.recent[i];
+            text.append(result.rightWon ? "Blue" : "Red").append(" won ").append(result.leftScore).append(" - ")
+                    .append(result.rightScore);
+            if (result.isOnline)
+                text.append(", online");
+            else if (result.opponent > 0)
+                text.append(", against the computer (").append(CpuPlayer.Level.values()[result.opponent - 1]).append(")");
+            if (result.hipposPerSide > 1 || result.ballCount > 1)
+                text.append(", ").append(result.hipposPerSide).append(" vs ").append(result.hipposPerSide)
+                        .append(result.ballCount > 1 ? " with " + result.ballCount + " balls" : "");
+            text.append(" \n");
+        }
+        text.append("\nClick anywhere to return to main menu.");
+        return text.toString();
+    }
+
+    @Override
+    public void render(float delta) {
+        Gdx.gl.glClearColor(0, 0, 0.2f, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        // Keep drawing until the history has finished opening
+        if (game.history != null && game.history.getTotals() == null)
+            game.pacer.animate();
+        updateText();
+
+        game.batch.begin();
+        backgroundSprite.draw(game.batch);
+        statsText.draw(game.batch);
+        game.batch.end();
+        game.profiler.lap(drawPhase);
+
+        if (Gdx.input.isTouched()) {
+            game.setScreen(game.screens.mainMenu());
+        }
+    }
+
+    @Override
+    public void resize(int width, int height) {}
+    @Override
+    public void hide() {}
+    @Override
+    public void pause() {}
+    @Override
+    public void resume() {}
+    @Override
+    public void dispose() {}
+}
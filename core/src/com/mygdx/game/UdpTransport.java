@@ -0,0 +1,86 @@
+package com.mygdx.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * PeerTransport over a non-blocking UDP socket. The host listens on a known port and talks to whoever
+ * sends to it first; the joining player sends to the host's address.
+ */
+public class UdpTransport implements PeerTransport {
+    final DatagramChannel channel;
+    SocketAddress remote; // Unknown to the host until the other player's first packet arrives
+    final ByteBuffer sendBuffer = ByteBuffer.allocate(MAX_PACKET_SIZE);
+    final ByteBuffer receiveBuffer = ByteBuffer.allocate(MAX_PACKET_SIZE);
+    int sendErrors = 0;
+
+    UdpTransport(int localPort, SocketAddress remote) {
+        this.remote = remote;
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().bind(new InetSocketAddress(localPort));
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't open UDP port " + localPort, e);
+        }
+    }
+
+    public static UdpTransport host(int port) {
+        return new UdpTransport(port, null);
+    }
+
+    public static UdpTransport join(String host, int port) {
+        return new UdpTransport(0, new InetSocketAddress(host, port));
+    }
+
+    @Override
+    public void send(byte[] data, int length) {
+        if (remote == null)
+            return;
+        sendBuffer.clear();
+        sendBuffer.put(data, 0, length);
+        sendBuffer.flip();
+        try {
+            channel.send(sendBuffer, remote);
+        } catch (IOException e) {
+            // A lost packet; the session resends what matters
+            sendErrors++;
+        }
+    }
+
+    @Override
+    public int receive(byte[] buffer) {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress sender;
+            try {
+                sender = channel.receive(receiveBuffer);
+            } catch (IOException e) {
+                return -1;
+            }
+            if (sender == null)
+                return -1;
+            if (remote == null)
+                remote = sender;
+            // Ignore anyone but the other player
+            if (!sender.equals(remote))
+                continue;
+            receiveBuffer.flip();
+            int length = receiveBuffer.remaining();
+            receiveBuffer.get(buffer, 0, length);
+            return length;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -1,9 +1,12 @@
 package com.mygdx.game;
 
 import com.badlogic.gdx.*;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 public class VolleyBall extends Game {
 	public static final int SCREEN_HEIGHT = 768;
@@ -12,28 +15,138 @@ public class VolleyBall extends Game {
 	public SpriteBatch batch;
 	public BitmapFont font;
 	public Music music;
+	public final MusicService musicService = new MusicService(); // Crossfades the music between screens
+	boolean isMusicPrimed = false;
+	public AssetManager assets; // Shared by all screens; owns every texture, sound and music track it loads
+	public Screens screens; // One instance of each screen, reused across transitions
+	public final ResourceCache resources = new ResourceCache(); // Fonts and skins shared by the screens
+	// Set by the launcher to play against another player over the network instead of on one keyboard
+	public PeerTransport onlineTransport;
+	public boolean isOnlineHost;
+	// Set by the launcher to send the match on screen to viewers, or to be one of them instead of playing
+	public SpectatorServer spectators;
+	public SpectatorClient spectatorClient;
+	public final FrameProfiler profiler = new FrameProfiler(); // Per-phase frame times, shown by the game screen's overlay
+	public final FramePacer pacer = new FramePacer(); // How often frames are drawn; whatever is moving asks for them
+	public int commandLineFps = 0; // Set by the desktop launcher's --fps; wins over the saved frame rate
+	public MatchHistory history; // Every finished match, kept across launches; null without local storage
+	int assetsPhase, musicPhase;
 
 	public static int scoreToWin = 15; // The least number of points to score before a player can win the game; 15 by default
 	public static int scoreMargin = 2; // The difference between points scored by both players should be equal to or
 	// greater than this in other to win the game; 2 by default
+	public static CpuPlayer.Level cpuLevel = null; // Who plays the blue hippo: null for a second player, else the computer
+	public static int hipposPerSide = 1, ballCount = 1; // Party modes: two against two, several balls at once
 
 	public static final int MAX_SCORE_TOTAL = 99;
 	public static final int MIN_SCORE_TOTAL = 2;
 	public static final int MAX_SCORE_MARGIN = 2;
 	public static final int MIN_SCORE_MARGIN = 2;
 
+	// The layouts the settings screen cycles through, as hippos per side and balls
+	static final int[][] MODES = { { 1, 1 }, { 2, 1 }, { 1, 3 }, { 2, 3 } };
+
+	// How long each frame may spend finishing loaded assets on the render thread (uploading textures etc.)
+	static final int LOADING_BUDGET_MILLIS = 8;
+
+	static final String FRAME_PROFILE_FILE = "profiles/frames.csv";
+	static final String HISTORY_FILE = "history/matches.bin";
+	static final String HISTORY_TOTALS_FILE = "history/totals.bin";
+
+	// The settings screen's choices, kept across launches
+	static final String PREFERENCES = "HippoVolleyball";
+	static final String SCORE_TO_WIN_SETTING = "scoreToWin";
+	static final String CPU_LEVEL_SETTING = "cpuLevel";
+	static final String HIPPOS_PER_SIDE_SETTING = "hipposPerSide";
+	static final String BALL_COUNT_SETTING = "ballCount";
+	static final String TARGET_FPS_SETTING = "targetFps";
+
 	public void create() {
+		assetsPhase = profiler.phase("assets");
+		musicPhase = profiler.phase("music");
+		loadSettings();
+		// Opened on its own thread; the stats screen shows the totals once they are in
+		if (Gdx.files.isLocalStorageAvailable())
+			history = new MatchHistory(Gdx.files.local(HISTORY_FILE), Gdx.files.local(HISTORY_TOTALS_FILE));
 		batch = new SpriteBatch();
-		//Use LibGDX's default Arial font.
-		font = new BitmapFont();
-		// Fetching the music file incurs a significant loading time, so do it before creating the menu screen
-		music = Gdx.audio.newMusic(Gdx.files.internal("Sumo_music.mp3"));
-		music.setLooping(true);
-		this.setScreen(new MainMenuScreen(this));
+		//Use LibGDX's default Arial font, shared with the screens
+		font = resources.getFont(ResourceCache.DEFAULT_FONT);
+		// Nothing is loaded up front; the menu background is queued first so the menu can be shown as soon
+		// as it is in, and the game assets (including the slow music file) keep loading behind the menus
+		assets = new AssetManager();
+		screens = new Screens(this);
+		Assets.queueMenuAssets(assets);
+		Assets.queueGameAssets(assets);
+		if (spectatorClient != null) {
+			// A viewer goes straight to the match it is watching
+			this.setScreen(new LoadingScreen(this, Assets.gameAssets()) {
+				@Override
+				void loaded() {
+					setScreen(screens.spectator());
+				}
+			});
+			return;
+		}
+		this.setScreen(new LoadingScreen(this, Assets.menuAssets()) {
+			@Override
+			void loaded() {
+				setScreen(screens.mainMenu());
+			}
+		});
 	}
 
 	public void render() {
+		profiler.startFrame();
+		// Keep loading in the background whatever screen is up; returns straight away once everything is in
+		if (!assets.update(LOADING_BUDGET_MILLIS))
+			pacer.animate();
+		profiler.lap(assetsPhase);
+		// Get the music's first decode over with while the menus are up, rather than when the first match starts
+		if (!isMusicPrimed && assets.isLoaded(Assets.MUSIC)) {
+			musicService.prime(getMusic());
+			isMusicPrimed = true;
+		}
+		musicService.update(Gdx.graphics.getDeltaTime());
+		if (musicService.isFading())
+			pacer.animate();
+		profiler.lap(musicPhase);
 		super.render(); //important!
+		profiler.endFrame();
+		pacer.endFrame(); // Sleeps if the frames are slowed down, so after the profiler has stopped timing
+	}
+
+	// A new screen, or the same one at a new size, has to be drawn even if nothing on it moves
+	@Override
+	public void setScreen(Screen screen) {
+		super.setScreen(screen);
+		pacer.invalidate();
+	}
+
+	@Override
+	public void resize(int width, int height) {
+		super.resize(width, height);
+		pacer.invalidate();
+	}
+
+	// The music is picked up from the asset manager once it has loaded
+	public Music getMusic() {
+		if (music == null)
+			music = assets.get(Assets.MUSIC, Music.class);
+		return music;
+	}
+
+	@Override
+	public void pause() {
+		pacer.pause();
+		super.pause();
+	}
+
+	@Override
+	public void resume() {
+		// The backends pause the music along with the application; don't count that as the music stalling
+		musicService.resync();
+		super.resume();
+		pacer.resume();
 	}
 
 	public void increaseScore() {
@@ -46,8 +159,92 @@ public class VolleyBall extends Game {
 			scoreToWin--;
 	}
 
+	// Cycle the blue hippo through a second player and the computer levels
+	public void nextOpponent() {
+		CpuPlayer.Level[] levels = CpuPlayer.Level.values();
+		if (cpuLevel == null)
+			cpuLevel = levels[0];
+		else if (cpuLevel.ordinal() + 1 < levels.length)
+			cpuLevel = levels[cpuLevel.ordinal() + 1];
+		else
+			cpuLevel = null;
+	}
+
+	public void nextMode() {
+		int mode = 0;
+		while (mode < MODES.length && (MODES[mode][0] != hipposPerSide || MODES[mode][1] != ballCount))
+			mode++;
+		mode = (mode + 1) % MODES.length; // An unknown layout goes back to the first
+		hipposPerSide = MODES[mode][0];
+		ballCount = MODES[mode][1];
+	}
+
+	// Anything missing or out of range keeps its default
+	void loadSettings() {
+		Preferences settings = Gdx.app.getPreferences(PREFERENCES);
+		scoreToWin = MathUtils.clamp(settings.getInteger(SCORE_TO_WIN_SETTING, scoreToWin), MIN_SCORE_TOTAL, MAX_SCORE_TOTAL);
+		String level = settings.getString(CPU_LEVEL_SETTING, "");
+		for (CpuPlayer.Level choice : CpuPlayer.Level.values())
+			if (choice.name().equals(level))
+				cpuLevel = choice;
+		int hippos = settings.getInteger(HIPPOS_PER_SIDE_SETTING, hipposPerSide);
+		int balls = settings.getInteger(BALL_COUNT_SETTING, ballCount);
+		for (int[] mode : MODES) {
+			if (mode[0] == hippos && mode[1] == balls) {
+				hipposPerSide = hippos;
+				ballCount = balls;
+			}
+		}
+		int fps = settings.getInteger(TARGET_FPS_SETTING, pacer.targetFps);
+		for (int choice : FramePacer.TARGET_FPS_CHOICES)
+			if (choice == fps)
+				pacer.targetFps = fps;
+		if (commandLineFps > 0)
+			pacer.targetFps = commandLineFps;
+	}
+
+	// Called when the settings screen closes
+	public void saveSettings() {
+		Preferences settings = Gdx.app.getPreferences(PREFERENCES);
+		settings.putInteger(SCORE_TO_WIN_SETTING, scoreToWin);
+		settings.putString(CPU_LEVEL_SETTING, cpuLevel == null ? "" : cpuLevel.name());
+		settings.putInteger(HIPPOS_PER_SIDE_SETTING, hipposPerSide);
+		settings.putInteger(BALL_COUNT_SETTING, ballCount);
+		if (commandLineFps == 0)
+			settings.putInteger(TARGET_FPS_SETTING, pacer.targetFps);
+		settings.flush();
+	}
+
 	public void dispose() {
+		super.dispose(); // Hides the current screen
+		musicService.stopAll();
+		Gdx.app.log("VolleyBall", "Music underruns: " + musicService.getUnderruns()
+				+ ", longest " + (int)(musicService.getLongestUnderrun() * 1000) + " ms"
+				+ ", slowest play or pause call " + musicService.getSlowestCallNanos() / 1000 + " us");
+		screens.dispose();
 		batch.dispose();
-		font.dispose();
+		resources.release(ResourceCache.DEFAULT_FONT);
+		resources.dispose();
+		assets.dispose();
+		if (history != null)
+			history.close(); // Waits for the last result to be written
+		if (onlineTransport != null)
+			onlineTransport.close();
+		if (spectators != null)
+			spectators.close();
+		if (spectatorClient != null)
+			spectatorClient.close();
+		saveFrameProfile();
+	}
+
+	// Leave the session's frame times behind for offline analysis
+	void saveFrameProfile() {
+		if (!Gdx.files.isLocalStorageAvailable())
+			return;
+		try {
+			profiler.writeCsv(Gdx.files.local(FRAME_PROFILE_FILE));
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("VolleyBall", "Couldn't save the frame profile", e);
+		}
 	}
 }
\ No newline at end of file
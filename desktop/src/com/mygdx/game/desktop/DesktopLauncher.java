@@ -2,14 +2,49 @@ package com.mygdx.game.desktop;
 
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+import com.mygdx.game.FramePacer;
 import com.mygdx.game.GameScreen;
+import com.mygdx.game.SpectatorClient;
+import com.mygdx.game.SpectatorServer;
+import com.mygdx.game.UdpTransport;
 import com.mygdx.game.VolleyBall;
 
 public class DesktopLauncher {
+	// Online play: one player starts with --host PORT and plays red, the other with --join HOST:PORT and plays blue.
+	// --fps N draws at most N frames a second, e.g. 30 to run cooler on a laptop.
+	// Tournaments: --spectators PORT sends the match on screen to anyone watching with --watch HOST:PORT.
 	public static void main (String[] arg) {
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
 		config.width = VolleyBall.SCREEN_WIDTH;
 		config.height = VolleyBall.SCREEN_HEIGHT;
-		new LwjglApplication(new VolleyBall(), config);
+		VolleyBall game = new VolleyBall();
+		for (int i = 0; i + 1 < arg.length; i += 2) {
+			if (arg[i].equals("--host")) {
+				game.onlineTransport = UdpTransport.host(Integer.parseInt(arg[i + 1]));
+				game.isOnlineHost = true;
+			}
+			else if (arg[i].equals("--join")) {
+				String[] address = arg[i + 1].split(":");
+				game.onlineTransport = UdpTransport.join(address[0], Integer.parseInt(address[1]));
+			}
+			else if (arg[i].equals("--spectators")) {
+				game.spectators = SpectatorServer.open(Integer.parseInt(arg[i + 1]));
+			}
+			else if (arg[i].equals("--watch")) {
+				String[] address = arg[i + 1].split(":");
+				game.spectatorClient = SpectatorClient.connect(address[0], Integer.parseInt(address[1]));
+			}
+			else if (arg[i].equals("--fps")) {
+				game.commandLineFps = Integer.parseInt(arg[i + 1]);
+			}
+		}
+		// The pacer sleeps for rates below vsync; this caps the rest, for drivers that don't sync
+		config.vSyncEnabled = true;
+		config.foregroundFPS = Math.max(game.commandLineFps, FramePacer.VSYNC_FPS);
+		// Out of focus the match pauses itself and only needs a few frames, unless a peer or viewers are waiting on
+		// its ticks, or this is a viewer on a screen nobody clicks into
+		boolean isStreaming = game.onlineTransport != null || game.spectators != null || game.spectatorClient != null;
+		config.backgroundFPS = isStreaming ? config.foregroundFPS : FramePacer.BACKGROUND_FPS;
+		new LwjglApplication(game, config);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.mygdx.game.headless;
+
+import java.lang.management.ManagementFactory;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.mygdx.game.*;
+
+/**
+ * Renders the game screen without a window, against the computer opponent, and fails if any frame after
+ * the warmup allocates on the game thread. Physics, sprite sync, batching and HUD text all run as they do
+ * in the game; only the GL calls are stubbed out (see HeadlessGdx). Run it from android/assets, after
+ * packAssets.
+ *
+ * Run it with -XX:TieredStopAtLevel=1, as the allocationCheck task does. Under C2 a handful of frames in
+ * 30,000 allocate a few hundred bytes, in whichever phase happens to be running when compiled code is
+ * deoptimized; the interpreter and C1 count none, so those bytes are the JIT's and not the game's.
+ *
+ * Usage: AllocationCheck [--warmup N] [--frames N] [--level EASY|NORMAL|HARD]
+ *
+ * Exits with 1 if anything was allocated, listing the first frames that did, and 2 if the JVM can't count
+ * allocations per thread.
+ */
+public class AllocationCheck {
+    static final int MAX_REPORTED_FRAMES = 10;
+
+    public static void main(String[] args) {
+        int warmupFrames = 2000;
+        int frames = 10000;
+        CpuPlayer.Level level = CpuPlayer.Level.HARD;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i], value = args[i + 1];
+            if (name.equals("--warmup")) warmupFrames = Integer.parseInt(value);
+            else if (name.equals("--frames")) frames = Integer.parseInt(value);
+            else if (name.equals("--level")) level = CpuPlayer.Level.valueOf(value.toUpperCase());
+            else throw new IllegalArgumentException("Unknown option " + name);
+        }
+
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.err.println("This JVM doesn't count allocations per thread");
+            System.exit(2);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM doesn't count allocations per thread");
+            System.exit(2);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        HeadlessGdx.init(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, MatchSimulation.TIME_STEP);
+        VolleyBall game = new VolleyBall();
+        game.assets = new AssetManager();
+        Assets.queueGameAssets(game.assets);
+        game.assets.finishLoading();
+        VolleyBall.cpuLevel = level;
+        VolleyBall.scoreToWin = VolleyBall.MAX_SCORE_TOTAL; // Stay in the middle of a match, away from saving its replay
+        GameScreen screen = new GameScreen(game);
+        screen.startNewGame();
+
+        for (int i = 0; i < warmupFrames; i++)
+            renderFrame(game, screen);
+
+        // What reading the counter costs by itself, so it isn't blamed on the frame
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, threads.getThreadAllocatedBytes(thread) - before);
+        }
+
+        long total = 0;
+        int allocatingFrames = 0;
+        for (int i = 0; i < frames; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            renderFrame(game, screen);
+            long bytes = threads.getThreadAllocatedBytes(thread) - before - overhead;
+            if (bytes > 0) {
+                if (allocatingFrames < MAX_REPORTED_FRAMES)
+                    System.out.println("Frame " + (warmupFrames + i) + " allocated " + bytes + " bytes");
+                allocatingFrames++;
+                total += bytes;
+            }
+        }
+
+        System.out.println(frames + " frames after " + warmupFrames + " of warmup: " + total + " bytes allocated in "
+                + allocatingFrames + " frames");
+        screen.dispose();
+        game.assets.dispose();
+        System.exit(total > 0 ? 1 : 0);
+    }
+
+    // The parts of VolleyBall.render() that run during a match
+    static void renderFrame(VolleyBall game, GameScreen screen) {
+        game.profiler.startFrame();
+        game.musicService.update(MatchSimulation.TIME_STEP);
+        screen.render(MatchSimulation.TIME_STEP);
+        game.profiler.endFrame();
+    }
+}
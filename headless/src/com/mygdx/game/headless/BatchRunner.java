@@ -0,0 +1,251 @@
+package com.mygdx.game.headless;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.mygdx.game.*;
+
+/**
+ * Plays bot-vs-bot matches without a window for every combination of the given calibration values and
+ * prints aggregated statistics per combination. Every match runs in its own MatchSimulation (and Box2D
+ * World); matches are spread over all cores with a work-stealing pool.
+ *
+ * Usage: BatchRunner [--matches N] [--threads N] [--seed N] [--scoreToWin N] [--out file.csv]
+ *                    [--hippoFriction a,b,..] [--jumpVelocity a,b,..] [--maxHorizontalVelocity a,b,..]
+ *                    [--ballRestitution a,b,..] [--netRestitution a,b,..] [--cpu EASY|NORMAL|HARD]
+ *                    [--hipposPerSide N] [--ballCount N] [--adaptiveStepping true|false]
+ *
+ * With --cpu the right hippo is played by a CpuPlayer of that level instead of a bot. In the party modes
+ * the bots play the first hippo of each side only.
+ */
+public class BatchRunner {
+    static final int MAX_MATCH_TICKS = (int)(20 * 60 / MatchSimulation.TIME_STEP); // Give up on a match after 20 simulated minutes
+    static final int MATCHES_PER_TASK = 4; // Split the work down to this many matches per task
+
+    int matchesPerSet = 200;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long seed = 1;
+    int scoreToWin = VolleyBall.scoreToWin;
+    String outFile = null;
+    CpuPlayer.Level cpuLevel = null;
+    int hipposPerSide = 1, ballCount = 1;
+    boolean adaptiveStepping = true;
+
+    float[] hippoFriction, jumpVelocity, maxHorizontalVelocity, ballRestitution, netRestitution;
+
+    public static void main(String[] args) throws IOException {
+        BatchRunner runner = new BatchRunner();
+        runner.parseArguments(args);
+        runner.run();
+    }
+
+    void parseArguments(String[] args) {
+        MatchCalibration defaults = new MatchCalibration();
+        hippoFriction = new float[] { defaults.hippoFriction };
+        jumpVelocity = new float[] { defaults.jumpVelocity };
+        maxHorizontalVelocity = new float[] { defaults.maxHorizontalVelocity };
+        ballRestitution = new float[] { defaults.ballRestitution };
+        netRestitution = new float[] { defaults.netRestitution };
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i], value = args[i + 1];
+            if (name.equals("--matches")) matchesPerSet = Integer.parseInt(value);
+            else if (name.equals("--threads")) threads = Integer.parseInt(value);
+            else if (name.equals("--seed")) seed = Long.parseLong(value);
+            else if (name.equals("--scoreToWin")) scoreToWin = Integer.parseInt(value);
+            else if (name.equals("--out")) outFile = value;
+            else if (name.equals("--cpu")) cpuLevel = CpuPlayer.Level.valueOf(value.toUpperCase());
+            else if (name.equals("--hippoFriction")) hippoFriction = parseList(value);
+            else if (name.equals("--jumpVelocity")) jumpVelocity = parseList(value);
+            else if (name.equals("--maxHorizontalVelocity")) maxHorizontalVelocity = parseList(value);
+            else if (name.equals("--ballRestitution")) ballRestitution = parseList(value);
+            else if (name.equals("--netRestitution")) netRestitution = parseList(value);
+            else if (name.equals("--hipposPerSide")) hipposPerSide = Integer.parseInt(value);
+            else if (name.equals("--ballCount")) ballCount = Integer.parseInt(value);
+            else if (name.equals("--adaptiveStepping")) adaptiveStepping = Boolean.parseBoolean(value);
+            else throw new IllegalArgumentException("Unknown option: " + name);
+        }
+        // The match would bound them anyway, and the results would be filed under a value that wasn't played
+        if (adaptiveStepping)
+            for (float value : ballRestitution)
+                if (value > MatchSimulation.MAX_BALL_RESTITUTION)
+                    throw new IllegalArgumentException("--ballRestitution above " + MatchSimulation.MAX_BALL_RESTITUTION +
+                            " needs --adaptiveStepping false");
+    }
+
+    static float[] parseList(String value) {
+        String[] parts = value.split(",");
+        float[] values = new float[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            values[i] = Float.parseFloat(parts[i].trim());
+        return values;
+    }
+
+    // Every combination of the calibration values given on the command line
+    List<MatchCalibration> buildGrid() {
+        List<MatchCalibration> grid = new ArrayList<MatchCalibration>();
+        for (float friction : hippoFriction)
+            for (float jump : jumpVelocity)
+                for (float speed : maxHorizontalVelocity)
+                    for (float ballBounce : ballRestitution)
+                        for (float netBounce : netRestitution) {
+                            MatchCalibration calibration = new MatchCalibration();
+                            calibration.hippoFriction = friction;
+                            calibration.jumpVelocity = jump;
+                            calibration.maxHorizontalVelocity = speed;
+                            calibration.ballRestitution = ballBounce;
+                            calibration.netRestitution = netBounce;
+                            calibration.hipposPerSide = hipposPerSide;
+                            calibration.ballCount = ballCount;
+                            calibration.adaptiveStepping = adaptiveStepping;
+                            grid.add(calibration);
+                        }
+        return grid;
+    }
+
+    void run() throws IOException {
+        List<MatchCalibration> grid = buildGrid();
+        System.out.println("Running " + matchesPerSet + " matches for each of " + grid.size() +
+                " calibrations on " + threads + " threads");
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+
+        // Submit every calibration up front so the pool can steal work across the whole grid
+        List<MatchBatch> batches = new ArrayList<MatchBatch>();
+        for (MatchCalibration calibration : grid) {
+            MatchBatch batch = new MatchBatch(calibration, 0, matchesPerSet);
+            batches.add(batch);
+            pool.execute(batch);
+        }
+
+        PrintWriter csv = outFile == null ? null : new PrintWriter(new FileWriter(outFile));
+        if (csv != null)
+            csv.println("hippo_friction,jump_velocity,max_horizontal_velocity,ball_restitution,net_restitution," +
+                    MatchStats.csvHeader());
+
+        long totalTicks = 0;
+        for (MatchBatch batch : batches) {
+            MatchStats stats = batch.join();
+            MatchCalibration c = batch.calibration;
+            totalTicks += stats.ticks;
+            System.out.println(c + "\n    " + (stats.matches - stats.stalledMatches) + " finished matches: " +
+                    "points/match " + stats.averagePointsPerMatch() + ", hits/rally " + stats.averageHitsPerRally() +
+                    ", rally " + stats.averageRallySeconds() + "s, server wins " + stats.serverWinRate() +
+                    ", right wins " + stats.rightWins + "\n    " + stats.stalledMatches + " stalled matches, " +
+                    stats.stalledPoints + " points played in them\n    tunneling " + stats.tunnelingIncidents);
+            if (csv != null)
+                csv.println(c.hippoFriction + "," + c.jumpVelocity + "," + c.maxHorizontalVelocity + "," +
+                        c.ballRestitution + "," + c.netRestitution + "," + stats.toCsv());
+        }
+        if (csv != null)
+            csv.close();
+        pool.shutdown();
+
+        float seconds = (System.nanoTime() - start) / 1e9f;
+        System.out.println("Simulated " + totalTicks + " ticks in " + seconds + "s (" +
+                (long)(totalTicks / seconds) + " ticks/s)");
+    }
+
+    // Plays matches [from, to) of one calibration, splitting the range until it is small enough
+    class MatchBatch extends RecursiveTask<MatchStats> {
+        static final long serialVersionUID = 1L; // Never serialized; ForkJoinTask only happens to be Serializable
+
+        final MatchCalibration calibration;
+        final int from, to;
+
+        MatchBatch(MatchCalibration calibration, int from, int to) {
+            this.calibration = calibration;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MatchStats compute() {
+            if (to - from <= MATCHES_PER_TASK) {
+                MatchStats stats = new MatchStats();
+                for (int i = from; i < to; i++)
+                    playMatch(calibration, seed + i, stats);
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            MatchBatch left = new MatchBatch(calibration, from, middle);
+            left.fork();
+            MatchStats stats = new MatchBatch(calibration, middle, to).compute();
+            stats.add(left.join());
+            return stats;
+        }
+    }
+
+    // Plays one bot-vs-bot match to the end (or the tick limit) and adds it to the totals
+    void playMatch(MatchCalibration calibration, long matchSeed, MatchStats totals) {
+        final MatchStats stats = new MatchStats();
+        final MatchSimulation[] holder = new MatchSimulation[1];
+        MatchSimulation match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, calibration,
+                new MatchListener() {
+                    @Override
+                    public void ballHitHippo(boolean rightHippo) {
+                        stats.hits++;
+                    }
+
+                    @Override
+                    public void pointScored(boolean rightHippo) {
+                        stats.points++;
+                        if (holder[0].isRightHippoServing()) {
+                            stats.rightServes++;
+                            if (rightHippo)
+                                stats.rightServeWins++;
+                        }
+                        else {
+                            stats.leftServes++;
+                            if (!rightHippo)
+                                stats.leftServeWins++;
+                        }
+                    }
+
+                    @Override
+                    public void gameWon(boolean rightHippo) {}
+                    @Override
+                    public void roundStarted(int roundCount) {}
+                });
+        holder[0] = match;
+
+        match.setSeed(matchSeed);
+        match.setRules(scoreToWin, VolleyBall.scoreMargin);
+        match.startNewGame();
+
+        MatchInput input = new MatchInput();
+        ChaseBot leftBot = new ChaseBot(MatchInput.LEFT_HIPPO, matchSeed * 31 + 1);
+        ChaseBot rightBot = new ChaseBot(MatchInput.RIGHT_HIPPO, matchSeed * 31 + 2);
+        CpuPlayer cpu = cpuLevel == null ? null : new CpuPlayer(MatchInput.RIGHT_HIPPO, cpuLevel, match, matchSeed * 31 + 2);
+
+        int ticks = 0;
+        while (match.getState() != State.FINISHED && ticks < MAX_MATCH_TICKS) {
+            leftBot.update(match, input);
+            if (cpu != null)
+                cpu.update(match, input);
+            else
+                rightBot.update(match, input);
+            match.tick(input);
+            if (match.isBallInPlay())
+                stats.rallyTicks++;
+            ticks++;
+        }
+
+        stats.matches++;
+        stats.ticks += ticks;
+        stats.tunnelingIncidents += match.getTunnelingCount();
+        boolean isFinished = match.getState() == State.FINISHED;
+        if (isFinished && match.hasRightHippoWon())
+            stats.rightWins++;
+        else if (isFinished)
+            stats.leftWins++;
+        totals.addMatch(stats, isFinished);
+        match.dispose();
+    }
+}
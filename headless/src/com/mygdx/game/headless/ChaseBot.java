@@ -0,0 +1,98 @@
+package com.mygdx.game.headless;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.mygdx.game.MatchInput;
+import com.mygdx.game.MatchSimulation;
+import com.mygdx.game.VolleyBall;
+
+/**
+ * A scripted player for batch matches: runs under the ball while it is on its own side, jumps into it
+ * when it comes down within reach and otherwise walks back to its home position.
+ */
+public class ChaseBot {
+    final int hippo;
+    final float side; // -1 for the left hippo, 1 for the right hippo
+    final RandomXS128 random;
+
+    final float HOME_X = 2.5f; // Distance from the net the hippo waits at, in meters
+    final float HIT_OFFSET = 0.5f; // Stand this far behind the ball so it gets knocked towards the net
+    final float DEAD_ZONE = 0.1f; // Don't move if the hippo is this close to where it wants to be
+    final float JUMP_REACH_X = 0.8f, JUMP_REACH_Y = 2.5f; // How close the ball must be before jumping
+    final float AIM_NOISE = 0.4f; // Random error in where the bot thinks it should stand, so rallies vary
+    final int JUMP_HOLD_TICKS = 20; // Hold the jump key this long before letting go
+    // Furthest from the net the hippo's center can get before touching the wall
+    final float WALL_X = VolleyBall.SCREEN_WIDTH / 2 / MatchSimulation.PIXELS_TO_METERS
+            - MatchSimulation.HIPPO_WIDTH * MatchSimulation.HIPPO_SCALE / 2 / MatchSimulation.PIXELS_TO_METERS - DEAD_ZONE;
+    final float SETTLED_VELOCITY = 1f; // Ball speed below which it counts as resting on the hippo, or not going anywhere
+    // A ball at the wall or the net without sideways speed for this long is stuck: bouncing up the wall on the
+    // hippo, or wedged between the hippo's corner and the wall or the net. A serve drops clear of both.
+    final int STUCK_TICKS = 60;
+    final float WALL_BALL_X = (VolleyBall.SCREEN_WIDTH / 2 - MatchSimulation.BALL_DIAMETER) / MatchSimulation.PIXELS_TO_METERS;
+    final float NET_BALL_X = (MatchSimulation.NET_WIDTH * MatchSimulation.NET_SCALE / 2 + MatchSimulation.BALL_DIAMETER)
+            / MatchSimulation.PIXELS_TO_METERS;
+    // Distance from the ball at which the hippo can't touch it, dead zone included
+    final float CLEAR_X = (MatchSimulation.HIPPO_WIDTH * MatchSimulation.HIPPO_SCALE + MatchSimulation.BALL_DIAMETER) / 2
+            / MatchSimulation.PIXELS_TO_METERS + 2 * DEAD_ZONE;
+
+    float aimError;
+    int jumpTicks = 0;
+    int stuckTicks = 0; // Ticks the ball has been at the wall or the net on this side without sideways speed
+
+    public ChaseBot(int hippo, long seed) {
+        this.hippo = hippo;
+        this.side = hippo == MatchInput.RIGHT_HIPPO ? 1f : -1f;
+        this.random = new RandomXS128(seed);
+    }
+
+    // Decide this tick's buttons for the hippo and write them into the shared input
+    public void update(MatchSimulation match, MatchInput input) {
+        Body body = match.getHippo(hippo);
+        Vector2 hippoPos = body.getPosition();
+        Vector2 ballPos = match.getBall().getPosition();
+        Vector2 ballVelocity = match.getBall().getLinearVelocity();
+
+        // Pick a new aiming error for every round, so the same bot doesn't replay the same rally
+        if (!match.isBallInPlay())
+            aimError = (random.nextFloat() * 2f - 1f) * AIM_NOISE;
+
+        boolean isBallOnMySide = ballPos.x * side > 0;
+        float targetX = isBallOnMySide ? ballPos.x + side * HIT_OFFSET + aimError : side * HOME_X;
+
+        // Near the wall the hippo can't get behind the ball, so hit it with the corner from the net side instead
+        if (Math.abs(targetX) > WALL_X)
+            targetX = ballPos.x - side * HIT_OFFSET;
+
+        // If the ball is stuck, step clear of it on the side the hippo is on and let it drop; a rally that can't
+        // be won would otherwise go on until the match's time runs out
+        boolean isBallAtWall = Math.abs(ballPos.x) > WALL_BALL_X || Math.abs(ballPos.x) < NET_BALL_X;
+        if (match.isBallInPlay() && isBallOnMySide && isBallAtWall && Math.abs(ballVelocity.x) < SETTLED_VELOCITY)
+            stuckTicks++;
+        else
+            stuckTicks = 0;
+        boolean isBallStuck = stuckTicks > STUCK_TICKS;
+        if (isBallStuck)
+            targetX = ballPos.x + (hippoPos.x < ballPos.x ? -CLEAR_X : CLEAR_X);
+        // If the ball is sitting on the hippo's head, walk out from under it towards the net
+        else if (isBallOnMySide && Math.abs(ballPos.x - hippoPos.x) < JUMP_REACH_X && ballPos.y > hippoPos.y
+                && Math.abs(ballVelocity.y) < SETTLED_VELOCITY)
+            targetX = 0f;
+
+        // A new round forgets the keys held through it, so let go between rallies and press them again after
+        boolean canWalk = match.isBallInPlay();
+        input.set(hippo, MatchInput.RIGHT, canWalk && hippoPos.x < targetX - DEAD_ZONE);
+        input.set(hippo, MatchInput.LEFT, canWalk && hippoPos.x > targetX + DEAD_ZONE);
+
+        // Jumps need a fresh press, so hold the key for a while and then release it for at least one tick
+        if (jumpTicks > 0) {
+            jumpTicks--;
+            input.set(hippo, MatchInput.UP, jumpTicks > 0);
+        }
+        else if (isBallOnMySide && !isBallStuck && ballVelocity.y < 0
+                && Math.abs(ballPos.x - hippoPos.x) < JUMP_REACH_X && ballPos.y - hippoPos.y < JUMP_REACH_Y) {
+            jumpTicks = JUMP_HOLD_TICKS;
+            input.set(hippo, MatchInput.UP, true);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.mygdx.game.headless;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mygdx.game.*;
+
+/**
+ * Finds where two simulations of the same match went apart. Each side is a checksum file, as the game saves
+ * next to its last replay or after an online match, or a replay, which is played here to hash every tick.
+ * Prints the first tick the two disagree on and the hippo or ball that differed, or that they agree.
+ *
+ * To check another device, play the replay there with --write and compare the file with the replay here;
+ * to check an online match, compare the two players' files.
+ *
+ * Usage: DesyncTool a.hvc|a.hvr b.hvc|b.hvr
+ *        DesyncTool --write file.hvr out.hvc
+ */
+public class DesyncTool {
+    public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals("--write")) {
+            MatchChecksums checksums = play(new FileHandle(args[1]));
+            checksums.save(new FileHandle(args[2]));
+            System.out.println("Wrote the checksums of ticks " + checksums.getFirstTick() + " to " +
+                    checksums.getLastTick() + " to " + args[2]);
+            return;
+        }
+        if (args.length != 2)
+            throw new IllegalArgumentException("Usage: DesyncTool a.hvc|a.hvr b.hvc|b.hvr");
+
+        MatchChecksums a = open(new FileHandle(args[0])), b = open(new FileHandle(args[1]));
+        MatchChecksums.Divergence divergence = MatchChecksums.compare(a, b);
+        long first = Math.max(a.getFirstTick(), b.getFirstTick()), last = Math.min(a.getLastTick(), b.getLastTick());
+        if (first > last)
+            System.out.println("Nothing to compare: ticks " + a.getFirstTick() + " to " + a.getLastTick() + " against " +
+                    b.getFirstTick() + " to " + b.getLastTick());
+        else if (divergence == null)
+            System.out.println("Ticks " + first + " to " + last + " are the same in both");
+        else
+            System.out.println("The matches " + divergence.describe(a));
+        if (divergence != null && divergence.tick == first && first > 1)
+            System.out.println("That is the first tick both kept, so they may have gone apart before it");
+    }
+
+    static MatchChecksums open(FileHandle file) {
+        return file.extension().equals("hvr") ? play(file) : MatchChecksums.load(file);
+    }
+
+    // Every tick of the replay, hashed
+    static MatchChecksums play(FileHandle file) {
+        ReplayLog log = ReplayLog.load(file);
+        MatchChecksums checksums = new MatchChecksums(Integer.highestOneBit(Math.max(1, log.getTickCount())) << 1);
+        ReplayPlayer player = new ReplayPlayer(log, ReplayTool.NO_EVENTS);
+        player.getMatch().setChecksums(checksums);
+        player.runToEnd();
+        player.getMatch().dispose();
+        return checksums;
+    }
+}
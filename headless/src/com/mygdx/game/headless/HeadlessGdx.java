@@ -0,0 +1,102 @@
+package com.mygdx.game.headless;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.badlogic.gdx.backends.headless.mock.audio.MockAudio;
+import com.badlogic.gdx.backends.headless.mock.input.MockInput;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/**
+ * Sets up the Gdx statics so the real screens can be constructed and rendered without a window or GL
+ * context. Every GL call is swallowed by NullGL20. Rendering through it still runs all the CPU-side work
+ * (sprite vertices, batching, text layout), which is what the benchmarks and the allocation check measure.
+ */
+public class HeadlessGdx {
+    static boolean initialized = false;
+
+    public static synchronized void init(final int width, final int height, final float deltaTime) {
+        if (initialized)
+            return;
+        initialized = true;
+
+        GdxNativesLoader.load();
+
+        final GL20 gl = new NullGL20();
+        // Boxed once here: the proxy below would otherwise box the size on every call, which the allocation
+        // check would blame on the frame that asked
+        final Integer boxedWidth = width, boxedHeight = height;
+        final Float boxedDeltaTime = deltaTime;
+
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+        Gdx.files = new HeadlessFiles();
+        Gdx.audio = new MockAudio();
+        Gdx.input = new MockInput();
+
+        Gdx.graphics = (Graphics)Proxy.newProxyInstance(Graphics.class.getClassLoader(), new Class<?>[] { Graphics.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getWidth"))
+                            return boxedWidth;
+                        if (name.equals("getHeight"))
+                            return boxedHeight;
+                        if (name.equals("getDeltaTime") || name.equals("getRawDeltaTime"))
+                            return boxedDeltaTime;
+                        if (name.equals("getGL20"))
+                            return gl;
+                        if (name.equals("getDensity"))
+                            return 1f;
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+
+        Gdx.app = (Application)Proxy.newProxyInstance(Application.class.getClassLoader(), new Class<?>[] { Application.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getType"))
+                            return Application.ApplicationType.HeadlessDesktop;
+                        if (name.equals("getGraphics"))
+                            return Gdx.graphics;
+                        if (name.equals("getFiles"))
+                            return Gdx.files;
+                        if (name.equals("getAudio"))
+                            return Gdx.audio;
+                        if (name.equals("getInput"))
+                            return Gdx.input;
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    // Zero, false or null, whichever the method returns
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class)
+            return null;
+        if (type == boolean.class)
+            return false;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        if (type == float.class)
+            return 0f;
+        if (type == double.class)
+            return 0d;
+        if (type == short.class)
+            return (short)0;
+        if (type == byte.class)
+            return (byte)0;
+        return (char)0;
+    }
+}
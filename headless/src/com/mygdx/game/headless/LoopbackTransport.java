@@ -0,0 +1,83 @@
+package com.mygdx.game.headless;
+
+import java.util.ArrayList;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.mygdx.game.PeerTransport;
+
+/**
+ * An in-memory stand-in for a network link between two peers, with simulated latency, jitter and loss.
+ * Time is counted in ticks of a shared clock that the caller advances; a packet sent at tick t arrives at
+ * t + latency + a random extra delay of up to jitter ticks (so packets can overtake each other), unless
+ * it is dropped.
+ */
+public class LoopbackTransport implements PeerTransport {
+    /** The shared clock and link settings of a pair of endpoints. */
+    public static class Link {
+        public int now = 0;
+        final int latencyTicks, jitterTicks;
+        final float lossRate;
+        final RandomXS128 random;
+        public int sent, dropped;
+
+        public Link(int latencyTicks, int jitterTicks, float lossRate, long seed) {
+            this.latencyTicks = latencyTicks;
+            this.jitterTicks = jitterTicks;
+            this.lossRate = lossRate;
+            this.random = new RandomXS128(seed);
+        }
+    }
+
+    static class Packet {
+        int arrival;
+        byte[] data;
+    }
+
+    final Link link;
+    LoopbackTransport other;
+    final ArrayList<Packet> inbox = new ArrayList<Packet>();
+
+    LoopbackTransport(Link link) {
+        this.link = link;
+    }
+
+    // Two connected endpoints
+    public static LoopbackTransport[] pair(Link link) {
+        LoopbackTransport a = new LoopbackTransport(link), b = new LoopbackTransport(link);
+        a.other = b;
+        b.other = a;
+        return new LoopbackTransport[] {a, b};
+    }
+
+    @Override
+    public void send(byte[] data, int length) {
+        link.sent++;
+        if (link.random.nextFloat() < link.lossRate) {
+            link.dropped++;
+            return;
+        }
+        Packet packet = new Packet();
+        packet.arrival = link.now + link.latencyTicks + (link.jitterTicks > 0 ? link.random.nextInt(link.jitterTicks + 1) : 0);
+        packet.data = new byte[length];
+        System.arraycopy(data, 0, packet.data, 0, length);
+        other.inbox.add(packet);
+    }
+
+    @Override
+    public int receive(byte[] buffer) {
+        for (int i = 0; i < inbox.size(); i++) {
+            Packet packet = inbox.get(i);
+            if (packet.arrival <= link.now) {
+                inbox.remove(i);
+                System.arraycopy(packet.data, 0, buffer, 0, packet.data.length);
+                return packet.data.length;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        inbox.clear();
+    }
+}
@@ -0,0 +1,86 @@
+package com.mygdx.game.headless;
+
+import com.mygdx.game.MatchSimulation;
+
+/**
+ * Totals collected over a batch of matches played with one calibration. Tasks fill in their own
+ * instance and the results are merged, so no counters are shared between threads. The rally and point
+ * figures only cover finished matches; a stalled match counts towards the tick and tunneling totals alone.
+ */
+public class MatchStats {
+    int matches = 0;
+    int stalledMatches = 0; // Matches that hit the tick limit without a winner
+    int stalledPoints = 0; // Points played in those before they stalled
+    int leftWins = 0, rightWins = 0;
+    int points = 0;
+    int rightServes = 0, rightServeWins = 0; // Rallies served by the right hippo, and how many of them it won
+    int leftServes = 0, leftServeWins = 0; // Same for the left hippo
+    long hits = 0; // Hippo touches of the ball
+    long rallyTicks = 0; // Ticks in which the ball was in play
+    long ticks = 0; // All simulated ticks
+    int tunnelingIncidents = 0;
+
+    public void add(MatchStats other) {
+        matches += other.matches;
+        stalledMatches += other.stalledMatches;
+        stalledPoints += other.stalledPoints;
+        leftWins += other.leftWins;
+        rightWins += other.rightWins;
+        points += other.points;
+        rightServes += other.rightServes;
+        rightServeWins += other.rightServeWins;
+        leftServes += other.leftServes;
+        leftServeWins += other.leftServeWins;
+        hits += other.hits;
+        rallyTicks += other.rallyTicks;
+        ticks += other.ticks;
+        tunnelingIncidents += other.tunnelingIncidents;
+    }
+
+    public float averageRallySeconds() {
+        return points == 0 ? 0f : rallyTicks * MatchSimulation.TIME_STEP / points;
+    }
+
+    public float averageHitsPerRally() {
+        return points == 0 ? 0f : (float)hits / points;
+    }
+
+    // Fraction of rallies won by the hippo that served them
+    public float serverWinRate() {
+        return points == 0 ? 0f : (float)(rightServeWins + leftServeWins) / points;
+    }
+
+    static float rate(int wins, int serves) {
+        return serves == 0 ? 0f : (float)wins / serves;
+    }
+
+    public float averagePointsPerMatch() {
+        int finished = matches - stalledMatches;
+        return finished == 0 ? 0f : (float)points / finished;
+    }
+
+    // Adds one match's counts, which go towards the averages only if the match was finished
+    void addMatch(MatchStats match, boolean isFinished) {
+        if (isFinished) {
+            add(match);
+            return;
+        }
+        matches += match.matches;
+        stalledMatches += match.matches;
+        stalledPoints += match.points;
+        ticks += match.ticks;
+        tunnelingIncidents += match.tunnelingIncidents;
+    }
+
+    public static String csvHeader() {
+        return "matches,stalled,stalled_points,left_wins,right_wins,points_per_match,hits_per_rally,rally_seconds," +
+                "server_win_rate,right_serve_win_rate,left_serve_win_rate,tunneling";
+    }
+
+    public String toCsv() {
+        return matches + "," + stalledMatches + "," + stalledPoints + "," + leftWins + "," + rightWins + "," +
+                averagePointsPerMatch() + "," + averageHitsPerRally() + "," + averageRallySeconds() + "," +
+                serverWinRate() + "," + rate(rightServeWins, rightServes) + "," + rate(leftServeWins, leftServes) + "," +
+                tunnelingIncidents;
+    }
+}
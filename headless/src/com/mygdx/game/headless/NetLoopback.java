@@ -0,0 +1,99 @@
+package com.mygdx.game.headless;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.*;
+
+/**
+ * Plays an online bot-vs-bot match between two RollbackSessions over a simulated link and prints what
+ * the rollbacks cost. Each bot only sees its own peer's match, like a player would. Both peers must finish
+ * the match with the same result, or the run fails with exit code 1. Both also hash every tick; restoring
+ * a snapshot for a rollback is exact, so the peers should go through the same states, and the first tick
+ * they didn't is printed if not.
+ *
+ * Usage: NetLoopback [--latency MS] [--jitter MS] [--loss RATE] [--seed N] [--scoreToWin N]
+ */
+public class NetLoopback {
+    static final int CHECKSUM_TICKS = Integer.highestOneBit(BatchRunner.MAX_MATCH_TICKS) << 1; // The whole match
+    public static void main(String[] args) {
+        float latencyMillis = 100, jitterMillis = 30, loss = 0.05f;
+        long seed = 1;
+        int scoreToWin = VolleyBall.scoreToWin;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i], value = args[i + 1];
+            if (name.equals("--latency")) latencyMillis = Float.parseFloat(value);
+            else if (name.equals("--jitter")) jitterMillis = Float.parseFloat(value);
+            else if (name.equals("--loss")) loss = Float.parseFloat(value);
+            else if (name.equals("--seed")) seed = Long.parseLong(value);
+            else if (name.equals("--scoreToWin")) scoreToWin = Integer.parseInt(value);
+            else throw new IllegalArgumentException("Unknown option: " + name);
+        }
+
+        int latencyTicks = Math.round(latencyMillis / 1000f / MatchSimulation.TIME_STEP);
+        int jitterTicks = Math.round(jitterMillis / 1000f / MatchSimulation.TIME_STEP);
+        LoopbackTransport.Link link = new LoopbackTransport.Link(latencyTicks, jitterTicks, loss, seed);
+        LoopbackTransport[] transports = LoopbackTransport.pair(link);
+
+        RollbackSession host = new RollbackSession(transports[0], seed, scoreToWin, VolleyBall.scoreMargin,
+                VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, ReplayTool.NO_EVENTS);
+        RollbackSession client = new RollbackSession(transports[1], VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT,
+                ReplayTool.NO_EVENTS);
+        ChaseBot hostBot = new ChaseBot(MatchInput.LEFT_HIPPO, seed * 31 + 1);
+        ChaseBot clientBot = new ChaseBot(MatchInput.RIGHT_HIPPO, seed * 31 + 2);
+        MatchInput hostInput = new MatchInput(), clientInput = new MatchInput();
+        MatchChecksums hostChecksums = new MatchChecksums(CHECKSUM_TICKS);
+        MatchChecksums clientChecksums = new MatchChecksums(CHECKSUM_TICKS);
+        host.setChecksums(hostChecksums);
+        client.setChecksums(clientChecksums);
+
+        long start = System.nanoTime();
+        // Keep going a little after both are done so the last inputs and a final sync get through
+        int drainTicks = -1;
+        while (link.now < BatchRunner.MAX_MATCH_TICKS && drainTicks != 0) {
+            hostBot.update(host.getMatch(), hostInput);
+            host.update(hostInput.bits);
+            if (client.isStarted())
+                clientBot.update(client.getMatch(), clientInput);
+            client.update(clientInput.bits);
+            link.now++;
+
+            if (drainTicks > 0)
+                drainTicks--;
+            else if (drainTicks < 0 && isFinished(host) && isFinished(client))
+                drainTicks = 2 * (latencyTicks + jitterTicks) + RollbackSession.MAX_PREDICTION_TICKS;
+        }
+        float elapsed = (System.nanoTime() - start) / 1e9f;
+
+        System.out.println("Link: " + latencyMillis + " ms latency, " + jitterMillis + " ms jitter, " + loss * 100 +
+                "% loss; " + link.sent + " packets sent, " + link.dropped + " dropped");
+        print("Host", host);
+        print("Client", client);
+        MatchSimulation a = host.getMatch(), b = client.getMatch();
+        boolean finished = isFinished(host) && isFinished(client);
+        boolean same = a.getLeftScore() == b.getLeftScore() && a.getRightScore() == b.getRightScore()
+                && a.getRoundCount() == b.getRoundCount();
+        MatchChecksums.Divergence divergence = MatchChecksums.compare(hostChecksums, clientChecksums);
+        System.out.println(divergence == null ? "Both peers went through the same states"
+                : "The peers' states " + divergence.describe(hostChecksums));
+        if (!finished)
+            System.out.println("THE MATCH DID NOT FINISH within " + BatchRunner.MAX_MATCH_TICKS + " ticks");
+        else
+            System.out.println(same ? "Both peers agree on the result" : "THE PEERS DISAGREE ON THE RESULT");
+        System.out.println("Played " + link.now + " ticks in " + elapsed + "s");
+        a.dispose();
+        b.dispose();
+        System.exit(finished && same ? 0 : 1);
+    }
+
+    static boolean isFinished(RollbackSession session) {
+        return session.isStarted() && session.getMatch().getState() == State.FINISHED;
+    }
+
+    static void print(String name, RollbackSession session) {
+        MatchSimulation match = session.getMatch();
+        Vector2 ball = match.getBall().getPosition();
+        System.out.println(name + " at tick " + session.getCurrentTick() + " (remote input up to " +
+                session.getConfirmedRemoteTick() + "): red " + match.getLeftScore() + ", blue " + match.getRightScore() +
+                " after " + match.getRoundCount() + " rounds, ball at " + ball.x + "," + ball.y);
+        System.out.println("  " + session.stats);
+    }
+}
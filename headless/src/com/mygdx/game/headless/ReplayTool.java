@@ -0,0 +1,110 @@
+package com.mygdx.game.headless;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.*;
+
+/**
+ * Plays a saved replay as fast as possible and prints how it went round by round, or where things stood
+ * at the start of one round. It can also record a bot-vs-bot match, which is handy for checking that a
+ * replay reproduces its match: the final line printed when recording and when playing back must match.
+ *
+ * Usage: ReplayTool file.hvr [--round N]
+ *        ReplayTool --record file.hvr [--seed N] [--scoreToWin N]
+ */
+public class ReplayTool {
+    static final MatchListener NO_EVENTS = new MatchListener() {
+        @Override
+        public void ballHitHippo(boolean rightHippo) {}
+        @Override
+        public void pointScored(boolean rightHippo) {}
+        @Override
+        public void gameWon(boolean rightHippo) {}
+        @Override
+        public void roundStarted(int roundCount) {}
+    };
+
+    public static void main(String[] args) {
+        String file = null, recordFile = null;
+        int round = 0;
+        long seed = 1;
+        int scoreToWin = VolleyBall.scoreToWin;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--round")) round = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--record")) recordFile = args[++i];
+            else if (args[i].equals("--seed")) seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("--scoreToWin")) scoreToWin = Integer.parseInt(args[++i]);
+            else file = args[i];
+        }
+
+        if (recordFile != null)
+            record(new FileHandle(recordFile), seed, scoreToWin);
+        else if (file != null)
+            play(ReplayLog.load(new FileHandle(file)), round);
+        else
+            throw new IllegalArgumentException("No replay file given");
+    }
+
+    static void play(ReplayLog log, int round) {
+        float seconds = log.getTickCount() * MatchSimulation.TIME_STEP;
+        System.out.println(log.getTickCount() + " ticks (" + seconds + "s of play), " + log.getRoundCount() +
+                " rounds, " + log.getDataSize() + " bytes of input (" + log.getDataSize() / Math.max(seconds, 1f) +
+                " bytes/s), seed " + log.seed);
+
+        long start = System.nanoTime();
+        ReplayPlayer player = new ReplayPlayer(log, NO_EVENTS);
+        if (round > 0) {
+            player.seekToRound(round);
+            System.out.println("Round " + round + " starts at tick " + player.getTick());
+            printState(player.getMatch());
+        }
+        else {
+            for (int r = 2; r <= log.getRoundCount(); r++) {
+                player.fastForward(log.getRoundStartTick(r));
+                MatchSimulation match = player.getMatch();
+                System.out.println("Round " + r + " at tick " + player.getTick() + ": red " + match.getLeftScore() +
+                        ", blue " + match.getRightScore());
+            }
+            player.runToEnd();
+            printState(player.getMatch());
+        }
+        player.getMatch().dispose();
+
+        float elapsed = (System.nanoTime() - start) / 1e9f;
+        System.out.println("Played in " + elapsed + "s (" + (long)(player.getTick() / elapsed) + " ticks/s)");
+    }
+
+    // Plays a bot-vs-bot match while recording it
+    static void record(FileHandle file, long seed, int scoreToWin) {
+        MatchCalibration calibration = new MatchCalibration();
+        MatchSimulation match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, calibration,
+                NO_EVENTS);
+        match.setSeed(seed);
+        match.setRules(scoreToWin, VolleyBall.scoreMargin);
+        ReplayLog log = new ReplayLog(match, seed, calibration);
+        match.startNewGame();
+        log.roundStarted(1);
+
+        MatchInput input = new MatchInput();
+        ChaseBot leftBot = new ChaseBot(MatchInput.LEFT_HIPPO, seed * 31 + 1);
+        ChaseBot rightBot = new ChaseBot(MatchInput.RIGHT_HIPPO, seed * 31 + 2);
+        while (match.getState() != State.FINISHED && match.getTickCount() < BatchRunner.MAX_MATCH_TICKS) {
+            leftBot.update(match, input);
+            rightBot.update(match, input);
+            log.record(input.bits);
+            match.tick(input);
+            log.roundStarted(match.getRoundCount());
+        }
+        log.save(file);
+        System.out.println("Recorded " + log.getTickCount() + " ticks, " + log.getRoundCount() + " rounds, " +
+                log.getDataSize() + " bytes of input to " + file);
+        printState(match);
+        match.dispose();
+    }
+
+    static void printState(MatchSimulation match) {
+        Vector2 ball = match.getBall().getPosition();
+        System.out.println("Tick " + match.getTickCount() + ": red " + match.getLeftScore() + ", blue " +
+                match.getRightScore() + ", ball at " + ball.x + "," + ball.y);
+    }
+}
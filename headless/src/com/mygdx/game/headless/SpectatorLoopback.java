@@ -0,0 +1,133 @@
+package com.mygdx.game.headless;
+
+import com.mygdx.game.*;
+
+/**
+ * Plays a bot-vs-bot match into a SpectatorServer with many viewers connected over the loopback interface,
+ * and checks that every viewer decodes exactly what the server quantized. Prints what the stream costs:
+ * frame sizes, bytes per second per viewer, and the time publish() takes on the match's thread.
+ *
+ * The match runs in real time by default, as it would on screen; --fast runs it as fast as it can instead,
+ * many times the rate the viewers would ever get frames at. Viewers join while the match is on, a few at a
+ * time, like screens being switched on, and each one starts from the keyframe sent for it.
+ *
+ * Usage: SpectatorLoopback [--viewers N] [--ticks N] [--seed N] [--fast true|false]
+ */
+public class SpectatorLoopback {
+    static final int SENT_RING = 1024; // What the server sent, by sequence, to check the viewers against
+    static final int VIEWERS_PER_TICK = 4; // Connected each tick until all are in
+
+    public static void main(String[] args) throws InterruptedException {
+        int viewerCount = 200, ticks = 1200;
+        long seed = 1;
+        boolean isFast = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i], value = args[i + 1];
+            if (name.equals("--viewers")) viewerCount = Integer.parseInt(value);
+            else if (name.equals("--ticks")) ticks = Integer.parseInt(value);
+            else if (name.equals("--seed")) seed = Long.parseLong(value);
+            else if (name.equals("--fast")) isFast = Boolean.parseBoolean(value);
+            else throw new IllegalArgumentException("Unknown option: " + name);
+        }
+
+        final SpectatorServer server = SpectatorServer.open(0);
+        MatchSimulation match = new MatchSimulation(VolleyBall.SCREEN_WIDTH, VolleyBall.SCREEN_HEIGHT, new MatchListener() {
+            @Override
+            public void ballHitHippo(boolean rightHippo) { server.event(SpectatorStream.HIT); }
+            @Override
+            public void pointScored(boolean rightHippo) { server.event(SpectatorStream.POINT); }
+            @Override
+            public void gameWon(boolean rightHippo) { server.event(SpectatorStream.GAME_OVER); }
+            @Override
+            public void roundStarted(int roundCount) { server.event(SpectatorStream.ROUND); }
+        });
+        match.setSeed(seed);
+        match.setRules(VolleyBall.scoreToWin, VolleyBall.scoreMargin);
+        match.startNewGame();
+        MatchInput input = new MatchInput();
+        ChaseBot leftBot = new ChaseBot(MatchInput.LEFT_HIPPO, seed * 31 + 1);
+        ChaseBot rightBot = new ChaseBot(MatchInput.RIGHT_HIPPO, seed * 31 + 2);
+
+        SpectatorStream.Snapshot[] sent = new SpectatorStream.Snapshot[SENT_RING];
+        for (int i = 0; i < SENT_RING; i++)
+            sent[i] = new SpectatorStream.Snapshot();
+        SpectatorClient[] viewers = new SpectatorClient[viewerCount];
+        int[] checkedSequence = new int[viewerCount];
+        int connected = 0;
+        long mismatches = 0, checks = 0, lagTotal = 0, maxLag = 0, publishNanos = 0;
+
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < VIEWERS_PER_TICK && connected < viewerCount; i++) {
+                checkedSequence[connected] = -1;
+                viewers[connected++] = SpectatorClient.connect("127.0.0.1", server.getPort());
+            }
+
+            if (match.getState() == State.FINISHED)
+                match.startNewGame(); // Keep the stream going for as long as asked
+            leftBot.update(match, input);
+            rightBot.update(match, input);
+            match.tick(input);
+            long before = System.nanoTime();
+            server.publish(match);
+            publishNanos += System.nanoTime() - before;
+            SpectatorStream.Snapshot record = sent[tick % SENT_RING];
+            record.capture(match);
+            record.sequence = tick;
+
+            // Every viewer's newest frame has to be exactly what was sent for it
+            for (int i = 0; i < connected; i++) {
+                SpectatorClient viewer = viewers[i];
+                viewer.update();
+                int newest = viewer.getNewestSequence();
+                if (newest < 0 || newest == checkedSequence[i])
+                    continue;
+                checkedSequence[i] = newest;
+                checks++;
+                if (tick - newest < SENT_RING && !viewer.getNewest().isSameAs(sent[newest % SENT_RING]))
+                    mismatches++;
+                lagTotal += tick - newest;
+                maxLag = Math.max(maxLag, tick - newest);
+            }
+
+            if (!isFast) {
+                long wait = start + (long)((tick + 1) * MatchSimulation.TIME_STEP * 1e9) - System.nanoTime();
+                if (wait > 0)
+                    Thread.sleep(wait / 1000000L, (int)(wait % 1000000L));
+            }
+        }
+        float seconds = (System.nanoTime() - start) / 1e9f;
+
+        // Let the last frames arrive before counting what the viewers got
+        Thread.sleep(200);
+        long received = 0;
+        int following = 0, closed = 0;
+        for (int i = 0; i < connected; i++) {
+            viewers[i].update();
+            received += viewers[i].getBytesReceived();
+            if (viewers[i].getNewestSequence() == ticks - 1)
+                following++;
+            if (viewers[i].isClosed())
+                closed++;
+        }
+
+        int frames = server.getFrameCount(), keyframes = server.getKeyframeCount();
+        System.out.println(frames + " frames in " + seconds + "s: " + keyframes + " keyframes of " +
+                server.getKeyframeBytes() / Math.max(1, keyframes) + " bytes, deltas of " +
+                (float)server.getDeltaBytes() / Math.max(1, frames - keyframes) + " bytes on average");
+        // Includes waking the network thread up, which on a single core is a switch over to it
+        System.out.println("publish(): " + publishNanos / 1000f / frames + " us per tick, handing over included");
+        System.out.println(connected + " viewers (" + server.getViewerCount() + " still connected, " + closed +
+                " closed), " + following + " up to the last frame, " + server.getResyncs() + " resyncs");
+        System.out.println(server.getBytesSent() + " bytes sent, " + received + " received: " +
+                received / Math.max(1, connected) / seconds / 1024f + " KB/s per viewer");
+        System.out.println(checks + " frames checked, lag " + (float)lagTotal / Math.max(1, checks) + " frames on average, " +
+                maxLag + " at most");
+        System.out.println(mismatches == 0 ? "Every viewer decoded what was sent" : mismatches + " FRAMES DECODED WRONG");
+
+        for (int i = 0; i < connected; i++)
+            viewers[i].close();
+        server.close();
+        match.dispose();
+    }
+}